@@ -0,0 +1,59 @@
+#!/usr/bin/env python3
+"""Compare two JMH JSON results and fail if a benchmark is slower than the baseline.
+
+Usage: compare.py <baseline.json> <result.json> [threshold percent, default 20]
+
+The benchmarks are matched by the name and the parameters. The time modes (avgt, sample, ss) regress
+when the score grows, the throughput mode (thrpt) regresses when the score drops. Benchmarks which exist
+only in one of the files are reported and ignored.
+"""
+import json
+import sys
+
+
+def read(path):
+    with open(path, encoding="utf-8") as file:
+        items = json.load(file)
+    result = {}
+    for item in items:
+        params = ",".join(f"{k}={v}" for k, v in sorted((item.get("params") or {}).items()))
+        name = item["benchmark"] + (f"({params})" if params else "")
+        result[name] = (item["mode"], item["primaryMetric"]["score"], item["primaryMetric"]["scoreUnit"])
+    return result
+
+
+def main():
+    if len(sys.argv) < 3:
+        print(__doc__)
+        return 2
+    baseline = read(sys.argv[1])
+    current = read(sys.argv[2])
+    threshold = float(sys.argv[3]) if len(sys.argv) > 3 else 20.0
+
+    regressions = []
+    for name in sorted(current):
+        mode, score, unit = current[name]
+        if name not in baseline:
+            print(f"NEW        {name}: {score:.3f} {unit}")
+            continue
+        base = baseline[name][1]
+        if base == 0:
+            continue
+        change = (score - base) / base * 100.0
+        if mode == "thrpt":
+            change = -change
+        status = "REGRESSION" if change > threshold else "OK"
+        print(f"{status:<10} {name}: {base:.3f} -> {score:.3f} {unit} ({change:+.1f}% slower)")
+        if change > threshold:
+            regressions.append(name)
+    for name in sorted(set(baseline) - set(current)):
+        print(f"REMOVED    {name}")
+
+    if regressions:
+        print(f"{len(regressions)} benchmark(s) are more than {threshold:.0f}% slower than the baseline.")
+        return 1
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
@@ -0,0 +1,260 @@
+package org.tkit.maven.liquibase.benchmark;
+
+import liquibase.changelog.ChangeLogParameters;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.exception.LiquibaseException;
+import liquibase.parser.ChangeLogParserFactory;
+import liquibase.resource.DirectoryResourceAccessor;
+import liquibase.resource.ResourceAccessor;
+import liquibase.serializer.core.xml.XMLChangeLogSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tkit.maven.liquibase.ChangeLogStreamCheck;
+import org.tkit.maven.liquibase.SkipRules;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark of the changelog parse, serialization and the check of the skip rules.
+ * The generated changelog contains create table, add column, create index and drop table changes,
+ * the skip rules skip the temporary indexes and tables, half of the changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangeLogBenchmark {
+
+    /**
+     * The changelog file name.
+     */
+    private static final String CHANGELOG = "changeLog.xml";
+
+    /**
+     * Number of the changeSets of the changelog.
+     */
+    @Param({"1000", "5000"})
+    public int changeSets;
+
+    /**
+     * The changelog directory.
+     */
+    private Path directory;
+
+    /**
+     * The changelog file.
+     */
+    private Path file;
+
+    /**
+     * The resource accessor of the changelog directory.
+     */
+    private ResourceAccessor accessor;
+
+    /**
+     * The skip rules of the check goal.
+     */
+    private SkipRules skip;
+
+    /**
+     * The parsed changeSets.
+     */
+    private List<ChangeSet> parsed;
+
+    /**
+     * Generate the changelog file.
+     *
+     * @throws Exception if the changelog could not be created.
+     */
+    @Setup
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("tkit-liquibase-benchmark");
+        file = directory.resolve(CHANGELOG);
+        Files.writeString(file, changeLog(changeSets), StandardCharsets.UTF_8);
+        accessor = new DirectoryResourceAccessor(directory);
+        skip = SkipRules.compile(Map.of("dropTable", "tmp_*", "createIndex", "regex:idx_tmp_[0-9]+"));
+        parsed = parse().getChangeSets();
+    }
+
+    /**
+     * Delete the changelog directory.
+     *
+     * @throws Exception if the directory could not be deleted.
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        accessor.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Parse the changelog with the liquibase parser.
+     *
+     * @return the changelog.
+     * @throws LiquibaseException if the parse failed.
+     */
+    @Benchmark
+    public DatabaseChangeLog parse() throws LiquibaseException {
+        return ChangeLogParserFactory.getInstance().getParser(CHANGELOG, accessor)
+                .parse(CHANGELOG, new ChangeLogParameters(), accessor);
+    }
+
+    /**
+     * Serialize the parsed changeSets.
+     *
+     * @return the serialized changelog.
+     * @throws IOException if the serialization failed.
+     */
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return serialize(parsed);
+    }
+
+    /**
+     * Parse the changelog and serialize the changeSets.
+     *
+     * @return the serialized changelog.
+     * @throws Exception if the parse or the serialization failed.
+     */
+    @Benchmark
+    public byte[] roundTrip() throws Exception {
+        return serialize(parse().getChangeSets());
+    }
+
+    /**
+     * Filter the changes of the parsed changelog with the skip rules of the check goal.
+     *
+     * @param changeLog the parsed changelog.
+     * @return the changeSets with the unresolved changes.
+     */
+    @Benchmark
+    public List<ChangeSet> filter(ParsedChangeLog changeLog) {
+        return skip.unresolved(changeLog.changeLog.getChangeSets());
+    }
+
+    /**
+     * Check the changelog with the streaming parser of the check goal.
+     *
+     * @return the check result.
+     * @throws Exception if the check failed.
+     */
+    @Benchmark
+    public ChangeLogStreamCheck.Result streamCheck() throws Exception {
+        return new ChangeLogStreamCheck(skip).check(file);
+    }
+
+    /**
+     * Write the unresolved changeSets with the streaming parser of the check goal.
+     *
+     * @param blackhole the consumer of the changeSets.
+     * @throws Exception if the check failed.
+     */
+    @Benchmark
+    public void streamWrite(Blackhole blackhole) throws Exception {
+        new ChangeLogStreamCheck(skip).write(file, blackhole::consume);
+    }
+
+    /**
+     * Serialize the changeSets.
+     *
+     * @param items the changeSets.
+     * @return the serialized changelog.
+     * @throws IOException if the serialization failed.
+     */
+    private static byte[] serialize(List<ChangeSet> items) throws IOException {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            new XMLChangeLogSerializer().write(items, out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Generate the changelog with the number of the changeSets.
+     *
+     * @param size the number of the changeSets.
+     * @return the changelog.
+     */
+    private static String changeLog(int size) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+        sb.append("<databaseChangeLog xmlns=\"http://www.liquibase.org/xml/ns/dbchangelog\" ")
+                .append("xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" ")
+                .append("xsi:schemaLocation=\"http://www.liquibase.org/xml/ns/dbchangelog ")
+                .append("http://www.liquibase.org/xml/ns/dbchangelog/dbchangelog-latest.xsd\">\n");
+        for (int i = 0; i < size; i++) {
+            int table = i / 4;
+            sb.append("    <changeSet author=\"benchmark\" id=\"").append(i).append("\">\n");
+            switch (i % 4) {
+                case 0 -> sb.append("        <createTable tableName=\"table_").append(table).append("\">\n")
+                        .append("            <column name=\"id\" type=\"BIGINT\">\n")
+                        .append("                <constraints nullable=\"false\" primaryKey=\"true\" primaryKeyName=\"table_")
+                        .append(table).append("_pkey\"/>\n")
+                        .append("            </column>\n")
+                        .append("            <column name=\"name\" type=\"VARCHAR(255)\"/>\n")
+                        .append("        </createTable>\n");
+                case 1 -> sb.append("        <addColumn tableName=\"table_").append(table).append("\">\n")
+                        .append("            <column name=\"description\" type=\"VARCHAR(255)\"/>\n")
+                        .append("        </addColumn>\n");
+                case 2 -> sb.append("        <createIndex indexName=\"idx_tmp_").append(table)
+                        .append("\" tableName=\"table_").append(table).append("\">\n")
+                        .append("            <column name=\"name\"/>\n")
+                        .append("        </createIndex>\n");
+                default -> sb.append("        <dropTable tableName=\"tmp_").append(table).append("\"/>\n");
+            }
+            sb.append("    </changeSet>\n");
+        }
+        sb.append("</databaseChangeLog>\n");
+        return sb.toString();
+    }
+
+    /**
+     * Changelog parsed for each invocation, the filter removes the skipped changes from the changeSets.
+     */
+    @State(Scope.Thread)
+    public static class ParsedChangeLog {
+
+        /**
+         * The parsed changelog.
+         */
+        DatabaseChangeLog changeLog;
+
+        /**
+         * Parse the changelog of the benchmark.
+         *
+         * @param benchmark the benchmark state.
+         * @throws LiquibaseException if the parse failed.
+         */
+        @Setup(Level.Invocation)
+        public void setup(ChangeLogBenchmark benchmark) throws LiquibaseException {
+            changeLog = benchmark.parse();
+        }
+    }
+}
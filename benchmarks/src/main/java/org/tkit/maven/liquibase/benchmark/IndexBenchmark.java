@@ -0,0 +1,207 @@
+package org.tkit.maven.liquibase.benchmark;
+
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.AnnotationValue;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexReader;
+import org.jboss.jandex.IndexWriter;
+import org.jboss.jandex.MergeIndexer;
+import org.tkit.maven.liquibase.PersistenceClasses;
+import org.tkit.maven.liquibase.PersistenceIndexReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmark of the merge of the dependency indexes and the lookup of the entities.
+ * The synthetic indexes simulate the {@code META-INF/jandex.idx} files of the runtime dependencies,
+ * every tenth class is an entity and the classes of all indexes share the same super classes.
+ * Run the read benchmarks with {@code -prof gc} to compare the allocation of the merged and the filtered read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexBenchmark {
+
+    /**
+     * Entity annotation.
+     */
+    private static final DotName ENTITY = DotName.createSimple("jakarta.persistence.Entity");
+
+    /**
+     * Number of the classes of all indexes.
+     */
+    @Param({"1000", "10000", "100000"})
+    public int classes;
+
+    /**
+     * Number of the classes of one index.
+     */
+    @Param({"200"})
+    public int indexSize;
+
+    /**
+     * The dependency indexes.
+     */
+    private List<Index> indexes;
+
+    /**
+     * The serialized dependency indexes.
+     */
+    private List<byte[]> files;
+
+    /**
+     * The merged index.
+     */
+    private Index merged;
+
+    /**
+     * Create the synthetic indexes.
+     *
+     * @throws IOException if the indexes could not be serialized.
+     */
+    @Setup
+    public void setup() throws IOException {
+        indexes = new ArrayList<>();
+        files = new ArrayList<>();
+        for (int start = 0; start < classes; start += indexSize) {
+            Index index = createIndex(start, Math.min(classes, start + indexSize));
+            indexes.add(index);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new IndexWriter(out).write(index);
+            files.add(out.toByteArray());
+        }
+        merged = merge();
+    }
+
+    /**
+     * Merge the dependency indexes.
+     *
+     * @return the merged index.
+     */
+    @Benchmark
+    public Index merge() {
+        MergeIndexer indexer = new MergeIndexer();
+        indexes.forEach(indexer::addIndex);
+        return indexer.complete();
+    }
+
+    /**
+     * Find the entities in the merged index.
+     *
+     * @return the entity class names.
+     */
+    @Benchmark
+    public List<String> entities() {
+        return entities(merged);
+    }
+
+    /**
+     * Merge the dependency indexes and find the entities.
+     *
+     * @return the entity class names.
+     */
+    @Benchmark
+    public List<String> mergeAndEntities() {
+        return entities(merge());
+    }
+
+    /**
+     * Read and merge the serialized indexes and find the entities.
+     *
+     * @return the entity class names.
+     * @throws IOException if the indexes could not be read.
+     */
+    @Benchmark
+    public List<String> readMergeEntities() throws IOException {
+        MergeIndexer indexer = new MergeIndexer();
+        for (byte[] file : files) {
+            indexer.addIndex(new IndexReader(new ByteArrayInputStream(file)).read());
+        }
+        return entities(indexer.complete());
+    }
+
+    /**
+     * Read the serialized indexes one by one and keep only the entities.
+     *
+     * @return the entity class names.
+     * @throws IOException if the indexes could not be read.
+     */
+    @Benchmark
+    public List<String> readFilteredEntities() throws IOException {
+        PersistenceIndexReader reader = new PersistenceIndexReader(List.of(PersistenceClasses.ENTITY), 1);
+        List<String> result = new ArrayList<>();
+        for (byte[] file : files) {
+            result.addAll(reader.read(new ByteArrayInputStream(file)).getEntities());
+        }
+        return result;
+    }
+
+    /**
+     * Find the entities in the index.
+     *
+     * @param index the index.
+     * @return the entity class names.
+     */
+    private static List<String> entities(Index index) {
+        return index.getAnnotations(ENTITY).stream()
+                .map(item -> item.target().asClass().toString())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Create the index of the classes.
+     *
+     * @param from the first class number.
+     * @param to   the last class number, exclusive.
+     * @return the index.
+     */
+    private static Index createIndex(int from, int to) {
+        Map<DotName, List<AnnotationInstance>> annotations = new HashMap<>();
+        Map<DotName, List<ClassInfo>> subclasses = new HashMap<>();
+        Map<DotName, List<ClassInfo>> implementors = new HashMap<>();
+        Map<DotName, ClassInfo> items = new HashMap<>();
+
+        DotName serializable = DotName.createSimple("java.io.Serializable");
+        for (int i = from; i < to; i++) {
+            DotName name = DotName.createSimple("org.acme.lib" + from + ".Model" + i);
+            DotName superName = DotName.createSimple("org.acme.base.Base" + (i % 50));
+            Map<DotName, List<AnnotationInstance>> classAnnotations = new HashMap<>();
+            ClassInfo info = ClassInfo.create(name, superName, (short) Modifier.PUBLIC,
+                    new DotName[]{serializable}, classAnnotations, true);
+            if (i % 10 == 0) {
+                AnnotationInstance entity = AnnotationInstance.create(ENTITY, info, new AnnotationValue[0]);
+                classAnnotations.put(ENTITY, List.of(entity));
+                annotations.computeIfAbsent(ENTITY, k -> new ArrayList<>()).add(entity);
+            }
+            subclasses.computeIfAbsent(superName, k -> new ArrayList<>()).add(info);
+            implementors.computeIfAbsent(serializable, k -> new ArrayList<>()).add(info);
+            items.put(name, info);
+        }
+        return Index.create(annotations, subclasses, implementors, items);
+    }
+}
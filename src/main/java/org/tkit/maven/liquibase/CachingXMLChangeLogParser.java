@@ -0,0 +1,71 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.Scope;
+import liquibase.changelog.ChangeLogParameters;
+import liquibase.exception.ChangeLogParseException;
+import liquibase.parser.core.ParsedNode;
+import liquibase.parser.core.xml.XMLChangeLogSAXParser;
+import liquibase.resource.DirectoryResourceAccessor;
+import liquibase.resource.Resource;
+import liquibase.resource.ResourceAccessor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * XML changelog parser which reads the parsed node tree of the changelog file from the {@link ChangeLogParseCache}
+ * of the current liquibase scope. Without the cache in the scope the file is parsed by the liquibase XML parser.
+ * Registered with higher priority in {@code META-INF/services/liquibase.parser.ChangeLogParser}.
+ */
+public class CachingXMLChangeLogParser extends XMLChangeLogSAXParser {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPriority() {
+        return super.getPriority() + 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected ParsedNode parseToNode(String physicalChangeLogLocation, ChangeLogParameters changeLogParameters,
+                                     ResourceAccessor resourceAccessor) throws ChangeLogParseException {
+        ChangeLogParseCache cache = Scope.getCurrentScope().get(ChangeLogParseCache.SCOPE_KEY, ChangeLogParseCache.class);
+        if (cache == null) {
+            return super.parseToNode(physicalChangeLogLocation, changeLogParameters, resourceAccessor);
+        }
+        byte[] content;
+        try {
+            Resource resource = resourceAccessor.get(physicalChangeLogLocation);
+            if (!resource.exists()) {
+                return super.parseToNode(physicalChangeLogLocation, changeLogParameters, resourceAccessor);
+            }
+            try (InputStream input = resource.openInputStream()) {
+                content = input.readAllBytes();
+            }
+        } catch (IOException ex) {
+            return super.parseToNode(physicalChangeLogLocation, changeLogParameters, resourceAccessor);
+        }
+        return cache.parse(content, () -> super.parseToNode(physicalChangeLogLocation, changeLogParameters, resourceAccessor));
+    }
+
+    /**
+     * Parse the changelog file without the cache.
+     *
+     * @param file the changelog file.
+     * @return the parsed node tree of the changelog.
+     * @throws ChangeLogParseException if the changelog could not be parsed.
+     */
+    public ParsedNode parseFile(Path file) throws ChangeLogParseException {
+        try {
+            return super.parseToNode(file.getFileName().toString(), new ChangeLogParameters(),
+                    new DirectoryResourceAccessor(file.toAbsolutePath().getParent()));
+        } catch (IOException ex) {
+            throw new ChangeLogParseException("Error reading changelog file " + file, ex);
+        }
+    }
+}
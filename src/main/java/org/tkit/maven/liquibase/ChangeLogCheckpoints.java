@@ -0,0 +1,154 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.ChecksumVersion;
+import liquibase.changelog.ChangeSet;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Store of the source database snapshots after the liquibase update.
+ * The snapshot is keyed by the hash of the changelog prefix (all applied changesets with their checksums).
+ */
+public class ChangeLogCheckpoints {
+
+    /**
+     * Checkpoint file suffix.
+     */
+    private static final String SUFFIX = ".dump";
+
+    /**
+     * Checkpoint directory.
+     */
+    private final Path directory;
+
+    /**
+     * Maximum number of the stored checkpoints.
+     */
+    private final int maxCheckpoints;
+
+    /**
+     * Default constructor.
+     *
+     * @param directory      the checkpoint directory.
+     * @param maxCheckpoints the maximum number of the stored checkpoints.
+     */
+    public ChangeLogCheckpoints(Path directory, int maxCheckpoints) {
+        this.directory = directory;
+        this.maxCheckpoints = maxCheckpoints;
+    }
+
+    /**
+     * Checkpoint of the changelog prefix.
+     *
+     * @param changeSets the number of changesets in the checkpoint.
+     * @param file       the checkpoint file.
+     */
+    public record Checkpoint(int changeSets, Path file) {
+    }
+
+    /**
+     * Create the hashes of all changelog prefixes. The hash on the index {@code i}
+     * is the hash of the first {@code i + 1} changesets.
+     *
+     * @param seed       the seed of the hash, for example the database version.
+     * @param changeSets the changesets of the changelog.
+     * @return list of the prefix hashes.
+     */
+    public static List<String> prefixHashes(String seed, List<ChangeSet> changeSets) {
+        List<String> result = new ArrayList<>(changeSets.size());
+        String hash = new DiffFingerprint().add("seed", seed).toHex();
+        for (ChangeSet changeSet : changeSets) {
+            hash = new DiffFingerprint()
+                    .add("prefix", hash)
+                    .add("id", changeSet.getId())
+                    .add("author", changeSet.getAuthor())
+                    .add("file", changeSet.getFilePath())
+                    .add("checksum", changeSet.generateCheckSum(ChecksumVersion.latest()))
+                    .toHex();
+            result.add(hash);
+        }
+        return result;
+    }
+
+    /**
+     * Find the checkpoint of the longest stored changelog prefix.
+     *
+     * @param hashes the prefix hashes.
+     * @return the checkpoint or {@code null} if there is no checkpoint for the changelog.
+     * @throws IOException if the checkpoint directory could not be read.
+     */
+    public Checkpoint find(List<String> hashes) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        Set<String> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.map(p -> p.getFileName().toString()).collect(Collectors.toSet());
+        }
+        for (int i = hashes.size() - 1; i >= 0; i--) {
+            String name = hashes.get(i) + SUFFIX;
+            if (files.contains(name)) {
+                Path file = directory.resolve(name);
+                // mark the checkpoint as recently used
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                return new Checkpoint(i + 1, file);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the checkpoint file for the prefix hash.
+     *
+     * @param hash the prefix hash.
+     * @return the checkpoint file.
+     * @throws IOException if the checkpoint directory could not be created.
+     */
+    public Path file(String hash) throws IOException {
+        Files.createDirectories(directory);
+        return directory.resolve(hash + SUFFIX);
+    }
+
+    /**
+     * Remove the least recently used checkpoints.
+     *
+     * @throws IOException if the checkpoints could not be removed.
+     */
+    public void prune() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(ChangeLogCheckpoints::lastModified).reversed())
+                    .collect(Collectors.toList());
+        }
+        for (int i = maxCheckpoints; i < files.size(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    /**
+     * Returns the last modified time of the file.
+     *
+     * @param file the file.
+     * @return the last modified time.
+     */
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException ex) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
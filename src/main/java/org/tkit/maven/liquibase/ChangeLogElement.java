@@ -0,0 +1,199 @@
+package org.tkit.maven.liquibase;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * XML element of the changelog read with StAX. The texts between the child elements are kept,
+ * the written element has the formatting of the read element.
+ *
+ * @param name       the element name.
+ * @param attributes the attributes in the document order.
+ * @param children   the child elements and texts.
+ */
+public record ChangeLogElement(String name, Map<String, String> attributes, List<Object> children) {
+
+    /**
+     * ChangeSet elements which are not changes.
+     */
+    public static final Set<String> CHANGE_SET_METADATA = Set.of("comment", "validCheckSum", "preConditions", "precondition", "rollback",
+            "modifySql");
+
+    /**
+     * Column element name.
+     */
+    private static final String COLUMN = "column";
+
+    /**
+     * Read the current element with all children.
+     * The reader is positioned on the end element of the read element.
+     *
+     * @param reader the XML stream reader.
+     * @return the element.
+     * @throws XMLStreamException if the file is not a valid XML document.
+     */
+    public static ChangeLogElement read(XMLStreamReader reader) throws XMLStreamException {
+        ChangeLogElement element = new ChangeLogElement(reader.getLocalName(), attributes(reader), new ArrayList<>());
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> element.children().add(read(reader));
+                case XMLStreamConstants.END_ELEMENT -> {
+                    return element;
+                }
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.SPACE -> element.children().add(new Text(reader.getText(), false));
+                case XMLStreamConstants.CDATA -> element.children().add(new Text(reader.getText(), true));
+                default -> {
+                    // comments and processing instructions are not copied
+                }
+            }
+        }
+        return element;
+    }
+
+    /**
+     * Returns the attributes of the current element in the document order.
+     *
+     * @param reader the XML stream reader.
+     * @return the attributes of the element.
+     */
+    public static Map<String, String> attributes(XMLStreamReader reader) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            result.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+        return result;
+    }
+
+    /**
+     * Write the attributes to the current element of the writer.
+     *
+     * @param writer     the XML stream writer.
+     * @param attributes the attributes.
+     * @throws XMLStreamException if the attributes could not be written.
+     */
+    public static void writeAttributes(XMLStreamWriter writer, Map<String, String> attributes) throws XMLStreamException {
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            writer.writeAttribute(attribute.getKey(), attribute.getValue());
+        }
+    }
+
+    /**
+     * Move the reader to the next start or end element.
+     *
+     * @param reader the XML stream reader.
+     * @return the event type, start element, end element or end of document.
+     * @throws XMLStreamException if the file is not a valid XML document.
+     */
+    public static int nextElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT) {
+                return event;
+            }
+        }
+        return XMLStreamConstants.END_DOCUMENT;
+    }
+
+    /**
+     * Skip the current element with all children.
+     * The reader is positioned on the end element of the skipped element.
+     *
+     * @param reader the XML stream reader.
+     * @throws XMLStreamException if the file is not a valid XML document.
+     */
+    public static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Returns the child elements.
+     *
+     * @return the child elements.
+     */
+    public List<ChangeLogElement> elements() {
+        List<ChangeLogElement> result = new ArrayList<>();
+        for (Object child : children) {
+            if (child instanceof ChangeLogElement element) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the names of the column child elements.
+     *
+     * @return the column names.
+     */
+    public List<String> columns() {
+        List<String> result = new ArrayList<>();
+        for (ChangeLogElement element : elements()) {
+            if (COLUMN.equals(element.name())) {
+                result.add(element.attributes().get("name"));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Write the element to the writer.
+     *
+     * @param writer the XML stream writer.
+     * @throws XMLStreamException if the element could not be written.
+     */
+    public void write(XMLStreamWriter writer) throws XMLStreamException {
+        if (children.isEmpty()) {
+            writer.writeEmptyElement(name);
+            writeAttributes(writer, attributes);
+            return;
+        }
+        writer.writeStartElement(name);
+        writeAttributes(writer, attributes);
+        for (Object child : children) {
+            if (child instanceof ChangeLogElement element) {
+                element.write(writer);
+            } else if (child instanceof Text text) {
+                text.write(writer);
+            }
+        }
+        writer.writeEndElement();
+    }
+
+    /**
+     * XML text of the element.
+     *
+     * @param text  the text.
+     * @param cdata {@code true} for the CDATA section.
+     */
+    public record Text(String text, boolean cdata) {
+
+        /**
+         * Write the text to the writer.
+         *
+         * @param writer the XML stream writer.
+         * @throws XMLStreamException if the text could not be written.
+         */
+        void write(XMLStreamWriter writer) throws XMLStreamException {
+            if (cdata) {
+                writer.writeCData(text);
+            } else {
+                writer.writeCharacters(text);
+            }
+        }
+    }
+}
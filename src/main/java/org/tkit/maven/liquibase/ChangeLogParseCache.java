@@ -0,0 +1,577 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.GlobalConfiguration;
+import liquibase.exception.ChangeLogParseException;
+import liquibase.parser.core.ParsedNode;
+import liquibase.parser.core.ParsedNodeException;
+import liquibase.util.LiquibaseUtil;
+import org.apache.maven.model.Resource;
+import org.apache.maven.project.MavenProject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Cache of the parsed XML changelog files keyed by the file content. The XML parser builds the node tree of the file
+ * without the changelog parameters, the tree of the unchanged file is read from the memory of the build or from the
+ * cache directory instead of parsing the file again. The include tree of the master changelog could be parsed
+ * in parallel before the liquibase run, the liquibase parser then reads all files from the cache.
+ */
+public class ChangeLogParseCache {
+
+    /**
+     * Liquibase scope key of the cache.
+     */
+    public static final String SCOPE_KEY = ChangeLogParseCache.class.getName();
+
+    /**
+     * Cache file format version.
+     */
+    private static final String VERSION = "1";
+
+    /**
+     * Cache file suffix.
+     */
+    private static final String SUFFIX = ".node";
+
+    /**
+     * XML changelog file suffix.
+     */
+    private static final String XML_SUFFIX = ".xml";
+
+    /**
+     * Classpath prefix of the included files.
+     */
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    /**
+     * Maximum number of the node trees in the memory of the build.
+     */
+    private static final int MAX_MEMORY_ENTRIES = 10_000;
+
+    /**
+     * Maximum number of the cache files.
+     */
+    private static final int MAX_FILES = 5_000;
+
+    /**
+     * Node trees of the build shared by all executions of the plugin.
+     */
+    private static final Map<String, Node> MEMORY = new ConcurrentHashMap<>();
+
+    /**
+     * Cache directory or {@code null} for the memory cache only.
+     */
+    private final Path directory;
+
+    /**
+     * Number of the parsed files.
+     */
+    private final AtomicInteger parsed = new AtomicInteger();
+
+    /**
+     * Number of the files read from the cache.
+     */
+    private final AtomicInteger cached = new AtomicInteger();
+
+    /**
+     * Default constructor.
+     *
+     * @param directory the cache directory or {@code null} for the memory cache only.
+     */
+    public ChangeLogParseCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Immutable node of the parsed changelog.
+     *
+     * @param name     the node name.
+     * @param value    the node value or {@code null}.
+     * @param children the child nodes.
+     */
+    public record Node(String name, String value, List<Node> children) {
+
+        /**
+         * Create the node of the parsed node tree.
+         *
+         * @param node the parsed node.
+         * @return the node or {@code null} if the tree contains values other than text or a namespace.
+         */
+        public static Node of(ParsedNode node) {
+            if (node.getNamespace() != null || (node.getValue() != null && !(node.getValue() instanceof String))) {
+                return null;
+            }
+            List<Node> children = new ArrayList<>(node.getChildren().size());
+            for (ParsedNode child : node.getChildren()) {
+                Node item = of(child);
+                if (item == null) {
+                    return null;
+                }
+                children.add(item);
+            }
+            return new Node(node.getName(), (String) node.getValue(), List.copyOf(children));
+        }
+
+        /**
+         * Create the new parsed node tree of the node.
+         *
+         * @return the parsed node.
+         * @throws ParsedNodeException if the node could not be created.
+         */
+        public ParsedNode toParsedNode() throws ParsedNodeException {
+            ParsedNode result = new ParsedNode(null, name);
+            if (value != null) {
+                result.setValue(value);
+            }
+            for (Node child : children) {
+                result.addChild(child.toParsedNode());
+            }
+            return result;
+        }
+
+        /**
+         * Returns the value of the child node.
+         *
+         * @param name the child name.
+         * @return the value or {@code null}.
+         */
+        public String childValue(String name) {
+            return children.stream().filter(item -> item.name().equals(name)).map(Node::value).findFirst().orElse(null);
+        }
+    }
+
+    /**
+     * Parser of the node tree.
+     */
+    @FunctionalInterface
+    public interface NodeParser {
+
+        /**
+         * Parse the node tree.
+         *
+         * @return the parsed node tree.
+         * @throws ChangeLogParseException if the changelog could not be parsed.
+         */
+        ParsedNode parse() throws ChangeLogParseException;
+    }
+
+    /**
+     * Returns the node tree of the changelog content from the cache or parse the changelog.
+     *
+     * @param content the changelog content.
+     * @param parser  the parser of the changelog.
+     * @return the new parsed node tree.
+     * @throws ChangeLogParseException if the changelog could not be parsed.
+     */
+    public ParsedNode parse(byte[] content, NodeParser parser) throws ChangeLogParseException {
+        String key = key(content);
+        Node node = lookup(key);
+        if (node != null) {
+            try {
+                return node.toParsedNode();
+            } catch (ParsedNodeException ex) {
+                throw new ChangeLogParseException(ex.getMessage(), ex);
+            }
+        }
+        ParsedNode result = parser.parse();
+        store(key, Node.of(result));
+        return result;
+    }
+
+    /**
+     * Parse the changelog and all included XML files in parallel. Files which could not be resolved or parsed
+     * are skipped, the liquibase parser reports the errors.
+     *
+     * @param changeLog the master changelog file.
+     * @param roots     the directories of the not relative includes.
+     * @param threads   the maximum number of the files parsed in parallel.
+     * @return the sorted changelog files of the include tree.
+     * @throws InterruptedException if the parsing was interrupted.
+     */
+    public Set<Path> prefetch(Path changeLog, List<Path> roots, int threads) throws InterruptedException {
+        Set<Path> seen = ConcurrentHashMap.newKeySet();
+        List<Path> level = List.of(changeLog.toAbsolutePath().normalize());
+        seen.addAll(level);
+        ThreadLocal<CachingXMLChangeLogParser> parser = ThreadLocal.withInitial(CachingXMLChangeLogParser::new);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            while (!level.isEmpty()) {
+                List<Callable<List<Path>>> tasks = level.stream()
+                        .<Callable<List<Path>>>map(file -> () -> includes(file, load(file, parser.get()), roots))
+                        .toList();
+                List<Path> next = new ArrayList<>();
+                for (Future<List<Path>> future : executor.invokeAll(tasks)) {
+                    try {
+                        future.get().stream().filter(seen::add).forEach(next::add);
+                    } catch (ExecutionException ex) {
+                        // parsed again and reported by liquibase
+                    }
+                }
+                level = next;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new TreeSet<>(seen);
+    }
+
+    /**
+     * Returns the number of the parsed files.
+     *
+     * @return the number of the parsed files.
+     */
+    public int getParsed() {
+        return parsed.get();
+    }
+
+    /**
+     * Returns the number of the files read from the cache.
+     *
+     * @return the number of the files read from the cache.
+     */
+    public int getCached() {
+        return cached.get();
+    }
+
+    /**
+     * Remove the least recently used cache files.
+     *
+     * @throws IOException if the cache files could not be removed.
+     */
+    public void prune() throws IOException {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(ChangeLogParseCache::lastModified).reversed())
+                    .collect(Collectors.toList());
+        }
+        for (int i = MAX_FILES; i < files.size(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    /**
+     * Returns the directories of the not relative includes of the project: the project directory,
+     * the resource directories and the output directory.
+     *
+     * @param project the maven project.
+     * @return the include directories.
+     */
+    public static List<Path> roots(MavenProject project) {
+        Set<Path> result = new LinkedHashSet<>();
+        Path basedir = project.getBasedir().toPath();
+        result.add(basedir);
+        for (Resource resource : project.getResources()) {
+            result.add(basedir.resolve(resource.getDirectory()));
+        }
+        result.add(basedir.resolve(project.getBuild().getOutputDirectory()));
+        return List.copyOf(result);
+    }
+
+    /**
+     * Load the node tree of the changelog file from the cache or parse the file.
+     *
+     * @param file   the changelog file.
+     * @param parser the XML parser of the current thread.
+     * @return the node tree.
+     * @throws IOException             if the file could not be read.
+     * @throws ChangeLogParseException if the file could not be parsed.
+     */
+    private Node load(Path file, CachingXMLChangeLogParser parser) throws IOException, ChangeLogParseException {
+        String key = key(Files.readAllBytes(file));
+        Node node = lookup(key);
+        if (node == null) {
+            node = Node.of(parser.parseFile(file));
+            store(key, node);
+        }
+        return node;
+    }
+
+    /**
+     * Returns the included XML files of the changelog.
+     *
+     * @param file  the changelog file.
+     * @param node  the node tree of the changelog.
+     * @param roots the directories of the not relative includes.
+     * @return the included files.
+     * @throws IOException if the included directory could not be read.
+     */
+    private static List<Path> includes(Path file, Node node, List<Path> roots) throws IOException {
+        List<Path> result = new ArrayList<>();
+        if (node == null) {
+            return result;
+        }
+        for (Node child : node.children()) {
+            boolean relative = Boolean.parseBoolean(child.childValue("relativeToChangelogFile"));
+            if ("include".equals(child.name())) {
+                Path include = resolve(file, child.childValue("file"), relative, roots);
+                if (include != null && Files.isRegularFile(include) && include.toString().endsWith(XML_SUFFIX)) {
+                    result.add(include.toAbsolutePath().normalize());
+                }
+            } else if ("includeAll".equals(child.name())) {
+                Path include = resolve(file, child.childValue("path"), relative, roots);
+                if (include != null && Files.isDirectory(include)) {
+                    try (Stream<Path> stream = Files.walk(include)) {
+                        stream.filter(Files::isRegularFile).filter(p -> p.toString().endsWith(XML_SUFFIX))
+                                .map(p -> p.toAbsolutePath().normalize()).sorted().forEach(result::add);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolve the included path.
+     *
+     * @param file     the changelog file.
+     * @param path     the included path.
+     * @param relative the path is relative to the changelog file.
+     * @param roots    the directories of the not relative includes.
+     * @return the included path or {@code null} if the path could not be resolved.
+     */
+    private static Path resolve(Path file, String path, boolean relative, List<Path> roots) {
+        if (path == null || path.isBlank() || path.contains("${")) {
+            return null;
+        }
+        String name = path.startsWith(CLASSPATH_PREFIX) ? path.substring(CLASSPATH_PREFIX.length()) : path;
+        if (relative) {
+            return file.getParent().resolve(name);
+        }
+        Path absolute = Path.of(name);
+        if (absolute.isAbsolute() && Files.exists(absolute)) {
+            return absolute;
+        }
+        String child = name.startsWith("/") ? name.substring(1) : name;
+        for (Path root : roots) {
+            Path result = root.resolve(child);
+            if (Files.exists(result)) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the cache key of the changelog content.
+     *
+     * @param content the changelog content.
+     * @return the cache key.
+     */
+    private static String key(byte[] content) {
+        try {
+            return new DiffFingerprint()
+                    .add("version", VERSION)
+                    .add("liquibase", LiquibaseUtil.getBuildVersion())
+                    .add("validate", GlobalConfiguration.VALIDATE_XML_CHANGELOG_FILES.getCurrentValue())
+                    .add("content", new ByteArrayInputStream(content))
+                    .toHex();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Returns the node tree of the key from the memory or the cache directory.
+     *
+     * @param key the cache key.
+     * @return the node tree or {@code null} if the key is not cached.
+     */
+    private Node lookup(String key) {
+        Node node = MEMORY.get(key);
+        if (node == null && directory != null) {
+            try {
+                node = read(directory.resolve(key + SUFFIX));
+            } catch (IOException ex) {
+                node = null;
+            }
+            if (node != null) {
+                remember(key, node);
+            }
+        }
+        if (node != null) {
+            cached.incrementAndGet();
+        }
+        return node;
+    }
+
+    /**
+     * Store the parsed node tree in the memory and the cache directory.
+     *
+     * @param key  the cache key.
+     * @param node the node tree or {@code null} if the tree could not be cached.
+     */
+    private void store(String key, Node node) {
+        parsed.incrementAndGet();
+        if (node == null) {
+            return;
+        }
+        remember(key, node);
+        if (directory != null) {
+            try {
+                write(directory.resolve(key + SUFFIX), node);
+            } catch (IOException ex) {
+                // the file is parsed again in the next build
+            }
+        }
+    }
+
+    /**
+     * Store the node tree in the memory of the build.
+     *
+     * @param key  the cache key.
+     * @param node the node tree.
+     */
+    private static void remember(String key, Node node) {
+        if (MEMORY.size() >= MAX_MEMORY_ENTRIES) {
+            MEMORY.clear();
+        }
+        MEMORY.put(key, node);
+    }
+
+    /**
+     * Read the node tree of the cache file.
+     *
+     * @param file the cache file.
+     * @return the node tree or {@code null} if the file does not exist.
+     * @throws IOException if the file could not be read.
+     */
+    private static Node read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        Node node;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            node = readNode(input);
+        }
+        // mark the file as recently used
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        return node;
+    }
+
+    /**
+     * Write the node tree to the cache file.
+     *
+     * @param file the cache file.
+     * @param node the node tree.
+     * @throws IOException if the file could not be written.
+     */
+    private static void write(Path file, Node node) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                writeNode(output, node);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Read the node and the child nodes.
+     *
+     * @param input the cache file input.
+     * @return the node.
+     * @throws IOException if the node could not be read.
+     */
+    private static Node readNode(DataInputStream input) throws IOException {
+        String name = readString(input);
+        String value = input.readBoolean() ? readString(input) : null;
+        int size = input.readInt();
+        List<Node> children = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            children.add(readNode(input));
+        }
+        return new Node(name, value, List.copyOf(children));
+    }
+
+    /**
+     * Write the node and the child nodes.
+     *
+     * @param output the cache file output.
+     * @param node   the node.
+     * @throws IOException if the node could not be written.
+     */
+    private static void writeNode(DataOutputStream output, Node node) throws IOException {
+        writeString(output, node.name());
+        output.writeBoolean(node.value() != null);
+        if (node.value() != null) {
+            writeString(output, node.value());
+        }
+        output.writeInt(node.children().size());
+        for (Node child : node.children()) {
+            writeNode(output, child);
+        }
+    }
+
+    /**
+     * Read the length prefixed UTF-8 string.
+     *
+     * @param input the cache file input.
+     * @return the string.
+     * @throws IOException if the string could not be read.
+     */
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] data = new byte[input.readInt()];
+        input.readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write the length prefixed UTF-8 string.
+     *
+     * @param output the cache file output.
+     * @param value  the string.
+     * @throws IOException if the string could not be written.
+     */
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(data.length);
+        output.write(data);
+    }
+
+    /**
+     * Returns the last modified time of the file.
+     *
+     * @param file the file.
+     * @return the last modified time.
+     */
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException ex) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
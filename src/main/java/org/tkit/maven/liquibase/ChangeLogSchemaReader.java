@@ -0,0 +1,410 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.change.Change;
+import liquibase.change.ColumnConfig;
+import liquibase.change.ConstraintsConfig;
+import liquibase.change.core.*;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.database.Database;
+import liquibase.database.DatabaseList;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.Table;
+import liquibase.structure.core.UniqueConstraint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Creates the schema model by interpreting the changes of the liquibase changelog in memory.
+ * Only the schema changes of tables, columns, constraints, indexes and sequences are interpreted,
+ * data changes are ignored and all other changes are reported as not interpreted.
+ */
+public class ChangeLogSchemaReader {
+
+    /**
+     * Changes without effect on the schema model.
+     */
+    private static final Set<Class<? extends Change>> IGNORED_CHANGES = Set.of(
+            InsertDataChange.class, UpdateDataChange.class, DeleteDataChange.class,
+            LoadDataChange.class, LoadUpdateDataChange.class, TagDatabaseChange.class,
+            EmptyChange.class, OutputChange.class, SetTableRemarksChange.class, SetColumnRemarksChange.class
+    );
+
+    /**
+     * The schema model.
+     */
+    private final OfflineSchema schema;
+
+    /**
+     * Messages of the changes which were not interpreted.
+     */
+    private final List<String> warnings = new ArrayList<>();
+
+    /**
+     * Default constructor.
+     *
+     * @param schema the schema model.
+     */
+    public ChangeLogSchemaReader(OfflineSchema schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * Returns the messages of the changes which were not interpreted.
+     *
+     * @return list of the messages.
+     */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    /**
+     * Apply all changesets of the changelog for the postgresql database to the schema model.
+     *
+     * @param changeLog the changelog.
+     */
+    public void read(DatabaseChangeLog changeLog) {
+        Database database = schema.getDatabase();
+        for (ChangeSet changeSet : changeLog.getChangeSets()) {
+            if (!DatabaseList.definitionMatches(changeSet.getDbmsSet(), database, true)) {
+                continue;
+            }
+            for (Change change : changeSet.getChanges()) {
+                if (!apply(change)) {
+                    warnings.add(changeSet + ": " + change.getSerializedObjectName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply the change to the schema model.
+     *
+     * @param change the change.
+     * @return {@code true} if the change was interpreted or has no effect on the schema model.
+     */
+    private boolean apply(Change change) {
+        if (IGNORED_CHANGES.contains(change.getClass())) {
+            return true;
+        }
+        if (change instanceof CreateTableChange c) {
+            Table table = schema.addTable(name(c.getTableName(), Table.class));
+            addColumns(table, c.getColumns());
+            return true;
+        }
+        if (change instanceof DropTableChange c) {
+            schema.removeTable(name(c.getTableName(), Table.class));
+            return true;
+        }
+        if (change instanceof RenameTableChange c) {
+            schema.renameTable(name(c.getOldTableName(), Table.class), name(c.getNewTableName(), Table.class));
+            return true;
+        }
+        if (change instanceof AddColumnChange c) {
+            Table table = table(c.getTableName());
+            if (table == null) {
+                return false;
+            }
+            addColumns(table, new ArrayList<>(c.getColumns()));
+            return true;
+        }
+        if (change instanceof DropColumnChange c) {
+            Table table = table(c.getTableName());
+            if (table == null) {
+                return false;
+            }
+            if (c.getColumnName() != null) {
+                schema.removeColumn(table, name(c.getColumnName(), Column.class));
+            }
+            c.getColumns().forEach(column -> schema.removeColumn(table, name(column.getName(), Column.class)));
+            return true;
+        }
+        if (change instanceof RenameColumnChange c) {
+            Table table = table(c.getTableName());
+            if (table == null) {
+                return false;
+            }
+            schema.renameColumn(table, name(c.getOldColumnName(), Column.class), name(c.getNewColumnName(), Column.class));
+            return true;
+        }
+        if (change instanceof ModifyDataTypeChange c) {
+            Column column = column(c.getTableName(), c.getColumnName());
+            if (column == null) {
+                return false;
+            }
+            column.setType(schema.type(c.getNewDataType()));
+            return true;
+        }
+        if (change instanceof AddNotNullConstraintChange c) {
+            Column column = column(c.getTableName(), c.getColumnName());
+            if (column == null) {
+                return false;
+            }
+            column.setNullable(false);
+            return true;
+        }
+        if (change instanceof DropNotNullConstraintChange c) {
+            Column column = column(c.getTableName(), c.getColumnName());
+            if (column == null) {
+                return false;
+            }
+            column.setNullable(true);
+            return true;
+        }
+        if (change instanceof AddDefaultValueChange c) {
+            Column column = column(c.getTableName(), c.getColumnName());
+            if (column == null) {
+                return false;
+            }
+            ColumnConfig config = new ColumnConfig();
+            config.setDefaultValue(c.getDefaultValue());
+            config.setDefaultValueNumeric(c.getDefaultValueNumeric());
+            config.setDefaultValueDate(c.getDefaultValueDate());
+            config.setDefaultValueBoolean(c.getDefaultValueBoolean());
+            config.setDefaultValueComputed(c.getDefaultValueComputed());
+            config.setDefaultValueSequenceNext(c.getDefaultValueSequenceNext());
+            column.setDefaultValue(config.getDefaultValueObject());
+            return true;
+        }
+        if (change instanceof DropDefaultValueChange c) {
+            Column column = column(c.getTableName(), c.getColumnName());
+            if (column == null) {
+                return false;
+            }
+            column.setDefaultValue(null);
+            return true;
+        }
+        if (change instanceof AddAutoIncrementChange c) {
+            Column column = column(c.getTableName(), c.getColumnName());
+            if (column == null) {
+                return false;
+            }
+            OfflineSchema.setAutoIncrement(column);
+            return true;
+        }
+        if (change instanceof AddPrimaryKeyChange c) {
+            Table table = table(c.getTableName());
+            if (table == null) {
+                return false;
+            }
+            String constraintName = c.getConstraintName() != null ? name(c.getConstraintName(), Index.class) : table.getName() + "_pkey";
+            schema.setPrimaryKey(table, constraintName, names(c.getColumnNames()));
+            return true;
+        }
+        if (change instanceof DropPrimaryKeyChange c) {
+            Table table = table(c.getTableName());
+            if (table == null) {
+                return false;
+            }
+            table.setPrimaryKey(null);
+            return true;
+        }
+        if (change instanceof AddUniqueConstraintChange c) {
+            Table table = table(c.getTableName());
+            if (table == null) {
+                return false;
+            }
+            schema.addUniqueConstraint(table, name(c.getConstraintName(), UniqueConstraint.class), names(c.getColumnNames()));
+            return true;
+        }
+        if (change instanceof DropUniqueConstraintChange c) {
+            Table table = table(c.getTableName());
+            if (table == null) {
+                return false;
+            }
+            schema.removeUniqueConstraint(table, name(c.getConstraintName(), UniqueConstraint.class));
+            return true;
+        }
+        if (change instanceof AddForeignKeyConstraintChange c) {
+            Table table = table(c.getBaseTableName());
+            Table referenced = table(c.getReferencedTableName());
+            if (table == null || referenced == null) {
+                return false;
+            }
+            ForeignKey fk = schema.addForeignKey(table, name(c.getConstraintName(), ForeignKey.class),
+                    names(c.getBaseColumnNames()), referenced, names(c.getReferencedColumnNames()));
+            // deleteCascade="true" is stored as onDelete="CASCADE" by liquibase
+            setRules(fk, c.getOnDelete(), c.getOnUpdate(), c.getDeferrable(), c.getInitiallyDeferred());
+            return true;
+        }
+        if (change instanceof DropForeignKeyConstraintChange c) {
+            Table table = table(c.getBaseTableName());
+            if (table == null) {
+                return false;
+            }
+            schema.removeForeignKey(table, name(c.getConstraintName(), ForeignKey.class));
+            return true;
+        }
+        if (change instanceof DropAllForeignKeyConstraintsChange c) {
+            Table table = table(c.getBaseTableName());
+            if (table == null) {
+                return false;
+            }
+            table.getOutgoingForeignKeys().clear();
+            return true;
+        }
+        if (change instanceof CreateIndexChange c) {
+            Table table = table(c.getTableName());
+            if (table == null) {
+                return false;
+            }
+            List<String> columns = c.getColumns().stream().map(column -> name(column.getName(), Column.class)).toList();
+            schema.addIndex(table, name(c.getIndexName(), Index.class), Boolean.TRUE.equals(c.isUnique()), columns);
+            return true;
+        }
+        if (change instanceof DropIndexChange c) {
+            schema.removeIndex(name(c.getIndexName(), Index.class));
+            return true;
+        }
+        if (change instanceof CreateSequenceChange c) {
+            schema.addSequence(name(c.getSequenceName(), Sequence.class), c.getStartValue(), c.getIncrementBy());
+            return true;
+        }
+        if (change instanceof AlterSequenceChange c) {
+            Sequence sequence = schema.getSequence(name(c.getSequenceName(), Sequence.class));
+            if (sequence == null) {
+                return false;
+            }
+            if (c.getIncrementBy() != null) {
+                sequence.setIncrementBy(c.getIncrementBy());
+            }
+            return true;
+        }
+        if (change instanceof DropSequenceChange c) {
+            schema.removeSequence(name(c.getSequenceName(), Sequence.class));
+            return true;
+        }
+        if (change instanceof RenameSequenceChange c) {
+            schema.renameSequence(name(c.getOldSequenceName(), Sequence.class), name(c.getNewSequenceName(), Sequence.class));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Add the columns with their inline constraints to the table.
+     *
+     * @param table   the table.
+     * @param columns the column configurations.
+     */
+    private void addColumns(Table table, List<? extends ColumnConfig> columns) {
+        List<String> primaryKey = new ArrayList<>();
+        String primaryKeyName = null;
+        for (ColumnConfig config : columns) {
+            String name = name(config.getName(), Column.class);
+            ConstraintsConfig constraints = config.getConstraints();
+            boolean nullable = constraints == null || constraints.isNullable() == null || constraints.isNullable();
+            Column column = schema.addColumn(table, name, schema.type(config.getType()), nullable);
+            column.setDefaultValue(config.getDefaultValueObject());
+            if (Boolean.TRUE.equals(config.isAutoIncrement())) {
+                OfflineSchema.setAutoIncrement(column);
+            }
+            if (constraints == null) {
+                continue;
+            }
+            if (Boolean.TRUE.equals(constraints.isPrimaryKey())) {
+                primaryKey.add(name);
+                primaryKeyName = constraints.getPrimaryKeyName();
+            }
+            if (Boolean.TRUE.equals(constraints.isUnique())) {
+                String constraintName = constraints.getUniqueConstraintName() != null
+                        ? name(constraints.getUniqueConstraintName(), UniqueConstraint.class)
+                        : table.getName() + "_" + name + "_key";
+                schema.addUniqueConstraint(table, constraintName, List.of(name));
+            }
+            String referencedTableName = constraints.getReferencedTableName();
+            String referencedColumnNames = constraints.getReferencedColumnNames();
+            if (referencedTableName == null && constraints.getReferences() != null) {
+                // legacy format: table(column)
+                String references = constraints.getReferences();
+                int index = references.indexOf('(');
+                referencedTableName = index > 0 ? references.substring(0, index) : references;
+                referencedColumnNames = index > 0 ? references.substring(index + 1, references.lastIndexOf(')')) : null;
+            }
+            if (referencedTableName != null) {
+                Table referenced = table(referencedTableName);
+                if (referenced == null) {
+                    warnings.add(table.getName() + "." + name + ": unknown referenced table " + referencedTableName);
+                    continue;
+                }
+                List<String> referencedColumns = referencedColumnNames != null ? names(referencedColumnNames)
+                        : referenced.getPrimaryKey() != null ? referenced.getPrimaryKey().getColumnNamesAsList() : List.of();
+                String constraintName = constraints.getForeignKeyName() != null
+                        ? name(constraints.getForeignKeyName(), ForeignKey.class)
+                        : table.getName() + "_" + name + "_fkey";
+                ForeignKey fk = schema.addForeignKey(table, constraintName, List.of(name), referenced, referencedColumns);
+                setRules(fk, Boolean.TRUE.equals(constraints.isDeleteCascade()) ? "CASCADE" : null, null,
+                        constraints.isDeferrable(), constraints.isInitiallyDeferred());
+            }
+        }
+        if (!primaryKey.isEmpty()) {
+            schema.setPrimaryKey(table, primaryKeyName != null ? name(primaryKeyName, Index.class) : table.getName() + "_pkey", primaryKey);
+        }
+    }
+
+    /**
+     * Set the rules of the foreign key.
+     *
+     * @param fk                the foreign key.
+     * @param onDelete          the delete rule.
+     * @param onUpdate          the update rule.
+     * @param deferrable        the deferrable flag.
+     * @param initiallyDeferred the initially deferred flag.
+     */
+    private static void setRules(ForeignKey fk, String onDelete, String onUpdate, Boolean deferrable, Boolean initiallyDeferred) {
+        fk.setDeleteRule(OfflineSchema.foreignKeyRule(onDelete));
+        fk.setUpdateRule(OfflineSchema.foreignKeyRule(onUpdate));
+        fk.setDeferrable(Boolean.TRUE.equals(deferrable));
+        fk.setInitiallyDeferred(Boolean.TRUE.equals(initiallyDeferred));
+    }
+
+    /**
+     * Returns the table of the schema model.
+     *
+     * @param name the table name in the changelog.
+     * @return the table or {@code null} if the table does not exist.
+     */
+    private Table table(String name) {
+        return schema.getTable(name(name, Table.class));
+    }
+
+    /**
+     * Returns the column of the schema model.
+     *
+     * @param tableName  the table name in the changelog.
+     * @param columnName the column name in the changelog.
+     * @return the column or {@code null} if the table or column does not exist.
+     */
+    private Column column(String tableName, String columnName) {
+        Table table = table(tableName);
+        return table != null ? table.getColumn(name(columnName, Column.class)) : null;
+    }
+
+    /**
+     * Returns the database object name as created by liquibase in the postgresql database.
+     *
+     * @param name the object name in the changelog.
+     * @param type the object type.
+     * @return the database object name.
+     */
+    private String name(String name, Class<? extends DatabaseObject> type) {
+        return name == null ? null : schema.getDatabase().correctObjectName(name.trim(), type);
+    }
+
+    /**
+     * Returns the database column names of the comma separated list.
+     *
+     * @param names the comma separated column names.
+     * @return list of the column names.
+     */
+    private List<String> names(String names) {
+        return Arrays.stream(names.split(",")).map(name -> name(name, Column.class)).toList();
+    }
+}
@@ -0,0 +1,310 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.change.Change;
+import liquibase.change.DbmsTargetedChange;
+import liquibase.change.core.ExecuteShellCommandChange;
+import liquibase.change.core.RawSQLChange;
+import liquibase.change.custom.CustomChangeWrapper;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.RanChangeSet;
+import liquibase.database.Database;
+import liquibase.database.DatabaseList;
+import liquibase.database.ObjectQuotingStrategy;
+import liquibase.exception.LiquibaseException;
+import liquibase.sql.Sql;
+import liquibase.sql.visitor.SqlVisitor;
+import liquibase.sqlgenerator.SqlGeneratorFactory;
+import liquibase.statement.ExecutablePreparedStatement;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.MarkChangeSetRanStatement;
+import liquibase.statement.core.RawParameterizedSqlStatement;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Store of the rendered SQL scripts of the liquibase changesets for the bulk update of the source database.
+ * The script contains the statements of the changes and the {@code DATABASECHANGELOG} inserts of the changesets,
+ * it is keyed by the hash of the pending changesets. Changesets with preconditions, custom or shell changes,
+ * prepared statements or statements outside of the transaction are not supported.
+ */
+public class ChangeLogScripts {
+
+    /**
+     * Script file suffix.
+     */
+    private static final String SUFFIX = ".sql";
+
+    /**
+     * Statement header prefix of the script file, followed by the statement length.
+     */
+    private static final String HEADER = "-- statement ";
+
+    /**
+     * Script directory.
+     */
+    private final Path directory;
+
+    /**
+     * Maximum number of the stored scripts.
+     */
+    private final int maxScripts;
+
+    /**
+     * Default constructor.
+     *
+     * @param directory  the script directory.
+     * @param maxScripts the maximum number of the stored scripts.
+     */
+    public ChangeLogScripts(Path directory, int maxScripts) {
+        this.directory = directory;
+        this.maxScripts = maxScripts;
+    }
+
+    /**
+     * Render the SQL statements of the changesets as the liquibase update would execute them.
+     *
+     * @param changeSets the pending changesets.
+     * @param database   the source database.
+     * @return the SQL statements.
+     * @throws LiquibaseException            if the statements could not be generated.
+     * @throws UnsupportedChangeSetException if one of the changesets could not be rendered.
+     */
+    public static List<String> render(List<ChangeSet> changeSets, Database database)
+            throws LiquibaseException, UnsupportedChangeSetException {
+        List<String> result = new ArrayList<>();
+        List<RanChangeSet> ranChangeSets = database.getRanChangeSetList();
+        ObjectQuotingStrategy quotingStrategy = database.getObjectQuotingStrategy();
+        try {
+            for (ChangeSet changeSet : changeSets) {
+                checkSupported(changeSet);
+                database.setObjectQuotingStrategy(changeSet.getObjectQuotingStrategy());
+                for (Change change : changeSet.getChanges()) {
+                    change.finishInitialization();
+                    if (isSkipped(change, database)) {
+                        continue;
+                    }
+                    if (change instanceof CustomChangeWrapper || change instanceof ExecuteShellCommandChange
+                            || change.generateStatementsVolatile(database)) {
+                        throw new UnsupportedChangeSetException(changeSet, "change " + change.getSerializedObjectName());
+                    }
+                    for (SqlStatement statement : change.generateStatements(database)) {
+                        add(result, statement, changeSet, changeSet.getSqlVisitors(), database);
+                    }
+                }
+                boolean ran = ranChangeSets.stream().anyMatch(item -> item.isSameAs(changeSet));
+                add(result, new MarkChangeSetRanStatement(changeSet, ran ? ChangeSet.ExecType.RERAN : ChangeSet.ExecType.EXECUTED),
+                        changeSet, List.of(), database);
+            }
+        } finally {
+            database.setObjectQuotingStrategy(quotingStrategy);
+        }
+        return result;
+    }
+
+    /**
+     * Read the script of the changesets hash.
+     *
+     * @param hash the hash of the pending changesets.
+     * @return the SQL statements or {@code null} if there is no script for the hash.
+     * @throws IOException if the script could not be read.
+     */
+    public List<String> read(String hash) throws IOException {
+        Path file = directory.resolve(hash + SUFFIX);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith(HEADER)) {
+                    throw new IOException("Invalid script file " + file + ", expected statement header: " + line);
+                }
+                char[] sql = new char[Integer.parseInt(line.substring(HEADER.length()).trim())];
+                int read = 0;
+                while (read < sql.length) {
+                    int count = reader.read(sql, read, sql.length - read);
+                    if (count < 0) {
+                        throw new IOException("Invalid script file " + file + ", unexpected end of file.");
+                    }
+                    read += count;
+                }
+                reader.readLine();
+                result.add(new String(sql));
+            }
+        }
+        // mark the script as recently used
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        return result;
+    }
+
+    /**
+     * Write the script of the changesets hash and remove the least recently used scripts.
+     *
+     * @param hash       the hash of the pending changesets.
+     * @param statements the SQL statements.
+     * @throws IOException if the script could not be written.
+     */
+    public void write(String hash, List<String> statements) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(hash + SUFFIX);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (String sql : statements) {
+                writer.write(HEADER + sql.length());
+                writer.newLine();
+                writer.write(sql);
+                writer.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        prune();
+    }
+
+    /**
+     * Remove the least recently used scripts.
+     *
+     * @throws IOException if the scripts could not be removed.
+     */
+    private void prune() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(ChangeLogScripts::lastModified).reversed())
+                    .collect(Collectors.toList());
+        }
+        for (int i = maxScripts; i < files.size(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    /**
+     * Check if the changeset could be executed as part of the script.
+     *
+     * @param changeSet the changeset.
+     * @throws UnsupportedChangeSetException if the changeset is not supported.
+     */
+    private static void checkSupported(ChangeSet changeSet) throws UnsupportedChangeSetException {
+        if (changeSet.getPreconditions() != null && !changeSet.getPreconditions().getNestedPreconditions().isEmpty()) {
+            throw new UnsupportedChangeSetException(changeSet, "preconditions");
+        }
+        if (!changeSet.isRunInTransaction()) {
+            throw new UnsupportedChangeSetException(changeSet, "runInTransaction=false");
+        }
+        if (Boolean.FALSE.equals(changeSet.getFailOnError())) {
+            throw new UnsupportedChangeSetException(changeSet, "failOnError=false");
+        }
+        if (changeSet.getRunWith() != null && !changeSet.getRunWith().isBlank()) {
+            throw new UnsupportedChangeSetException(changeSet, "runWith");
+        }
+    }
+
+    /**
+     * Check if the liquibase update skips the change for the database.
+     *
+     * @param change   the change.
+     * @param database the source database.
+     * @return {@code true} if the change is skipped.
+     */
+    private static boolean isSkipped(Change change, Database database) {
+        if (change instanceof DbmsTargetedChange targeted && !DatabaseList.definitionMatches(targeted.getDbms(), database, true)) {
+            return true;
+        }
+        return change instanceof RawSQLChange sql && "empty".equalsIgnoreCase(sql.getSql());
+    }
+
+    /**
+     * Add the SQL of the statement with the applied SQL visitors.
+     *
+     * @param result      the SQL statements.
+     * @param statement   the liquibase statement.
+     * @param changeSet   the changeset of the statement.
+     * @param sqlVisitors the SQL visitors of the changeset.
+     * @param database    the source database.
+     * @throws UnsupportedChangeSetException if the statement could not be rendered.
+     */
+    private static void add(List<String> result, SqlStatement statement, ChangeSet changeSet, List<SqlVisitor> sqlVisitors,
+                            Database database) throws UnsupportedChangeSetException {
+        if (statement instanceof ExecutablePreparedStatement || statement instanceof RawParameterizedSqlStatement) {
+            throw new UnsupportedChangeSetException(changeSet, "prepared statement " + statement.getClass().getSimpleName());
+        }
+        SqlGeneratorFactory factory = SqlGeneratorFactory.getInstance();
+        if (statement.skipOnUnsupported() && !factory.supports(statement, database)) {
+            return;
+        }
+        if (statement.continueOnError()) {
+            throw new UnsupportedChangeSetException(changeSet, "continueOnError statement");
+        }
+        Sql[] sqls = factory.generateSql(statement, database);
+        if (sqls == null) {
+            return;
+        }
+        for (Sql sql : sqls) {
+            if (sql == null) {
+                continue;
+            }
+            String value = sql.toSql();
+            for (SqlVisitor visitor : sqlVisitors) {
+                value = visitor.modifySql(value, database);
+            }
+            result.add(value);
+        }
+    }
+
+    /**
+     * Returns the last modified time of the file.
+     *
+     * @param file the file.
+     * @return the last modified time.
+     */
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException ex) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * The changeset could not be rendered to the SQL script, the liquibase update has to execute it.
+     */
+    public static class UnsupportedChangeSetException extends Exception {
+
+        /**
+         * The unsupported changeset.
+         */
+        private final transient ChangeSet changeSet;
+
+        /**
+         * The default constructor.
+         *
+         * @param changeSet the unsupported changeset.
+         * @param reason    the unsupported feature of the changeset.
+         */
+        public UnsupportedChangeSetException(ChangeSet changeSet, String reason) {
+            super(reason + " of " + changeSet);
+            this.changeSet = changeSet;
+        }
+
+        /**
+         * Returns the unsupported changeset.
+         *
+         * @return the changeset.
+         */
+        public ChangeSet getChangeSet() {
+            return changeSet;
+        }
+    }
+}
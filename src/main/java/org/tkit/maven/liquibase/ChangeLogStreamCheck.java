@@ -0,0 +1,276 @@
+package org.tkit.maven.liquibase;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Streaming check of the XML changelog without the liquibase changelog parser.
+ * The changelog is read with StAX, only the events of the current changeSet are kept in memory.
+ */
+public class ChangeLogStreamCheck {
+
+    /**
+     * Result of the check.
+     */
+    public enum Result {
+
+        /**
+         * All changes of the changelog are skipped.
+         */
+        VALID,
+
+        /**
+         * The changelog contains unresolved changes.
+         */
+        INVALID,
+
+        /**
+         * The changelog uses features which need the liquibase parser, for example include or properties.
+         */
+        UNSUPPORTED;
+    }
+
+    /**
+     * Root elements which need the liquibase parser.
+     */
+    private static final Set<String> UNSUPPORTED_ELEMENTS = Set.of("include", "includeAll", "property", "modifyChangeSets");
+
+    /**
+     * Property placeholder prefix.
+     */
+    private static final String PROPERTY_PREFIX = "${";
+
+    /**
+     * ChangeSet element name.
+     */
+    private static final String CHANGE_SET = "changeSet";
+
+    /**
+     * Indentation of the changeSet XML fragment.
+     */
+    private static final String INDENT = "    ";
+
+    /**
+     * Skip rules.
+     */
+    private final SkipRules skip;
+
+    /**
+     * XML input factory.
+     */
+    private final XMLInputFactory inputFactory;
+
+    /**
+     * XML output factory.
+     */
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newFactory();
+
+    /**
+     * Number of the changeSets of the last scan.
+     */
+    private int changeSets;
+
+    /**
+     * Number of the changes of the last scan.
+     */
+    private int changes;
+
+    /**
+     * Number of the skipped changes of the last scan.
+     */
+    private int skippedChanges;
+
+    /**
+     * Default constructor.
+     *
+     * @param skip the skip rules.
+     */
+    public ChangeLogStreamCheck(SkipRules skip) {
+        this.skip = skip;
+        inputFactory = XMLInputFactory.newFactory();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    /**
+     * Check the changelog file for unresolved changes.
+     *
+     * @param file the changelog file.
+     * @return the result of the check.
+     * @throws IOException        if the file could not be read.
+     * @throws XMLStreamException if the file is not a valid XML document.
+     */
+    public Result check(Path file) throws IOException, XMLStreamException {
+        return scan(file, null);
+    }
+
+    /**
+     * Write all changeSets with unresolved changes to the consumer. Skipped changes are removed from the changeSets.
+     *
+     * @param file     the changelog file.
+     * @param consumer the consumer of the changeSet XML fragments.
+     * @throws IOException        if the file could not be read.
+     * @throws XMLStreamException if the file is not a valid XML document.
+     */
+    public void write(Path file, Consumer<String> consumer) throws IOException, XMLStreamException {
+        scan(file, consumer);
+    }
+
+    /**
+     * Returns the number of the changeSets read by the last check or write.
+     *
+     * @return the number of the changeSets.
+     */
+    public int getChangeSets() {
+        return changeSets;
+    }
+
+    /**
+     * Returns the number of the changes read by the last check or write.
+     *
+     * @return the number of the changes.
+     */
+    public int getChanges() {
+        return changes;
+    }
+
+    /**
+     * Returns the number of the skipped changes of the last check or write.
+     *
+     * @return the number of the skipped changes.
+     */
+    public int getSkippedChanges() {
+        return skippedChanges;
+    }
+
+    /**
+     * Scan the changelog file.
+     *
+     * @param file     the changelog file.
+     * @param consumer the consumer of the unresolved changeSets or {@code null} to stop on the first unresolved change.
+     * @return the result of the scan.
+     * @throws IOException        if the file could not be read.
+     * @throws XMLStreamException if the file is not a valid XML document.
+     */
+    private Result scan(Path file, Consumer<String> consumer) throws IOException, XMLStreamException {
+        changeSets = 0;
+        changes = 0;
+        skippedChanges = 0;
+        Result result = Result.VALID;
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+            try {
+                // move to the databaseChangeLog element
+                if (ChangeLogElement.nextElement(reader) != XMLStreamConstants.START_ELEMENT) {
+                    return Result.VALID;
+                }
+                while (ChangeLogElement.nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (UNSUPPORTED_ELEMENTS.contains(name)) {
+                        return Result.UNSUPPORTED;
+                    }
+                    if (!CHANGE_SET.equals(name)) {
+                        ChangeLogElement.skipElement(reader);
+                        continue;
+                    }
+                    changeSets++;
+                    Result changeSet = scanChangeSet(reader, consumer);
+                    if (changeSet == Result.UNSUPPORTED) {
+                        return Result.UNSUPPORTED;
+                    }
+                    if (changeSet == Result.INVALID) {
+                        if (consumer == null) {
+                            return Result.INVALID;
+                        }
+                        result = Result.INVALID;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Scan the changeSet element. The reader is positioned on the start element of the changeSet.
+     *
+     * @param reader   the XML stream reader.
+     * @param consumer the consumer of the unresolved changeSet or {@code null}.
+     * @return the result of the changeSet.
+     * @throws XMLStreamException if the file is not a valid XML document.
+     */
+    private Result scanChangeSet(XMLStreamReader reader, Consumer<String> consumer) throws XMLStreamException {
+        Map<String, String> attributes = ChangeLogElement.attributes(reader);
+        StringWriter out = null;
+        XMLStreamWriter writer = null;
+        while (ChangeLogElement.nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            if (ChangeLogElement.CHANGE_SET_METADATA.contains(name)) {
+                ChangeLogElement.skipElement(reader);
+                continue;
+            }
+            changes++;
+            boolean rules = skip.hasRules(name);
+            if (!rules && consumer == null) {
+                return Result.INVALID;
+            }
+            if (rules && hasProperties(reader)) {
+                return Result.UNSUPPORTED;
+            }
+            ChangeLogElement change = ChangeLogElement.read(reader);
+            if (rules && skip.skip(name, change.attributes()::get, change.columns())) {
+                skippedChanges++;
+                continue;
+            }
+            if (consumer == null) {
+                return Result.INVALID;
+            }
+            if (writer == null) {
+                out = new StringWriter();
+                writer = outputFactory.createXMLStreamWriter(out);
+                out.write(INDENT);
+                writer.writeStartElement(CHANGE_SET);
+                ChangeLogElement.writeAttributes(writer, attributes);
+            }
+            writer.writeCharacters("\n" + INDENT + INDENT);
+            change.write(writer);
+        }
+        if (writer == null) {
+            return Result.VALID;
+        }
+        writer.writeCharacters("\n" + INDENT);
+        writer.writeEndElement();
+        writer.close();
+        consumer.accept(out.toString());
+        return Result.INVALID;
+    }
+
+    /**
+     * Check if the attributes of the current element contain property placeholders.
+     *
+     * @param reader the XML stream reader.
+     * @return {@code true} if an attribute contains a property placeholder.
+     */
+    private static boolean hasProperties(XMLStreamReader reader) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (reader.getAttributeValue(i).contains(PROPERTY_PREFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
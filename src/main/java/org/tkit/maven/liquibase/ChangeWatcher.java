@@ -0,0 +1,169 @@
+package org.tkit.maven.liquibase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * File watcher of the directory trees. The new subdirectories are registered when they are created,
+ * the deleted roots (for example after {@code mvn clean}) are registered again when they reappear.
+ * The changes are collected until the directories are quiet for the quiet period, so that one compilation
+ * of many classes results in one change set.
+ */
+public class ChangeWatcher implements Closeable {
+
+    /**
+     * Interval of the check for the missing roots in milliseconds.
+     */
+    private static final long ROOT_CHECK_MILLIS = 1000;
+
+    /**
+     * The file watch service.
+     */
+    private final WatchService watchService;
+
+    /**
+     * The watched root directories.
+     */
+    private final List<Path> roots;
+
+    /**
+     * The watched directories by watch key.
+     */
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * Creates the watcher and registers the existing root directories.
+     *
+     * @param roots the root directories.
+     * @throws IOException if the watch service could not be created.
+     */
+    public ChangeWatcher(List<Path> roots) throws IOException {
+        this.roots = roots.stream().map(path -> path.toAbsolutePath().normalize()).distinct().toList();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        registerRoots();
+    }
+
+    /**
+     * Returns the watched root directories.
+     *
+     * @return the root directories.
+     */
+    public List<Path> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Wait for the changes in the watched directories.
+     *
+     * @param quietMillis the quiet period in milliseconds after the last change.
+     * @return the changed files and directories.
+     * @throws IOException          if the new directories could not be registered.
+     * @throws InterruptedException if the thread was interrupted.
+     */
+    public Set<Path> await(long quietMillis) throws IOException, InterruptedException {
+        Set<Path> result = new LinkedHashSet<>();
+        while (result.isEmpty()) {
+            WatchKey key = watchService.poll(ROOT_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+            if (key == null) {
+                result.addAll(registerRoots());
+                continue;
+            }
+            handle(key, result);
+        }
+        WatchKey key;
+        while ((key = watchService.poll(quietMillis, TimeUnit.MILLISECONDS)) != null) {
+            handle(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Collect the events of the watch key.
+     *
+     * @param key    the signalled watch key.
+     * @param result the changed paths.
+     * @throws IOException if the new directories could not be registered.
+     */
+    private void handle(WatchKey key, Set<Path> result) throws IOException {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                result.add(directory);
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            result.add(path);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                register(path);
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    /**
+     * Register the root directories which are not watched.
+     *
+     * @return the registered root directories.
+     * @throws IOException if the directories could not be registered.
+     */
+    private Set<Path> registerRoots() throws IOException {
+        Set<Path> result = new LinkedHashSet<>();
+        for (Path root : roots) {
+            if (Files.isDirectory(root) && !directories.containsValue(root)) {
+                register(root);
+                result.add(root);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Register the directory and all subdirectories.
+     *
+     * @param directory the directory.
+     * @throws IOException if the directories could not be registered.
+     */
+    private void register(Path directory) throws IOException {
+        List<Path> items;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            items = paths.filter(Files::isDirectory).toList();
+        }
+        for (Path item : items) {
+            WatchKey key = item.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            directories.put(key, item);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            watchService.close();
+        } catch (ClosedWatchServiceException ex) {
+            // already closed
+        }
+    }
+}
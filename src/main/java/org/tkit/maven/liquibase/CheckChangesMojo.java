@@ -1,10 +1,9 @@
 package org.tkit.maven.liquibase;
 
 import liquibase.Liquibase;
-import liquibase.change.Change;
-import liquibase.change.core.CreateTableChange;
-import liquibase.change.core.DropTableChange;
+import liquibase.Scope;
 import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
 import liquibase.exception.LiquibaseException;
 import liquibase.serializer.core.xml.XMLChangeLogSerializer;
 import org.apache.maven.execution.MavenSession;
@@ -17,7 +16,9 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.liquibase.maven.plugins.AbstractLiquibaseChangeLogMojo;
+import javax.xml.stream.XMLStreamException;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
@@ -26,6 +27,8 @@ import java.util.*;
  * Check changes mojo
  */
 @Mojo(name = "check", defaultPhase = LifecyclePhase.VALIDATE, threadSafe = true, requiresDependencyResolution = ResolutionScope.COMPILE)
+// the phase timers are closed by try-with-resources and not referenced in the block
+@SuppressWarnings("try")
 public class CheckChangesMojo extends AbstractLiquibaseChangeLogMojo {
 
     /**
@@ -34,6 +37,9 @@ public class CheckChangesMojo extends AbstractLiquibaseChangeLogMojo {
      *      dropTable - table1,table2
      * For example skip create tables:
      *      createTable - table1,table2
+     * The names are matched with the table, column, index, constraint, sequence and view names of the change.
+     * The name could be a glob pattern ({@code tmp_*}), a regular expression ({@code regex:tmp_[0-9]+})
+     * or a column name with the table ({@code table1.column1}).
      */
     @Parameter(name = "skipChanges", property = "liquibase.skipChange")
     protected Map<String,String> skipChanges;
@@ -50,6 +56,36 @@ public class CheckChangesMojo extends AbstractLiquibaseChangeLogMojo {
     @Parameter(name = "helpMessage", property = "liquibase.helpMessage", defaultValue = "To generate a Liquibase changes in the 'target/liquibase-diff-changeLog.xml' file, run: 'mvn clean compile -Pdb-diff'")
     protected String helpMessage;
 
+    /**
+     * Check the XML changelog with the streaming parser before the liquibase changelog parser is used.
+     */
+    @Parameter(name = "streamCheck", property = "liquibase.streamCheck", defaultValue = "true")
+    protected boolean streamCheck;
+
+    /**
+     * Write the phase report with the timing and the counters of the execution.
+     */
+    @Parameter(name = "report", property = "liquibase.report", defaultValue = "true")
+    protected boolean report;
+
+    /**
+     * The phase report file.
+     */
+    @Parameter(name = "reportFile", property = "liquibase.reportFile", defaultValue = "${project.build.directory}/liquibase-check-report.json")
+    protected String reportFile;
+
+    /**
+     * Cache the parsed XML changelog files by the file content and parse the included files of the changelog in parallel.
+     */
+    @Parameter(name = "changeLogCache", property = "liquibase.changeLogCache", defaultValue = "true")
+    protected boolean changeLogCache;
+
+    /**
+     * The cache directory of the parsed XML changelog files.
+     */
+    @Parameter(name = "changeLogCacheDirectory", property = "liquibase.changeLogCacheDirectory", defaultValue = "${settings.localRepository}/.cache/tkit-liquibase/changelogs")
+    protected String changeLogCacheDirectory;
+
     /**
      * Enable liquibase verbose
      */
@@ -73,6 +109,16 @@ public class CheckChangesMojo extends AbstractLiquibaseChangeLogMojo {
      */
     private static final String LOG_LINE = "--------------------------------------------------------------";
 
+    /**
+     * Compiled skip rules.
+     */
+    private SkipRules skip;
+
+    /**
+     * Phase report of the execution.
+     */
+    private PhaseReport phaseReport;
+
 
     /**
      * {@inheritDoc}
@@ -81,11 +127,36 @@ public class CheckChangesMojo extends AbstractLiquibaseChangeLogMojo {
     public void execute() throws MojoExecutionException, MojoFailureException {
         logLevel = "INFO";
 
-        if (!Files.exists(Path.of(liquibaseChangeLogFile))) {
+        phaseReport = new PhaseReport("check", currentProject.getId());
+        try {
+            executeCheck();
+        } finally {
+            writeReport();
+        }
+    }
+
+    /**
+     * Execute the check of the changelog.
+     *
+     * @throws MojoExecutionException if the method fails.
+     * @throws MojoFailureException   if the method fails.
+     */
+    private void executeCheck() throws MojoExecutionException, MojoFailureException {
+        Path file = currentProject.getBasedir().toPath().resolve(liquibaseChangeLogFile);
+        if (!Files.exists(file)) {
             getLog().info("Liquibase change log file does not exists. File: " + liquibaseChangeLogFile);
             return;
         }
 
+        skip = SkipRules.compile(skipChanges);
+        if (!skip.isEmpty()) {
+            getLog().info("Skip changes: " + skip);
+        }
+
+        if (streamCheck && liquibaseChangeLogFile.endsWith(".xml") && streamCheck(file)) {
+            return;
+        }
+
         changeLogFile = liquibaseChangeLogFile;
         project = currentProject;
         session = currentSession;
@@ -97,80 +168,81 @@ public class CheckChangesMojo extends AbstractLiquibaseChangeLogMojo {
         url = "offline:postgresql";
 
         getLog().info("Start liquibase changes check.");
-        super.execute();
+        if (changeLogCache) {
+            executeCached(file);
+        } else {
+            try (PhaseReport.Phase ignored = phaseReport.start("liquibase-check")) {
+                super.execute();
+            }
+        }
         getLog().info("Finished liquibase changes check.");
 
     }
 
 
     /**
-     * {@inheritDoc}
+     * Execute the liquibase check with the changelog parse cache in the liquibase scope.
+     * The XML changelog with all included files is parsed in parallel before the check.
+     *
+     * @param file the changelog file.
+     * @throws MojoExecutionException if the method fails.
+     * @throws MojoFailureException   if the method fails.
      */
-    @Override
-    protected void performLiquibaseTask(Liquibase liquibase) throws LiquibaseException {
-
-        // generate skip changes
-        Map<String, Set<String>> skip = new HashMap<>();
-        for (Map.Entry<String, String> entry : skipChanges.entrySet()) {
-            String[] tmp = entry.getValue().split(",");
-            if (tmp.length > 0 ) {
-                skip.put(entry.getKey(), Set.of(tmp));
+    private void executeCached(Path file) throws MojoExecutionException, MojoFailureException {
+        // the generated changelog of the diff changes with every build, keep it out of the shared disk cache
+        boolean generated = file.toAbsolutePath().normalize()
+                .startsWith(Path.of(currentProject.getBuild().getDirectory()).toAbsolutePath().normalize());
+        ChangeLogParseCache cache = new ChangeLogParseCache(generated ? null : Path.of(changeLogCacheDirectory));
+        if (liquibaseChangeLogFile.endsWith(".xml")) {
+            try (PhaseReport.Phase ignored = phaseReport.start("changelog-prefetch")) {
+                phaseReport.count("changeLogFiles", cache.prefetch(file, ChangeLogParseCache.roots(currentProject),
+                        Runtime.getRuntime().availableProcessors()).size());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException("Parsing of the changelog was interrupted.", ex);
             }
         }
-
-        if (!skip.isEmpty()) {
-            getLog().info("Skip changes: " + skip);
-        }
-
-        boolean valid = true;
-        var changeLog = liquibase.getDatabaseChangeLog();
-
-        List<ChangeSet> removeSet = new ArrayList<>();
-        for (ChangeSet item : changeLog.getChangeSets()) {
-
-            List<Change> remove = new ArrayList<>();
-            for ( var change : item.getChanges()) {
-
-                // skip dropTable
-                if (change instanceof DropTableChange dt) {
-                    var name = change.getSerializedObjectName();
-                    Set<String> exclude = skip.get(name);
-                    if (exclude != null && exclude.contains(dt.getTableName())) {
-                        remove.add(change);
-                        continue;
-                    }
-                }
-                // skip createTable
-                if (change instanceof CreateTableChange ct) {
-                    var name = change.getSerializedObjectName();
-                    Set<String> exclude = skip.get(name);
-                    if (exclude != null && exclude.contains(ct.getTableName())) {
-                        remove.add(change);
-                        continue;
-                    }
-                }
-
-                valid = false;
+        try (PhaseReport.Phase ignored = phaseReport.start("liquibase-check")) {
+            Scope.child(Map.of(ChangeLogParseCache.SCOPE_KEY, cache), () -> super.execute());
+        } catch (MojoExecutionException | MojoFailureException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new MojoExecutionException(ex.getMessage(), ex);
+        } finally {
+            phaseReport.count("changeLogFilesParsed", cache.getParsed());
+            phaseReport.count("changeLogFilesCached", cache.getCached());
+            try {
+                cache.prune();
+            } catch (IOException ex) {
+                getLog().warn("Error removing the changelog cache files. Error: " + ex.getMessage());
             }
+        }
+    }
 
-            // remove all skip changes from changeSet
-            if (!remove.isEmpty()) {
-                item.removeAllChanges(remove);
-            }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void performLiquibaseTask(Liquibase liquibase) throws LiquibaseException {
 
-            // check if changeSet is empty, add to remove
-            if (item.getChanges().isEmpty()) {
-                removeSet.add(item);
-            }
+        DatabaseChangeLog changeLog;
+        try (PhaseReport.Phase ignored = phaseReport.start("changelog-parse")) {
+            changeLog = liquibase.getDatabaseChangeLog();
         }
 
-        // remove empty changeSets
-        if (!removeSet.isEmpty()) {
-            changeLog.getChangeSets().removeAll(removeSet);
+        int changeSetCount = changeLog.getChangeSets().size();
+        int changes = countChanges(changeLog.getChangeSets());
+        List<ChangeSet> changeSets;
+        try (PhaseReport.Phase ignored = phaseReport.start("filter")) {
+            changeSets = skip.unresolved(changeLog.getChangeSets());
         }
+        int unresolved = countChanges(changeSets);
+        phaseReport.count("changeSets", changeSetCount);
+        phaseReport.count("changes", changes);
+        phaseReport.count("changesSkipped", changes - unresolved);
+        phaseReport.count("changesUnresolved", unresolved);
 
-
-        if (valid) {
+        if (changeSets.isEmpty()) {
             getLog().info("No unresolved liquibase changes found.");
             return;
         }
@@ -178,7 +250,9 @@ public class CheckChangesMojo extends AbstractLiquibaseChangeLogMojo {
         // found unresolved changes in the liquibase file
         XMLChangeLogSerializer serializer = new XMLChangeLogSerializer();
         try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            serializer.write(changeLog.getChangeSets(), out);
+            try (PhaseReport.Phase ignored = phaseReport.start("serialization")) {
+                serializer.write(changeSets, out);
+            }
             getLog().info(LOG_LINE);
             getLog().info("Changes to resolve!");
             getLog().info(LOG_LINE);
@@ -192,4 +266,86 @@ public class CheckChangesMojo extends AbstractLiquibaseChangeLogMojo {
         throw new LiquibaseException("Check report status: INVALID");
 
     }
+
+    /**
+     * Returns the number of the changes of the changeSets.
+     *
+     * @param changeSets the changeSets.
+     * @return the number of the changes.
+     */
+    private static int countChanges(List<ChangeSet> changeSets) {
+        return changeSets.stream().mapToInt(item -> item.getChanges().size()).sum();
+    }
+
+    /**
+     * Check the changelog with the streaming XML parser. The unresolved changeSets are written
+     * to the console one by one without loading the whole changelog.
+     *
+     * @param file the changelog file.
+     * @return {@code true} if the changelog was checked, {@code false} if the changelog needs the liquibase parser.
+     * @throws MojoExecutionException if the changelog contains unresolved changes.
+     */
+    private boolean streamCheck(Path file) throws MojoExecutionException {
+        ChangeLogStreamCheck check = new ChangeLogStreamCheck(skip);
+        try {
+            ChangeLogStreamCheck.Result result;
+            try (PhaseReport.Phase ignored = phaseReport.start("stream-check")) {
+                result = check.check(file);
+            }
+            if (result == ChangeLogStreamCheck.Result.UNSUPPORTED) {
+                getLog().info("Changelog requires the liquibase parser. File: " + file);
+                return false;
+            }
+            if (result == ChangeLogStreamCheck.Result.VALID) {
+                countStreamCheck(check, 0);
+                getLog().info("No unresolved liquibase changes found.");
+                return true;
+            }
+
+            // found unresolved changes in the liquibase file
+            getLog().info(LOG_LINE);
+            getLog().info("Changes to resolve!");
+            getLog().info(LOG_LINE);
+            try (PhaseReport.Phase ignored = phaseReport.start("stream-report")) {
+                check.write(file, getLog()::error);
+            }
+            countStreamCheck(check, check.getChanges() - check.getSkippedChanges());
+            getLog().info(LOG_LINE);
+            getLog().info(helpMessage);
+            getLog().info(LOG_LINE);
+        } catch (IOException | XMLStreamException ex) {
+            getLog().warn("Streaming check failed, using the liquibase parser. Error: " + ex.getMessage());
+            return false;
+        }
+        throw new MojoExecutionException("Check report status: INVALID");
+    }
+
+    /**
+     * Add the counters of the streaming check to the report.
+     *
+     * @param check      the streaming check.
+     * @param unresolved the number of the unresolved changes.
+     */
+    private void countStreamCheck(ChangeLogStreamCheck check, int unresolved) {
+        phaseReport.count("changeSets", check.getChangeSets());
+        phaseReport.count("changes", check.getChanges());
+        phaseReport.count("changesSkipped", check.getSkippedChanges());
+        phaseReport.count("changesUnresolved", unresolved);
+    }
+
+    /**
+     * Write the phase report to the report file.
+     */
+    private void writeReport() {
+        getLog().info("Phases: " + phaseReport.summary());
+        if (!report) {
+            return;
+        }
+        try {
+            phaseReport.write(Path.of(reportFile));
+            getLog().info("Phase report: " + reportFile);
+        } catch (IOException ex) {
+            getLog().warn("Error writing the phase report " + reportFile, ex);
+        }
+    }
 }
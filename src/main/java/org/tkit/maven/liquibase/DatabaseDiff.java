@@ -0,0 +1,140 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.CatalogAndSchema;
+import liquibase.command.CommandArgumentDefinition;
+import liquibase.command.core.helpers.AbstractChangelogCommandStep;
+import liquibase.database.Database;
+import liquibase.database.ObjectQuotingStrategy;
+import liquibase.diff.DiffResult;
+import liquibase.diff.compare.CompareControl;
+import liquibase.diff.output.DiffOutputControl;
+import liquibase.diff.output.ObjectChangeFilter;
+import liquibase.diff.output.changelog.DiffToChangeLog;
+import liquibase.exception.DatabaseException;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.InvalidExampleException;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Schema;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+
+/**
+ * Steps of the liquibase {@code diffChangelog} command: the snapshots of the databases and the changelog
+ * of the differences. The diff goal executes the steps as separate phases.
+ */
+public class DatabaseDiff {
+
+    /**
+     * Private constructor.
+     */
+    private DatabaseDiff() {
+    }
+
+    /**
+     * Create the snapshot of the compared schemas of the database.
+     *
+     * @param database           the database.
+     * @param comparisons        the schema comparisons.
+     * @param reference          {@code true} for the reference schemas, {@code false} for the comparison schemas.
+     * @param objectChangeFilter the object filter or {@code null}.
+     * @param snapshotTypes      the object types, all types if empty.
+     * @return the database snapshot.
+     * @throws DatabaseException       if the snapshot failed.
+     * @throws InvalidExampleException if the snapshot failed.
+     */
+    public static DatabaseSnapshot snapshot(Database database, CompareControl.SchemaComparison[] comparisons, boolean reference,
+                                            ObjectChangeFilter objectChangeFilter, Class<? extends DatabaseObject>[] snapshotTypes)
+            throws DatabaseException, InvalidExampleException {
+        CatalogAndSchema[] items = new CatalogAndSchema[comparisons.length];
+        for (int i = 0; i < comparisons.length; i++) {
+            String schemaName = (reference ? comparisons[i].getReferenceSchema() : comparisons[i].getComparisonSchema()).getSchemaName();
+            items[i] = database.supports(Schema.class) ? new CatalogAndSchema(database.getDefaultCatalogName(), schemaName)
+                    : new CatalogAndSchema(schemaName, schemaName);
+        }
+        ObjectQuotingStrategy quotingStrategy = database.getObjectQuotingStrategy();
+        try {
+            database.setObjectQuotingStrategy(ObjectQuotingStrategy.QUOTE_ALL_OBJECTS);
+            DatabaseSnapshot snapshot = SnapshotGeneratorFactory.getInstance()
+                    .createSnapshot(items, database, new SnapshotControl(database, objectChangeFilter, snapshotTypes));
+            snapshot.setSchemaComparisons(comparisons);
+            return snapshot;
+        } finally {
+            database.setObjectQuotingStrategy(quotingStrategy);
+        }
+    }
+
+    /**
+     * Returns the output control of the diff changelog with the schemas of the comparisons.
+     *
+     * @param comparisons       the schema comparisons.
+     * @param includeCatalog    {@code true} to write the catalog names.
+     * @param includeSchema     {@code true} to write the schema names.
+     * @param includeTablespace {@code true} to write the tablespace names.
+     * @return the output control.
+     */
+    public static DiffOutputControl outputControl(CompareControl.SchemaComparison[] comparisons, boolean includeCatalog,
+                                                  boolean includeSchema, boolean includeTablespace) {
+        DiffOutputControl result = new DiffOutputControl(includeCatalog, includeSchema, includeTablespace, comparisons);
+        for (CompareControl.SchemaComparison comparison : comparisons) {
+            result.addIncludedSchema(comparison.getReferenceSchema());
+            result.addIncludedSchema(comparison.getComparisonSchema());
+        }
+        return result;
+    }
+
+    /**
+     * Write the changelog of the differences to the file.
+     *
+     * @param diffResult           the diff result.
+     * @param diffOutputControl    the output control.
+     * @param referenceDatabase    the reference database of the diff.
+     * @param author               the changeset author.
+     * @param runOnChangeTypes     the comma separated change types with {@code runOnChange}, the default if not set.
+     * @param replaceIfExistsTypes the comma separated change types with {@code replaceIfExists}, the default if not set.
+     * @param changeLogFile        the changelog file.
+     * @throws DatabaseException            if the changelog could not be written.
+     * @throws IOException                  if the changelog could not be written.
+     * @throws ParserConfigurationException if the changelog could not be written.
+     */
+    public static void write(DiffResult diffResult, DiffOutputControl diffOutputControl, Database referenceDatabase, String author,
+                             String runOnChangeTypes, String replaceIfExistsTypes, String changeLogFile)
+            throws DatabaseException, IOException, ParserConfigurationException {
+        referenceDatabase.setOutputDefaultSchema(diffOutputControl.getIncludeSchema());
+        ObjectQuotingStrategy quotingStrategy = referenceDatabase.getObjectQuotingStrategy();
+        try {
+            referenceDatabase.setObjectQuotingStrategy(ObjectQuotingStrategy.QUOTE_ALL_OBJECTS);
+            DiffToChangeLog changeLogWriter = new DiffToChangeLog(diffResult, diffOutputControl);
+            changeLogWriter.setChangeSetAuthor(author);
+            changeLogWriter.setChangeSetRunOnChangeTypes(changeTypes(runOnChangeTypes, AbstractChangelogCommandStep.RUN_ON_CHANGE_TYPES_ARG));
+            changeLogWriter.setChangeReplaceIfExistsTypes(changeTypes(replaceIfExistsTypes, AbstractChangelogCommandStep.REPLACE_IF_EXISTS_TYPES_ARG));
+            changeLogWriter.print(changeLogFile);
+        } finally {
+            referenceDatabase.setObjectQuotingStrategy(quotingStrategy);
+        }
+    }
+
+    /**
+     * Returns the value without the leading and trailing whitespace or {@code null} if the value is blank.
+     *
+     * @param value the value.
+     * @return the trimmed value or {@code null}.
+     */
+    public static String trimToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * Returns the change types of the changelog writer, the default value of the argument if not set.
+     *
+     * @param value    the comma separated change types.
+     * @param argument the command argument with the default value.
+     * @return the change types.
+     */
+    private static String[] changeTypes(String value, CommandArgumentDefinition<String> argument) {
+        String types = trimToNull(value) != null ? value : argument.getDefaultValue();
+        return types.split("\\s*,\\s*");
+    }
+}
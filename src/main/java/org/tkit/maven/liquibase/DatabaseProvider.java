@@ -0,0 +1,157 @@
+package org.tkit.maven.liquibase;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Database provider for the source and target database of the diff.
+ */
+public interface DatabaseProvider {
+
+    /**
+     * Prepare the environment of the database provider before the databases are started.
+     *
+     * @throws Exception if the environment is not available.
+     */
+    default void prepare() throws Exception {
+    }
+
+    /**
+     * Start the database.
+     *
+     * @throws Exception if the database could not be started.
+     */
+    void start() throws Exception;
+
+    /**
+     * Stop the database.
+     */
+    void stop();
+
+    /**
+     * Returns the JDBC URL of the database.
+     *
+     * @return the JDBC URL.
+     */
+    String getJdbcUrl();
+
+    /**
+     * Returns the database username.
+     *
+     * @return the username.
+     */
+    String getUsername();
+
+    /**
+     * Returns the database password.
+     *
+     * @return the password.
+     */
+    String getPassword();
+
+    /**
+     * Returns the JDBC URL of the database with the name on the same server.
+     *
+     * @param database the database name.
+     * @return the JDBC URL.
+     */
+    String getJdbcUrl(String database);
+
+    /**
+     * Create new database on the running server.
+     *
+     * @param database the database name.
+     * @throws SQLException if the database could not be created.
+     */
+    default void createDatabase(String database) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(getJdbcUrl(), getUsername(), getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE " + quote(database));
+        }
+    }
+
+    /**
+     * Create new schema in the database on the running server.
+     *
+     * @param database the database name.
+     * @param schema   the schema name.
+     * @throws SQLException if the schema could not be created.
+     */
+    default void createSchema(String database, String schema) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(getJdbcUrl(database), getUsername(), getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS " + quote(schema));
+        }
+    }
+
+    /**
+     * Drop the database on the running server. Open connections to the database are terminated.
+     *
+     * @param database the database name.
+     * @throws SQLException if the database could not be dropped.
+     */
+    default void dropDatabase(String database) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(getJdbcUrl(), getUsername(), getPassword())) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE datname = ? AND pid <> pg_backend_pid()")) {
+                statement.setString(1, database);
+                statement.execute();
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP DATABASE IF EXISTS " + quote(database));
+            }
+        }
+    }
+
+    /**
+     * Returns the quoted SQL identifier. The embedded quotes of the name are doubled.
+     *
+     * @param name the database or schema name.
+     * @return the quoted identifier.
+     */
+    static String quote(String name) {
+        return '"' + name.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Returns the name of the default database.
+     *
+     * @return the database name.
+     */
+    String getDatabaseName();
+
+    /**
+     * Returns {@code true} if the provider supports dump and restore of the database.
+     *
+     * @return {@code true} if the dump and restore is supported.
+     */
+    default boolean isDumpSupported() {
+        return false;
+    }
+
+    /**
+     * Dump the database to the file.
+     *
+     * @param database the database name.
+     * @param file     the dump file.
+     * @throws Exception if the dump failed.
+     */
+    default void dump(String database, Path file) throws Exception {
+        throw new UnsupportedOperationException("Database dump is not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Restore the database from the dump file.
+     *
+     * @param database the database name.
+     * @param file     the dump file.
+     * @throws Exception if the restore failed.
+     */
+    default void restore(String database, Path file) throws Exception {
+        throw new UnsupportedOperationException("Database restore is not supported by " + getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,56 @@
+package org.tkit.maven.liquibase;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Supported database providers.
+ */
+public enum DatabaseProviderType {
+
+    /**
+     * Postgres docker container started by testcontainers.
+     */
+    TESTCONTAINERS {
+        @Override
+        public DatabaseProvider create(String postgresVersion) {
+            return new TestcontainersDatabaseProvider(postgresVersion);
+        }
+    },
+
+    /**
+     * Embedded postgres binaries, no docker daemon required.
+     */
+    EMBEDDED {
+        @Override
+        public DatabaseProvider create(String postgresVersion) {
+            return new EmbeddedDatabaseProvider();
+        }
+    };
+
+    /**
+     * Create new database provider.
+     *
+     * @param postgresVersion the postgres version.
+     * @return the database provider.
+     */
+    public abstract DatabaseProvider create(String postgresVersion);
+
+    /**
+     * Find the database provider type for the name.
+     *
+     * @param name the name of the provider.
+     * @return the corresponding database provider type.
+     * @throws MojoExecutionException if the provider type does not exist.
+     */
+    public static DatabaseProviderType of(String name) throws MojoExecutionException {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new MojoExecutionException("Unknown database provider '" + name + "'. Supported values: "
+                    + Arrays.toString(values()).toLowerCase(Locale.ROOT), ex);
+        }
+    }
+}
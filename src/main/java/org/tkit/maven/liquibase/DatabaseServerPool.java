@@ -0,0 +1,155 @@
+package org.tkit.maven.liquibase;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of the database servers shared by all modules of the maven build.
+ * The server is started on the first request and stopped at the end of the maven session
+ * by the {@link DatabaseServerPoolLifecycle}. Without the lifecycle participant the servers
+ * are stopped by the testcontainers and embedded postgres cleanup at the end of the JVM.
+ */
+public final class DatabaseServerPool implements AutoCloseable {
+
+    /**
+     * Session data key of the resources to close at the end of the session.
+     * The plugin and extension class realms are different, the resources are stored as {@link AutoCloseable}.
+     */
+    static final String SESSION_CLOSEABLES = DatabaseServerPool.class.getName() + ".closeables";
+
+    /**
+     * Pool instance of the build.
+     */
+    private static final DatabaseServerPool INSTANCE = new DatabaseServerPool();
+
+    /**
+     * Servers by the provider type and postgres version.
+     */
+    private final Map<String, Server> servers = new ConcurrentHashMap<>();
+
+    /**
+     * Counter of the database names.
+     */
+    private final AtomicInteger counter = new AtomicInteger();
+
+    /**
+     * Default constructor.
+     */
+    private DatabaseServerPool() {
+    }
+
+    /**
+     * Returns the pool instance.
+     *
+     * @return the pool instance.
+     */
+    public static DatabaseServerPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the running database server. The server is started on the first call.
+     *
+     * @param session         the maven session.
+     * @param type            the database provider type.
+     * @param postgresVersion the postgres version.
+     * @return the running database server.
+     * @throws Exception if the database server could not be started.
+     */
+    public DatabaseProvider acquire(MavenSession session, DatabaseProviderType type, String postgresVersion) throws Exception {
+        Server server = servers.computeIfAbsent(type + ":" + postgresVersion, k -> new Server(type.create(postgresVersion)));
+        synchronized (server) {
+            if (!server.started) {
+                closeables(session).add(this);
+                server.provider.prepare();
+                server.provider.start();
+                server.started = true;
+            }
+        }
+        return server.provider;
+    }
+
+    /**
+     * Returns a new database name which is unique in the build.
+     *
+     * @param prefix the database name prefix.
+     * @return the database name.
+     */
+    public String databaseName(String prefix) {
+        return prefix + "_" + counter.incrementAndGet();
+    }
+
+    /**
+     * Stop all database servers of the pool.
+     */
+    public synchronized void stop() {
+        List<Server> items = new ArrayList<>(servers.values());
+        servers.clear();
+        items.parallelStream().forEach(server -> {
+            synchronized (server) {
+                if (server.started) {
+                    server.provider.stop();
+                    server.started = false;
+                }
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * Returns the resources to close at the end of the maven session.
+     *
+     * @param session the maven session.
+     * @return the queue of the resources.
+     */
+    @SuppressWarnings("unchecked")
+    static Queue<AutoCloseable> closeables(MavenSession session) {
+        SessionData data = session.getRepositorySession().getData();
+        Object result = data.get(SESSION_CLOSEABLES);
+        if (result == null) {
+            data.set(SESSION_CLOSEABLES, null, new ConcurrentLinkedQueue<AutoCloseable>());
+            result = data.get(SESSION_CLOSEABLES);
+        }
+        return (Queue<AutoCloseable>) result;
+    }
+
+    /**
+     * Database server of the pool.
+     */
+    private static class Server {
+
+        /**
+         * Database provider.
+         */
+        private final DatabaseProvider provider;
+
+        /**
+         * Server started flag.
+         */
+        private boolean started;
+
+        /**
+         * Default constructor.
+         *
+         * @param provider the database provider.
+         */
+        Server(DatabaseProvider provider) {
+            this.provider = provider;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.tkit.maven.liquibase;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.execution.MavenSession;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Queue;
+
+/**
+ * Stops the shared database servers at the end of the maven session.
+ * Active when the plugin is declared with {@code <extensions>true</extensions>}.
+ */
+@Named("tkit-liquibase-pool")
+@Singleton
+public class DatabaseServerPoolLifecycle extends AbstractMavenLifecycleParticipant {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseServerPoolLifecycle.class);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterSessionEnd(MavenSession session) {
+        Queue<AutoCloseable> closeables = DatabaseServerPool.closeables(session);
+        AutoCloseable item;
+        while ((item = closeables.poll()) != null) {
+            try {
+                item.close();
+            } catch (Exception ex) {
+                logger.warn("Error stopping the shared database server.", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.diff.DiffResult;
+import liquibase.diff.output.DiffOutputControl;
+import liquibase.diff.output.changelog.ChangeGenerator;
+import liquibase.diff.output.changelog.ChangedObjectChangeGenerator;
+import liquibase.diff.output.changelog.DiffToChangeLog;
+import liquibase.diff.output.changelog.MissingObjectChangeGenerator;
+import liquibase.diff.output.changelog.UnexpectedObjectChangeGenerator;
+import liquibase.structure.DatabaseObject;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Merge of the incremental diff output into the output of the last diff. The changeSets of the last diff
+ * are kept if none of their objects was compared by the incremental diff, the changeSets of the incremental
+ * diff replace the others. Both lists keep their order and are merged by the section (missing, unexpected,
+ * changed objects) and the object type order of the liquibase diff changelog.
+ */
+public class DiffChangeLogMerge {
+
+    /**
+     * ChangeSet element name.
+     */
+    private static final String CHANGE_SET = "changeSet";
+
+    /**
+     * Root element name.
+     */
+    private static final String DATABASE_CHANGE_LOG = "<databaseChangeLog";
+
+    /**
+     * Indentation of the changeSet XML fragment.
+     */
+    private static final String INDENT = "    ";
+
+    /**
+     * Object type of the changes of the missing objects.
+     */
+    private static final Map<String, String> MISSING = Map.ofEntries(
+            Map.entry("createSequence", "Sequence"),
+            Map.entry("createTable", "Table"),
+            Map.entry("addColumn", "Column"),
+            Map.entry("addPrimaryKey", "PrimaryKey"),
+            Map.entry("addUniqueConstraint", "UniqueConstraint"),
+            Map.entry("createIndex", "Index"),
+            Map.entry("addForeignKeyConstraint", "ForeignKey"),
+            Map.entry("createView", "View"),
+            Map.entry("insert", "Data"),
+            Map.entry("loadData", "Data"));
+
+    /**
+     * Object type of the changes of the unexpected objects.
+     */
+    private static final Map<String, String> UNEXPECTED = Map.of(
+            "dropSequence", "Sequence",
+            "dropTable", "Table",
+            "dropColumn", "Column",
+            "dropPrimaryKey", "PrimaryKey",
+            "dropUniqueConstraint", "UniqueConstraint",
+            "dropIndex", "Index",
+            "dropView", "View");
+
+    /**
+     * Object type of the changes of the changed objects.
+     */
+    private static final Map<String, String> CHANGED = Map.of(
+            "modifyDataType", "Column",
+            "addNotNullConstraint", "Column",
+            "dropNotNullConstraint", "Column",
+            "addDefaultValue", "Column",
+            "dropDefaultValue", "Column",
+            "setColumnRemarks", "Column",
+            "addAutoIncrement", "Column",
+            "alterSequence", "Sequence",
+            "setTableRemarks", "Table");
+
+    /**
+     * Foreign key drops are moved to the top of the diff changelog.
+     */
+    private static final String DROP_FOREIGN_KEY = "dropForeignKeyConstraint";
+
+    /**
+     * Rank of the changes by the change name.
+     */
+    private final Map<String, Integer> ranks;
+
+    /**
+     * XML input factory.
+     */
+    private final XMLInputFactory inputFactory;
+
+    /**
+     * XML output factory.
+     */
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newFactory();
+
+    /**
+     * Number of the kept changeSets of the last merge.
+     */
+    private int keptChangeSets;
+
+    /**
+     * Creates the merge with the object type order of the diff result.
+     *
+     * @param diffResult        the diff result of the incremental diff.
+     * @param diffOutputControl the output control of the diff.
+     */
+    public DiffChangeLogMerge(DiffResult diffResult, DiffOutputControl diffOutputControl) {
+        OrderedTypes types = new OrderedTypes(diffResult, diffOutputControl);
+        ranks = new HashMap<>();
+        ranks.put(DROP_FOREIGN_KEY, -1);
+        rank(0, types.types(MissingObjectChangeGenerator.class), MISSING);
+        rank(1, types.types(UnexpectedObjectChangeGenerator.class), UNEXPECTED);
+        rank(2, types.types(ChangedObjectChangeGenerator.class), CHANGED);
+        inputFactory = XMLInputFactory.newFactory();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    /**
+     * Add the ranks of the changes of the section.
+     *
+     * @param section the section of the diff changelog.
+     * @param types   the ordered object types of the section.
+     * @param changes the object type by the change name.
+     */
+    private void rank(int section, List<Class<? extends DatabaseObject>> types, Map<String, String> changes) {
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            int index = types.size();
+            for (int i = 0; i < types.size(); i++) {
+                if (types.get(i).getSimpleName().equals(change.getValue())) {
+                    index = i;
+                    break;
+                }
+            }
+            ranks.putIfAbsent(change.getKey(), section * 1000 + index);
+        }
+    }
+
+    /**
+     * Merge the changeSets of the last diff output and of the incremental diff output into the output file.
+     * The output file is deleted if there are no changeSets.
+     *
+     * @param previous the output of the last diff.
+     * @param current  the output of the incremental diff, the file does not exist without differences.
+     * @param output   the merged output file.
+     * @param keep     the predicate of the kept changeSets of the last diff by the changeSet objects.
+     * @throws IOException        if a file could not be read or written.
+     * @throws XMLStreamException if a file is not a valid XML document.
+     */
+    public void merge(Path previous, Path current, Path output, Predicate<Set<String>> keep) throws IOException, XMLStreamException {
+        List<ChangeLogElement> kept = new ArrayList<>();
+        for (ChangeLogElement changeSet : changeSets(previous)) {
+            if (keep.test(objects(changeSet))) {
+                kept.add(changeSet);
+            }
+        }
+        keptChangeSets = kept.size();
+        List<ChangeLogElement> added = changeSets(current);
+
+        String header = header(current);
+        if (header == null) {
+            header = header(previous);
+        }
+        if (header == null || (kept.isEmpty() && added.isEmpty())) {
+            Files.deleteIfExists(output);
+            return;
+        }
+
+        StringBuilder result = new StringBuilder(header);
+        int i = 0;
+        int j = 0;
+        while (i < kept.size() || j < added.size()) {
+            boolean next = j >= added.size() || (i < kept.size() && rank(kept.get(i)) <= rank(added.get(j)));
+            result.append('\n').append(INDENT).append(write(next ? kept.get(i++) : added.get(j++)));
+        }
+        result.append("\n</databaseChangeLog>\n");
+        Files.writeString(output, result, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the number of the kept changeSets of the last merge.
+     *
+     * @return the number of the kept changeSets.
+     */
+    public int getKeptChangeSets() {
+        return keptChangeSets;
+    }
+
+    /**
+     * Returns the objects of the changes of the changeSet.
+     *
+     * @param changeSet the changeSet element.
+     * @return the object names.
+     */
+    private static Set<String> objects(ChangeLogElement changeSet) {
+        Set<String> result = new TreeSet<>();
+        for (ChangeLogElement change : changes(changeSet)) {
+            result.addAll(IncrementalDiff.objects(change.attributes()::get));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the rank of the first change of the changeSet.
+     *
+     * @param changeSet the changeSet element.
+     * @return the rank.
+     */
+    private int rank(ChangeLogElement changeSet) {
+        List<ChangeLogElement> changes = changes(changeSet);
+        return changes.isEmpty() ? Integer.MAX_VALUE : ranks.getOrDefault(changes.get(0).name(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the changes of the changeSet.
+     *
+     * @param changeSet the changeSet element.
+     * @return the change elements.
+     */
+    private static List<ChangeLogElement> changes(ChangeLogElement changeSet) {
+        List<ChangeLogElement> result = new ArrayList<>();
+        for (ChangeLogElement element : changeSet.elements()) {
+            if (!ChangeLogElement.CHANGE_SET_METADATA.contains(element.name())) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read the changeSets of the changelog file.
+     *
+     * @param file the changelog file.
+     * @return the changeSet elements, empty if the file does not exist.
+     * @throws IOException        if the file could not be read.
+     * @throws XMLStreamException if the file is not a valid XML document.
+     */
+    private List<ChangeLogElement> changeSets(Path file) throws IOException, XMLStreamException {
+        List<ChangeLogElement> result = new ArrayList<>();
+        if (!Files.isRegularFile(file)) {
+            return result;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+            try {
+                // move to the databaseChangeLog element
+                if (ChangeLogElement.nextElement(reader) != XMLStreamConstants.START_ELEMENT) {
+                    return result;
+                }
+                while (ChangeLogElement.nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+                    if (CHANGE_SET.equals(reader.getLocalName())) {
+                        result.add(ChangeLogElement.read(reader));
+                    } else {
+                        ChangeLogElement.skipElement(reader);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the text of the changelog file up to the end of the databaseChangeLog start element.
+     *
+     * @param file the changelog file.
+     * @return the header text or {@code null} if the file does not exist.
+     * @throws IOException if the file could not be read.
+     */
+    private static String header(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        String content = Files.readString(file, StandardCharsets.UTF_8);
+        int start = content.indexOf(DATABASE_CHANGE_LOG);
+        int end = start < 0 ? -1 : content.indexOf('>', start);
+        if (end < 0) {
+            return null;
+        }
+        return content.substring(0, content.charAt(end - 1) == '/' ? end - 1 : end) + ">";
+    }
+
+    /**
+     * Write the changeSet element.
+     *
+     * @param changeSet the changeSet element.
+     * @return the XML fragment of the changeSet.
+     * @throws XMLStreamException if the element could not be written.
+     */
+    private String write(ChangeLogElement changeSet) throws XMLStreamException {
+        StringWriter out = new StringWriter();
+        XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out);
+        changeSet.write(writer);
+        writer.close();
+        return out.toString();
+    }
+
+    /**
+     * Diff changelog with the access to the object type order of the liquibase diff changelog.
+     */
+    private static class OrderedTypes extends DiffToChangeLog {
+
+        /**
+         * Default constructor.
+         *
+         * @param diffResult        the diff result.
+         * @param diffOutputControl the output control.
+         */
+        OrderedTypes(DiffResult diffResult, DiffOutputControl diffOutputControl) {
+            super(diffResult, diffOutputControl);
+        }
+
+        /**
+         * Returns the ordered object types of the change generator.
+         *
+         * @param generatorType the change generator type.
+         * @return the ordered object types.
+         */
+        List<Class<? extends DatabaseObject>> types(Class<? extends ChangeGenerator> generatorType) {
+            return getOrderedOutputTypes(generatorType);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.tkit.maven.liquibase;
+
+import java.util.Set;
+
+/**
+ * State of one diff execution of the project or of a diff unit. The state is created for each execution,
+ * the units executed in parallel do not share it.
+ */
+public class DiffExecution {
+
+    /**
+     * The diff unit of the execution or {@code null} for the project diff.
+     */
+    private final DiffUnit unit;
+
+    /**
+     * Source database provider.
+     */
+    private DatabaseProvider sourceDatabase;
+
+    /**
+     * Source database name.
+     */
+    private String sourceDatabaseName;
+
+    /**
+     * Database objects of the Hibernate mapping if the entity scope is enabled.
+     */
+    private EntityScope scope;
+
+    /**
+     * State of the incremental diff of the Hibernate mapping if the incremental diff is enabled.
+     */
+    private IncrementalDiff incrementalState;
+
+    /**
+     * Objects compared by the incremental diff or {@code null} for the full diff.
+     */
+    private Set<String> incrementalObjects;
+
+    /**
+     * Key of the Hibernate schema cache or {@code null} if the schema is not cached.
+     */
+    private String schemaKey;
+
+    /**
+     * The default constructor.
+     *
+     * @param unit the diff unit or {@code null} for the project diff.
+     */
+    public DiffExecution(DiffUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Gets the diff unit.
+     *
+     * @return the diff unit or {@code null} for the project diff.
+     */
+    public DiffUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * Gets the source database provider.
+     *
+     * @return the source database provider.
+     */
+    public DatabaseProvider getSourceDatabase() {
+        return sourceDatabase;
+    }
+
+    /**
+     * Sets the source database provider.
+     *
+     * @param sourceDatabase the source database provider.
+     */
+    public void setSourceDatabase(DatabaseProvider sourceDatabase) {
+        this.sourceDatabase = sourceDatabase;
+    }
+
+    /**
+     * Gets the source database name.
+     *
+     * @return the source database name.
+     */
+    public String getSourceDatabaseName() {
+        return sourceDatabaseName;
+    }
+
+    /**
+     * Sets the source database name.
+     *
+     * @param sourceDatabaseName the source database name.
+     */
+    public void setSourceDatabaseName(String sourceDatabaseName) {
+        this.sourceDatabaseName = sourceDatabaseName;
+    }
+
+    /**
+     * Gets the entity scope.
+     *
+     * @return the entity scope or {@code null}.
+     */
+    public EntityScope getScope() {
+        return scope;
+    }
+
+    /**
+     * Sets the entity scope.
+     *
+     * @param scope the entity scope.
+     */
+    public void setScope(EntityScope scope) {
+        this.scope = scope;
+    }
+
+    /**
+     * Gets the state of the incremental diff.
+     *
+     * @return the state of the incremental diff or {@code null}.
+     */
+    public IncrementalDiff getIncrementalState() {
+        return incrementalState;
+    }
+
+    /**
+     * Sets the state of the incremental diff.
+     *
+     * @param incrementalState the state of the incremental diff.
+     */
+    public void setIncrementalState(IncrementalDiff incrementalState) {
+        this.incrementalState = incrementalState;
+    }
+
+    /**
+     * Gets the objects compared by the incremental diff.
+     *
+     * @return the objects or {@code null} for the full diff.
+     */
+    public Set<String> getIncrementalObjects() {
+        return incrementalObjects;
+    }
+
+    /**
+     * Sets the objects compared by the incremental diff.
+     *
+     * @param incrementalObjects the objects or {@code null} for the full diff.
+     */
+    public void setIncrementalObjects(Set<String> incrementalObjects) {
+        this.incrementalObjects = incrementalObjects;
+    }
+
+    /**
+     * Gets the key of the Hibernate schema cache.
+     *
+     * @return the key or {@code null} if the schema is not cached.
+     */
+    public String getSchemaKey() {
+        return schemaKey;
+    }
+
+    /**
+     * Sets the key of the Hibernate schema cache.
+     *
+     * @param schemaKey the key or {@code null} if the schema is not cached.
+     */
+    public void setSchemaKey(String schemaKey) {
+        this.schemaKey = schemaKey;
+    }
+}
@@ -0,0 +1,184 @@
+package org.tkit.maven.liquibase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content fingerprint of the diff inputs.
+ */
+public class DiffFingerprint {
+
+    /**
+     * Digest algorithm.
+     */
+    private static final String ALGORITHM = "SHA-256";
+
+    /**
+     * Buffer size for the file content.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Message digest.
+     */
+    private final MessageDigest digest;
+
+    /**
+     * Read buffer.
+     */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /**
+     * Default constructor.
+     */
+    public DiffFingerprint() {
+        try {
+            digest = MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Add the value to the fingerprint.
+     *
+     * @param key   the key of the value.
+     * @param value the value.
+     * @return the fingerprint.
+     */
+    public DiffFingerprint add(String key, Object value) {
+        update(key);
+        update(String.valueOf(value));
+        return this;
+    }
+
+    /**
+     * Add the content of the stream to the fingerprint.
+     *
+     * @param key   the key of the content.
+     * @param input the input stream.
+     * @return the fingerprint.
+     * @throws IOException if the stream could not be read.
+     */
+    public DiffFingerprint add(String key, InputStream input) throws IOException {
+        update(key);
+        if (input == null) {
+            update("-");
+            return this;
+        }
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return this;
+    }
+
+    /**
+     * Add the file content to the fingerprint. Not existing file is added as empty value.
+     *
+     * @param file the file.
+     * @return the fingerprint.
+     * @throws IOException if the file could not be read.
+     */
+    public DiffFingerprint addFile(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return add(file.toString(), "-");
+        }
+        try (InputStream input = Files.newInputStream(file)) {
+            return add(file.toString(), input);
+        }
+    }
+
+    /**
+     * Add the size and the modification time of the file to the fingerprint. Not existing file is added as empty value.
+     *
+     * @param file the file.
+     * @return the fingerprint.
+     * @throws IOException if the file attributes could not be read.
+     */
+    public DiffFingerprint addFileStamp(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return add(file.toString(), "-");
+        }
+        return add(file.toString(), Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis());
+    }
+
+    /**
+     * Add all files of the directory tree which match the filter to the fingerprint.
+     *
+     * @param directory the directory.
+     * @param filter    the file filter.
+     * @return the fingerprint.
+     * @throws IOException if the directory could not be read.
+     */
+    public DiffFingerprint addDirectory(Path directory, Predicate<Path> filter) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return add(directory.toString(), "-");
+        }
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(directory)) {
+            files = stream.filter(Files::isRegularFile).filter(filter).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            try (InputStream input = Files.newInputStream(file)) {
+                add(directory.relativize(file).toString(), input);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns the fingerprint as hex string.
+     *
+     * @return the fingerprint.
+     */
+    public String toHex() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Read the fingerprint from the file.
+     *
+     * @param file the fingerprint file.
+     * @return the fingerprint or {@code null} if the file does not exist.
+     * @throws IOException if the file could not be read.
+     */
+    public static String read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        return Files.readString(file, StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Write the fingerprint to the file.
+     *
+     * @param file        the fingerprint file.
+     * @param fingerprint the fingerprint.
+     * @throws IOException if the file could not be written.
+     */
+    public static void write(Path file, String fingerprint) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.writeString(file, fingerprint, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Update the digest with the string value.
+     *
+     * @param value the value.
+     */
+    private void update(String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+}
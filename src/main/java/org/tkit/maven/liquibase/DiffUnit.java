@@ -0,0 +1,168 @@
+package org.tkit.maven.liquibase;
+
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Persistence unit or tenant schema of the diff. Each unit is compared in its own source and target database
+ * and writes its own output changelog.
+ */
+public class DiffUnit {
+
+    /**
+     * The unit name, used for the database names and the default output file.
+     */
+    private String name;
+
+    /**
+     * The persistence unit name in {@code META-INF/persistence.xml}. All entities of the classpath if not set.
+     */
+    private String persistenceUnit;
+
+    /**
+     * The tenant schema of the Hibernate entities and the liquibase changelog.
+     */
+    private String schema;
+
+    /**
+     * The liquibase changelog file of the unit. The changelog file of the plugin if not set.
+     */
+    private String changeLogFile;
+
+    /**
+     * The output file of the unit.
+     */
+    private String outputFile;
+
+    /**
+     * The unit properties, added to the plugin properties.
+     */
+    private Properties properties;
+
+    /**
+     * Gets the unit name.
+     *
+     * @return the unit name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the unit name.
+     *
+     * @param name the unit name.
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the persistence unit name.
+     *
+     * @return the persistence unit name.
+     */
+    public String getPersistenceUnit() {
+        return persistenceUnit;
+    }
+
+    /**
+     * Sets the persistence unit name.
+     *
+     * @param persistenceUnit the persistence unit name.
+     */
+    public void setPersistenceUnit(String persistenceUnit) {
+        this.persistenceUnit = persistenceUnit;
+    }
+
+    /**
+     * Gets the tenant schema.
+     *
+     * @return the tenant schema.
+     */
+    public String getSchema() {
+        return schema;
+    }
+
+    /**
+     * Sets the tenant schema.
+     *
+     * @param schema the tenant schema.
+     */
+    public void setSchema(String schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * Gets the liquibase changelog file.
+     *
+     * @return the liquibase changelog file.
+     */
+    public String getChangeLogFile() {
+        return changeLogFile;
+    }
+
+    /**
+     * Sets the liquibase changelog file.
+     *
+     * @param changeLogFile the liquibase changelog file.
+     */
+    public void setChangeLogFile(String changeLogFile) {
+        this.changeLogFile = changeLogFile;
+    }
+
+    /**
+     * Gets the output file.
+     *
+     * @return the output file.
+     */
+    public String getOutputFile() {
+        return outputFile;
+    }
+
+    /**
+     * Sets the output file.
+     *
+     * @param outputFile the output file.
+     */
+    public void setOutputFile(String outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    /**
+     * Gets the unit properties.
+     *
+     * @return the unit properties.
+     */
+    public Properties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Sets the unit properties.
+     *
+     * @param properties the unit properties.
+     */
+    public void setProperties(Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Returns the unit name as part of the database name.
+     *
+     * @return the database identifier of the unit.
+     */
+    public String databaseId() {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_]", "_");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "DiffUnit{name=" + name + ", persistenceUnit=" + persistenceUnit + ", schema=" + schema
+                + ", changeLogFile=" + changeLogFile + ", outputFile=" + outputFile + ", properties=" + (properties != null ? new TreeMap<>(properties) : null) + "}";
+    }
+}
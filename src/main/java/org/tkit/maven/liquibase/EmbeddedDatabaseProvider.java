@@ -0,0 +1,87 @@
+package org.tkit.maven.liquibase;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Embedded postgres database started from the bundled binaries without docker.
+ */
+public class EmbeddedDatabaseProvider implements DatabaseProvider {
+
+    /**
+     * Default postgres user and database.
+     */
+    private static final String POSTGRES = "postgres";
+
+    /**
+     * Embedded postgres instance.
+     */
+    private EmbeddedPostgres postgres;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void start() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop() {
+        if (postgres == null) {
+            return;
+        }
+        try {
+            postgres.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            postgres = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getJdbcUrl() {
+        return getJdbcUrl(POSTGRES);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getJdbcUrl(String database) {
+        return postgres.getJdbcUrl(POSTGRES, database);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDatabaseName() {
+        return POSTGRES;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getUsername() {
+        return POSTGRES;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPassword() {
+        return POSTGRES;
+    }
+}
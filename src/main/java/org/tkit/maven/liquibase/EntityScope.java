@@ -0,0 +1,315 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.database.Database;
+import liquibase.diff.ObjectDifferences;
+import liquibase.diff.output.ObjectChangeFilter;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Catalog;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.PrimaryKey;
+import liquibase.structure.core.Relation;
+import liquibase.structure.core.Schema;
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.UniqueConstraint;
+import org.hibernate.boot.model.naming.Identifier;
+import org.hibernate.boot.model.relational.Namespace;
+import org.hibernate.boot.spi.MetadataImplementor;
+import org.hibernate.mapping.Table;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Database objects of the Hibernate mapping. The scope restricts the database snapshots and the diff
+ * to the tables and sequences of the entities. The columns, keys, indexes and constraints belong to the scope
+ * of their table. Other objects (views, functions, tables of other tools) are only included by the include patterns.
+ * The names of the tables in the default schema are matched in all compared schemas, the names of the tables
+ * in other schemas are matched with the {@code schema.name} format.
+ */
+public class EntityScope implements ObjectChangeFilter {
+
+    /**
+     * Table and view names.
+     */
+    private final Set<String> tables;
+
+    /**
+     * Sequence names.
+     */
+    private final Set<String> sequences;
+
+    /**
+     * Schemas of the mapping other than the default schema.
+     */
+    private final Set<String> schemas;
+
+    /**
+     * Names and patterns of the additional objects.
+     */
+    private final NamePatterns includes;
+
+    /**
+     * Names and patterns of the excluded objects.
+     */
+    private final NamePatterns excludes;
+
+    /**
+     * The object filter of the diff or {@code null}.
+     */
+    private final ObjectChangeFilter filter;
+
+    /**
+     * Default constructor.
+     *
+     * @param includes the names and patterns of the additional objects.
+     * @param excludes the names and patterns of the excluded objects.
+     */
+    public EntityScope(NamePatterns includes, NamePatterns excludes) {
+        this(new HashSet<>(), new HashSet<>(), new HashSet<>(), includes, excludes, null);
+    }
+
+    /**
+     * Creates the scope.
+     *
+     * @param tables    the table and view names.
+     * @param sequences the sequence names.
+     * @param schemas   the schemas of the mapping.
+     * @param includes  the names and patterns of the additional objects.
+     * @param excludes  the names and patterns of the excluded objects.
+     * @param filter    the object filter of the diff or {@code null}.
+     */
+    private EntityScope(Set<String> tables, Set<String> sequences, Set<String> schemas, NamePatterns includes,
+                        NamePatterns excludes, ObjectChangeFilter filter) {
+        this.tables = tables;
+        this.sequences = sequences;
+        this.schemas = schemas;
+        this.includes = includes;
+        this.excludes = excludes;
+        this.filter = filter;
+    }
+
+    /**
+     * Add the tables and sequences of the Hibernate metadata to the scope.
+     *
+     * @param metadata the Hibernate metadata.
+     */
+    public void read(MetadataImplementor metadata) {
+        tables.addAll(tableNames(metadata).values());
+        for (Namespace namespace : metadata.getDatabase().getNamespaces()) {
+            Identifier schema = namespace.getPhysicalName().getSchema();
+            if (schema != null) {
+                schemas.add(name(schema));
+            }
+            for (org.hibernate.boot.model.relational.Sequence sequence : namespace.getSequences()) {
+                sequences.add(prefix(namespace) + name(sequence.getName().getSequenceName()));
+            }
+        }
+    }
+
+    /**
+     * Returns the scope of the tables and sequences.
+     *
+     * @param tables    the table and view names.
+     * @param sequences the sequence names.
+     * @param schemas   the schemas of the mapping.
+     * @param includes  the names and patterns of the additional objects.
+     * @param excludes  the names and patterns of the excluded objects.
+     * @return the scope.
+     */
+    public static EntityScope of(Set<String> tables, Set<String> sequences, Set<String> schemas, NamePatterns includes,
+                                 NamePatterns excludes) {
+        return new EntityScope(new HashSet<>(tables), new HashSet<>(sequences), new HashSet<>(schemas), includes, excludes, null);
+    }
+
+    /**
+     * Returns the scope names of the physical tables of the Hibernate metadata.
+     *
+     * @param metadata the Hibernate metadata.
+     * @return the table names by the table.
+     */
+    public static Map<Table, String> tableNames(MetadataImplementor metadata) {
+        Map<Table, String> result = new IdentityHashMap<>();
+        for (Namespace namespace : metadata.getDatabase().getNamespaces()) {
+            for (Table table : namespace.getTables()) {
+                if (table.isPhysicalTable()) {
+                    result.put(table, prefix(namespace) + name(table.getNameIdentifier()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the name prefix of the objects of the namespace, empty for the default schema.
+     *
+     * @param namespace the Hibernate namespace.
+     * @return the name prefix.
+     */
+    private static String prefix(Namespace namespace) {
+        Identifier schema = namespace.getPhysicalName().getSchema();
+        return schema != null ? name(schema) + "." : "";
+    }
+
+    /**
+     * Returns the scope combined with the object filter of the diff.
+     *
+     * @param objectChangeFilter the object filter of the diff or {@code null}.
+     * @return the scope with the object filter.
+     */
+    public EntityScope and(ObjectChangeFilter objectChangeFilter) {
+        return new EntityScope(tables, sequences, schemas, includes, excludes, objectChangeFilter);
+    }
+
+    /**
+     * Returns the table and view names.
+     *
+     * @return the table and view names.
+     */
+    public Set<String> getTables() {
+        return tables;
+    }
+
+    /**
+     * Returns the sequence names.
+     *
+     * @return the sequence names.
+     */
+    public Set<String> getSequences() {
+        return sequences;
+    }
+
+    /**
+     * Returns the schemas of the mapping other than the default schema.
+     *
+     * @return the schemas.
+     */
+    public Set<String> getSchemas() {
+        return schemas;
+    }
+
+    /**
+     * Check if the database object belongs to the scope.
+     *
+     * @param object the database object.
+     * @return {@code true} if the object belongs to the scope.
+     */
+    public boolean contains(DatabaseObject object) {
+        if (object == null || object instanceof Catalog || object instanceof Schema) {
+            return true;
+        }
+        if (object instanceof Relation relation) {
+            return matches(relation, tables);
+        }
+        if (object instanceof Sequence) {
+            return matches(object, sequences);
+        }
+        if (object instanceof Column || object instanceof PrimaryKey || object instanceof Index
+                || object instanceof UniqueConstraint || object instanceof ForeignKey) {
+            DatabaseObject owner = owner(object);
+            return owner == null || contains(owner);
+        }
+        return matches(object, Set.of());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean includeMissing(DatabaseObject object, Database referenceDatabase, Database comparisionDatabase) {
+        return contains(object) && (filter == null || filter.includeMissing(object, referenceDatabase, comparisionDatabase));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean includeUnexpected(DatabaseObject object, Database referenceDatabase, Database comparisionDatabase) {
+        return contains(object) && (filter == null || filter.includeUnexpected(object, referenceDatabase, comparisionDatabase));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean includeChanged(DatabaseObject object, ObjectDifferences differences, Database referenceDatabase, Database comparisionDatabase) {
+        return contains(object) && (filter == null || filter.includeChanged(object, differences, referenceDatabase, comparisionDatabase));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean include(DatabaseObject object) {
+        return contains(object) && (filter == null || filter.include(object));
+    }
+
+    /**
+     * Returns the table of the column, key, index or constraint.
+     *
+     * @param object the database object.
+     * @return the table or {@code null} if the table is not set.
+     */
+    private static DatabaseObject owner(DatabaseObject object) {
+        if (object instanceof Column column) {
+            return column.getRelation();
+        }
+        if (object instanceof PrimaryKey primaryKey) {
+            return primaryKey.getTable();
+        }
+        if (object instanceof Index index) {
+            return index.getRelation();
+        }
+        if (object instanceof UniqueConstraint constraint) {
+            return constraint.getRelation();
+        }
+        if (object instanceof ForeignKey foreignKey) {
+            return foreignKey.getForeignKeyTable();
+        }
+        return null;
+    }
+
+    /**
+     * Check if the object name is in the names or matches the include patterns and not the exclude patterns.
+     *
+     * @param object the database object.
+     * @param names  the names of the mapping.
+     * @return {@code true} if the object matches.
+     */
+    private boolean matches(DatabaseObject object, Set<String> names) {
+        String name = object.getName();
+        if (name == null) {
+            return true;
+        }
+        String qualified = object.getSchema() != null && object.getSchema().getName() != null
+                ? object.getSchema().getName() + "." + name : null;
+        if (excludes.matches(name) || (qualified != null && excludes.matches(qualified))) {
+            return false;
+        }
+        return names.contains(name) || (qualified != null && names.contains(qualified))
+                || includes.matches(name) || (qualified != null && includes.matches(qualified));
+    }
+
+    /**
+     * Returns the object name in the postgresql database, unquoted names are stored in lower case.
+     *
+     * @param identifier the Hibernate identifier.
+     * @return the object name.
+     */
+    private static String name(Identifier identifier) {
+        return identifier.isQuoted() ? identifier.getText() : identifier.getText().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "EntityScope{tables=" + tables.size() + ", sequences=" + sequences.size() + ", schemas=" + schemas
+                + ", includes=" + includes + ", excludes=" + excludes + "}";
+    }
+}
@@ -0,0 +1,35 @@
+package org.tkit.maven.liquibase;
+
+import org.hibernate.boot.spi.MetadataImplementor;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Database objects and entities of the Hibernate metadata used by the entity scope and the incremental diff.
+ * The mapping is stored with the cached Hibernate schema, the diff does not need the Hibernate metadata
+ * when the schema is created from the cache.
+ *
+ * @param entityCount the number of the entities.
+ * @param tables      the table names of the mapping.
+ * @param sequences   the sequence names of the mapping.
+ * @param schemas     the schemas of the mapping other than the default schema.
+ * @param entities    the incremental diff state of the entities by the entity name, empty if not read.
+ */
+public record HibernateMapping(int entityCount, Set<String> tables, Set<String> sequences, Set<String> schemas,
+                               Map<String, IncrementalDiff.Entity> entities) {
+
+    /**
+     * Read the mapping of the Hibernate metadata.
+     *
+     * @param metadata the Hibernate metadata.
+     * @param entities {@code true} to read the incremental diff state of the entities.
+     * @return the mapping.
+     */
+    public static HibernateMapping of(MetadataImplementor metadata, boolean entities) {
+        EntityScope scope = new EntityScope(NamePatterns.of(null), NamePatterns.of(null));
+        scope.read(metadata);
+        return new HibernateMapping(metadata.getEntityBindings().size(), scope.getTables(), scope.getSequences(),
+                scope.getSchemas(), entities ? IncrementalDiff.entities(metadata) : Map.of());
+    }
+}
@@ -0,0 +1,250 @@
+package org.tkit.maven.liquibase;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Store of the Hibernate create scripts of the target database keyed by the hash of the entity classes
+ * and the Hibernate settings. The script is stored with the {@link HibernateMapping}, the target database
+ * is created by the script without the Hibernate bootstrap when the entities did not change.
+ */
+public class HibernateSchemaCache {
+
+    /**
+     * Schema file suffix.
+     */
+    private static final String SUFFIX = ".schema";
+
+    /**
+     * Schema file format version.
+     */
+    private static final String VERSION = "1";
+
+    /**
+     * Statement header prefix of the schema file, followed by the statement length.
+     */
+    private static final String HEADER = "-- statement ";
+
+    /**
+     * Separator of the mapping values.
+     */
+    private static final String SEPARATOR = "\t";
+
+    /**
+     * Separator of the names of the entity state.
+     */
+    private static final String LIST_SEPARATOR = ",";
+
+    /**
+     * Cached Hibernate schema.
+     *
+     * @param statements the DDL statements of the target database.
+     * @param mapping    the Hibernate mapping.
+     */
+    public record Entry(List<String> statements, HibernateMapping mapping) {
+    }
+
+    /**
+     * Schema directory.
+     */
+    private final Path directory;
+
+    /**
+     * Maximum number of the stored schemas.
+     */
+    private final int maxFiles;
+
+    /**
+     * Default constructor.
+     *
+     * @param directory the schema directory.
+     * @param maxFiles  the maximum number of the stored schemas.
+     */
+    public HibernateSchemaCache(Path directory, int maxFiles) {
+        this.directory = directory;
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * Read the schema of the key.
+     *
+     * @param key the hash of the entity classes and the Hibernate settings.
+     * @return the schema or {@code null} if there is no schema for the key.
+     * @throws IOException if the schema could not be read.
+     */
+    public Entry read(String key) throws IOException {
+        Path file = directory.resolve(key + SUFFIX);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        List<String> statements = new ArrayList<>();
+        int entityCount = 0;
+        Set<String> tables = new TreeSet<>();
+        Set<String> sequences = new TreeSet<>();
+        Set<String> schemas = new TreeSet<>();
+        Map<String, IncrementalDiff.Entity> entities = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (!("version" + SEPARATOR + VERSION).equals(line)) {
+                return null;
+            }
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(HEADER)) {
+                    statements.add(readStatement(reader, Integer.parseInt(line.substring(HEADER.length()).trim()), file));
+                    continue;
+                }
+                String[] items = line.split(SEPARATOR, -1);
+                switch (items[0]) {
+                    case "entities" -> entityCount = Integer.parseInt(items[1]);
+                    case "table" -> tables.add(items[1]);
+                    case "sequence" -> sequences.add(items[1]);
+                    case "schema" -> schemas.add(items[1]);
+                    case "entity" -> entities.put(items[1], new IncrementalDiff.Entity(items[2], names(items[3]), names(items[4])));
+                    default -> throw new IOException("Invalid schema file " + file + ": " + line);
+                }
+            }
+        } catch (IndexOutOfBoundsException | NumberFormatException ex) {
+            throw new IOException("Invalid schema file " + file, ex);
+        }
+        // mark the schema as recently used
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        return new Entry(statements, new HibernateMapping(entityCount, tables, sequences, schemas, entities));
+    }
+
+    /**
+     * Write the schema of the key and remove the least recently used schemas.
+     *
+     * @param key   the hash of the entity classes and the Hibernate settings.
+     * @param entry the schema.
+     * @throws IOException if the schema could not be written.
+     */
+    public void write(String key, Entry entry) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(key + SUFFIX);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        HibernateMapping mapping = entry.mapping();
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            writeLine(writer, "version", VERSION);
+            writeLine(writer, "entities", String.valueOf(mapping.entityCount()));
+            for (String table : new TreeSet<>(mapping.tables())) {
+                writeLine(writer, "table", table);
+            }
+            for (String sequence : new TreeSet<>(mapping.sequences())) {
+                writeLine(writer, "sequence", sequence);
+            }
+            for (String schema : new TreeSet<>(mapping.schemas())) {
+                writeLine(writer, "schema", schema);
+            }
+            for (Map.Entry<String, IncrementalDiff.Entity> item : new TreeMap<>(mapping.entities()).entrySet()) {
+                IncrementalDiff.Entity entity = item.getValue();
+                writeLine(writer, "entity", item.getKey(), entity.hash(), String.join(LIST_SEPARATOR, entity.objects()),
+                        String.join(LIST_SEPARATOR, entity.references()));
+            }
+            for (String sql : entry.statements()) {
+                writer.write(HEADER + sql.length());
+                writer.newLine();
+                writer.write(sql);
+                writer.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        prune();
+    }
+
+    /**
+     * Read the statement of the length after the statement header.
+     *
+     * @param reader the schema file reader.
+     * @param length the statement length.
+     * @param file   the schema file.
+     * @return the statement.
+     * @throws IOException if the statement could not be read.
+     */
+    private static String readStatement(BufferedReader reader, int length, Path file) throws IOException {
+        char[] sql = new char[length];
+        int read = 0;
+        while (read < sql.length) {
+            int count = reader.read(sql, read, sql.length - read);
+            if (count < 0) {
+                throw new IOException("Invalid schema file " + file + ", unexpected end of file.");
+            }
+            read += count;
+        }
+        reader.readLine();
+        return new String(sql);
+    }
+
+    /**
+     * Write the line of the values.
+     *
+     * @param writer the schema file writer.
+     * @param values the values of the line.
+     * @throws IOException if the line could not be written.
+     */
+    private static void writeLine(BufferedWriter writer, String... values) throws IOException {
+        writer.write(String.join(SEPARATOR, values));
+        writer.newLine();
+    }
+
+    /**
+     * Returns the names of the value.
+     *
+     * @param value the comma separated names.
+     * @return the names.
+     */
+    private static Set<String> names(String value) {
+        Set<String> result = new TreeSet<>();
+        for (String item : value.split(LIST_SEPARATOR)) {
+            if (!item.isEmpty()) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove the least recently used schemas.
+     *
+     * @throws IOException if the schemas could not be removed.
+     */
+    private void prune() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(HibernateSchemaCache::lastModified).reversed())
+                    .collect(Collectors.toList());
+        }
+        for (int i = maxFiles; i < files.size(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    /**
+     * Returns the last modified time of the file.
+     *
+     * @param file the file.
+     * @return the last modified time.
+     */
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException ex) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
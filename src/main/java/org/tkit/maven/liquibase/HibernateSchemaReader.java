@@ -0,0 +1,205 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.structure.core.Column;
+import liquibase.structure.core.DataType;
+import liquibase.util.SqlUtil;
+import org.hibernate.boot.model.naming.Identifier;
+import org.hibernate.boot.model.relational.Namespace;
+import org.hibernate.boot.model.relational.Sequence;
+import org.hibernate.boot.spi.MetadataImplementor;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.mapping.ForeignKey;
+import org.hibernate.mapping.Index;
+import org.hibernate.mapping.Selectable;
+import org.hibernate.mapping.Table;
+import org.hibernate.mapping.UniqueKey;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Creates the schema model from the Hibernate mapping metadata.
+ * The model contains the tables, constraints, indexes and sequences which
+ * Hibernate would create in the default schema of the postgresql database.
+ */
+public class HibernateSchemaReader {
+
+    /**
+     * The schema model.
+     */
+    private final OfflineSchema schema;
+
+    /**
+     * Default constructor.
+     *
+     * @param schema the schema model.
+     */
+    public HibernateSchemaReader(OfflineSchema schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * Add the tables and sequences of the Hibernate metadata to the schema model.
+     *
+     * @param metadata the Hibernate metadata.
+     */
+    public void read(MetadataImplementor metadata) {
+        Dialect dialect = metadata.getDatabase().getDialect();
+        List<Table> tables = new ArrayList<>();
+        for (Namespace namespace : metadata.getDatabase().getNamespaces()) {
+            if (!isDefaultSchema(namespace)) {
+                continue;
+            }
+            for (Table table : namespace.getTables()) {
+                if (table.isPhysicalTable() && !table.isView()) {
+                    readTable(metadata, dialect, table);
+                    tables.add(table);
+                }
+            }
+            for (Sequence sequence : namespace.getSequences()) {
+                schema.addSequence(name(sequence.getName().getSequenceName()),
+                        BigInteger.valueOf(sequence.getInitialValue()), BigInteger.valueOf(sequence.getIncrementSize()));
+            }
+        }
+        // foreign keys after all tables are created
+        for (Table table : tables) {
+            for (ForeignKey fk : table.getForeignKeys().values()) {
+                readForeignKey(table, fk);
+            }
+        }
+    }
+
+    /**
+     * Add the table with columns, primary key, unique constraints and indexes to the schema model.
+     *
+     * @param metadata the Hibernate metadata.
+     * @param dialect  the Hibernate dialect.
+     * @param table    the Hibernate table.
+     */
+    private void readTable(MetadataImplementor metadata, Dialect dialect, Table table) {
+        liquibase.structure.core.Table result = schema.addTable(name(table.getNameIdentifier()));
+
+        for (org.hibernate.mapping.Column column : table.getColumns()) {
+            DataType type = schema.type(column.getSqlType(metadata));
+            Column item = schema.addColumn(result, name(column), type, column.isNullable());
+            if (column.getDefaultValue() != null) {
+                item.setDefaultValue(SqlUtil.parseValue(schema.getDatabase(), column.getDefaultValue(), type));
+            }
+        }
+
+        List<String> primaryKey = new ArrayList<>();
+        if (table.hasPrimaryKey()) {
+            table.getPrimaryKey().getColumns().forEach(column -> primaryKey.add(name(column)));
+            String pkName = table.getPrimaryKey().getName();
+            schema.setPrimaryKey(result, pkName != null ? pkName.toLowerCase(Locale.ROOT) : result.getName() + "_pkey", primaryKey);
+            if (isIdentity(metadata, dialect, table)) {
+                OfflineSchema.setAutoIncrement(result.getColumn(primaryKey.get(0)));
+            }
+        }
+
+        Set<List<String>> uniqueColumns = new HashSet<>();
+        uniqueColumns.add(primaryKey);
+        for (org.hibernate.mapping.Column column : table.getColumns()) {
+            // column unique constraints are created inline by Hibernate and named by postgres
+            if (column.isUnique() && uniqueColumns.add(List.of(name(column)))) {
+                schema.addUniqueConstraint(result, result.getName() + "_" + name(column) + "_key", List.of(name(column)));
+            }
+        }
+        for (UniqueKey uk : table.getUniqueKeys().values()) {
+            List<String> columns = uk.getColumns().stream().map(this::name).toList();
+            if (uniqueColumns.add(columns)) {
+                schema.addUniqueConstraint(result, uk.getName().toLowerCase(Locale.ROOT), columns);
+            }
+        }
+
+        for (Index index : table.getIndexes().values()) {
+            schema.addIndex(result, index.getName().toLowerCase(Locale.ROOT), index.isUnique(),
+                    index.getSelectables().stream().map(this::name).toList());
+        }
+    }
+
+    /**
+     * Add the foreign key to the schema model.
+     *
+     * @param table the Hibernate table.
+     * @param fk    the Hibernate foreign key.
+     */
+    private void readForeignKey(Table table, ForeignKey fk) {
+        if (!fk.isCreationEnabled() || !fk.isPhysicalConstraint()) {
+            return;
+        }
+        liquibase.structure.core.Table base = schema.getTable(name(table.getNameIdentifier()));
+        liquibase.structure.core.Table referenced = schema.getTable(name(fk.getReferencedTable().getNameIdentifier()));
+        if (base == null || referenced == null) {
+            return;
+        }
+        List<org.hibernate.mapping.Column> referencedColumns = fk.isReferenceToPrimaryKey()
+                ? fk.getReferencedTable().getPrimaryKey().getColumns() : fk.getReferencedColumns();
+        liquibase.structure.core.ForeignKey result = schema.addForeignKey(base, fk.getName().toLowerCase(Locale.ROOT),
+                fk.getColumns().stream().map(this::name).toList(), referenced,
+                referencedColumns.stream().map(this::name).toList());
+        result.setDeleteRule(OfflineSchema.foreignKeyRule(fk.getOnDeleteAction() != null ? fk.getOnDeleteAction().name() : null));
+        result.setUpdateRule(OfflineSchema.foreignKeyRule(null));
+        result.setDeferrable(false);
+        result.setInitiallyDeferred(false);
+    }
+
+    /**
+     * Check if the primary key of the table is an identity column, the same check as in the Hibernate table exporter.
+     *
+     * @param metadata the Hibernate metadata.
+     * @param dialect  the Hibernate dialect.
+     * @param table    the Hibernate table.
+     * @return {@code true} if the primary key is an identity column.
+     */
+    @SuppressWarnings("deprecation")
+    private static boolean isIdentity(MetadataImplementor metadata, Dialect dialect, Table table) {
+        return table.getIdentifierValue() != null
+                && table.getIdentifierValue().isIdentityColumn(metadata.getMetadataBuildingOptions().getIdentifierGeneratorFactory(), dialect);
+    }
+
+    /**
+     * Check if the namespace is the default schema.
+     *
+     * @param namespace the Hibernate namespace.
+     * @return {@code true} for the default schema.
+     */
+    private boolean isDefaultSchema(Namespace namespace) {
+        Identifier name = namespace.getPhysicalName().getSchema();
+        return name == null || name(name).equals(schema.getSchema().getName());
+    }
+
+    /**
+     * Returns the column name in the postgresql database.
+     *
+     * @param column the Hibernate column.
+     * @return the column name.
+     */
+    private String name(org.hibernate.mapping.Column column) {
+        return column.isQuoted() ? column.getName() : column.getName().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the name of the index column or the text of the index formula.
+     *
+     * @param selectable the Hibernate column or formula.
+     * @return the column name or the formula.
+     */
+    private String name(Selectable selectable) {
+        return selectable instanceof org.hibernate.mapping.Column column ? name(column) : selectable.getText();
+    }
+
+    /**
+     * Returns the object name in the postgresql database, unquoted names are stored in lower case.
+     *
+     * @param identifier the Hibernate identifier.
+     * @return the object name.
+     */
+    private String name(Identifier identifier) {
+        return identifier.isQuoted() ? identifier.getText() : identifier.getText().toLowerCase(Locale.ROOT);
+    }
+}
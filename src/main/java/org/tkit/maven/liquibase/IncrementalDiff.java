@@ -0,0 +1,578 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.ChecksumVersion;
+import liquibase.change.Change;
+import liquibase.changelog.ChangeSet;
+import org.hibernate.boot.registry.classloading.spi.ClassLoaderService;
+import org.hibernate.boot.registry.classloading.spi.ClassLoadingException;
+import org.hibernate.boot.spi.MetadataImplementor;
+import org.hibernate.mapping.Collection;
+import org.hibernate.mapping.Component;
+import org.hibernate.mapping.IndexedCollection;
+import org.hibernate.mapping.Join;
+import org.hibernate.mapping.OneToMany;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
+import org.hibernate.mapping.SimpleValue;
+import org.hibernate.mapping.Table;
+import org.hibernate.mapping.ToOne;
+import org.hibernate.mapping.Value;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * State of the incremental diff: the bytecode hash and the tables of each entity of the Hibernate mapping
+ * and the checksum and the objects of each changeset of the changelog. Compared with the state of the last diff
+ * it returns the objects of the changed entities and changesets, the diff of the other objects did not change.
+ */
+public class IncrementalDiff {
+
+    /**
+     * State file format version.
+     */
+    private static final String VERSION = "1";
+
+    /**
+     * Separator of the values in the state file.
+     */
+    private static final String SEPARATOR = "\t";
+
+    /**
+     * Separator of the names in the state file.
+     */
+    private static final String LIST_SEPARATOR = ",";
+
+    /**
+     * Objects of the changeset which could not be resolved from the changes.
+     */
+    private static final String UNKNOWN = "*";
+
+    /**
+     * Change attributes with the names of the tables, sequences and views. The columns, keys, indexes
+     * and constraints belong to the table of the change like in the {@link EntityScope}.
+     */
+    private static final List<String> OBJECT_ATTRIBUTES = List.of(
+            "tableName", "oldTableName", "newTableName", "baseTableName",
+            "sequenceName", "oldSequenceName", "newSequenceName",
+            "viewName", "oldViewName", "newViewName");
+
+    /**
+     * Change attributes with the schema of the object.
+     */
+    private static final List<String> SCHEMA_ATTRIBUTES = List.of("schemaName", "baseTableSchemaName");
+
+    /**
+     * State of the entity.
+     *
+     * @param hash       the hash of the bytecode of the entity class, the super classes, the embeddables and the attribute types.
+     * @param objects    the tables of the entity.
+     * @param references the referenced entities.
+     */
+    public record Entity(String hash, Set<String> objects, Set<String> references) {
+    }
+
+    /**
+     * State of the changeset.
+     *
+     * @param checksum the changeset checksum.
+     * @param objects  the objects of the changes or {@code null} if the objects could not be resolved.
+     */
+    public record ChangeSetState(String checksum, Set<String> objects) {
+    }
+
+    /**
+     * Fingerprint of the plugin configuration and the mapping files.
+     */
+    private final String base;
+
+    /**
+     * Entities by the entity name.
+     */
+    private final Map<String, Entity> entities;
+
+    /**
+     * Changesets by the changeset key.
+     */
+    private final Map<String, ChangeSetState> changeSets = new TreeMap<>();
+
+    /**
+     * Sequences of the mapping, always compared.
+     */
+    private final Set<String> sequences;
+
+    /**
+     * Schemas of the mapping other than the default schema.
+     */
+    private final Set<String> schemas;
+
+    /**
+     * Fingerprint of the output file of the diff.
+     */
+    private String output;
+
+    /**
+     * Creates the state.
+     *
+     * @param base      the fingerprint of the plugin configuration and the mapping files.
+     * @param entities  the entities by the entity name.
+     * @param sequences the sequences of the mapping.
+     * @param schemas   the schemas of the mapping.
+     */
+    private IncrementalDiff(String base, Map<String, Entity> entities, Set<String> sequences, Set<String> schemas) {
+        this.base = base;
+        this.entities = entities;
+        this.sequences = sequences;
+        this.schemas = schemas;
+    }
+
+    /**
+     * Create the state of the entities of the Hibernate mapping.
+     *
+     * @param base    the fingerprint of the plugin configuration and the mapping files.
+     * @param mapping the Hibernate mapping with the entities.
+     * @return the state without changesets.
+     */
+    public static IncrementalDiff of(String base, HibernateMapping mapping) {
+        return new IncrementalDiff(base, new TreeMap<>(mapping.entities()), mapping.sequences(), mapping.schemas());
+    }
+
+    /**
+     * Read the state of the entities of the Hibernate metadata.
+     *
+     * @param metadata the Hibernate metadata.
+     * @return the entity states by the entity name.
+     */
+    public static Map<String, Entity> entities(MetadataImplementor metadata) {
+        ClassLoaderService classLoader = metadata.getMetadataBuildingOptions().getServiceRegistry().getService(ClassLoaderService.class);
+        Map<Table, String> tables = EntityScope.tableNames(metadata);
+        Map<String, Entity> result = new TreeMap<>();
+        for (PersistentClass entity : metadata.getEntityBindings()) {
+            result.put(entity.getEntityName(), new EntityReader(classLoader, tables).read(entity));
+        }
+        return result;
+    }
+
+    /**
+     * Add the changesets of the changelog to the state.
+     *
+     * @param items the changesets of the changelog.
+     */
+    public void readChangeLog(List<ChangeSet> items) {
+        changeSets.clear();
+        for (ChangeSet changeSet : items) {
+            Set<String> objects = new TreeSet<>();
+            for (Change change : changeSet.getChanges()) {
+                Set<String> names = objects(attribute -> {
+                    Object value = change.getSerializableFieldValue(attribute);
+                    return value instanceof String text ? text : null;
+                });
+                if (names.isEmpty()) {
+                    objects = null;
+                    break;
+                }
+                objects.addAll(names);
+            }
+            changeSets.put(changeSet.getFilePath() + "::" + changeSet.getId() + "::" + changeSet.getAuthor(),
+                    new ChangeSetState(changeSet.generateCheckSum(ChecksumVersion.latest()).toString(), objects));
+        }
+    }
+
+    /**
+     * Returns the tables, sequences and views of the change attributes. Each name is returned as it is,
+     * in lower case and qualified with the schema of the change.
+     *
+     * @param attributes the change attribute values by the attribute name.
+     * @return the object names.
+     */
+    public static Set<String> objects(Function<String, String> attributes) {
+        Set<String> result = new TreeSet<>();
+        String schema = null;
+        for (String attribute : SCHEMA_ATTRIBUTES) {
+            if (schema == null) {
+                schema = attributes.apply(attribute);
+            }
+        }
+        for (String attribute : OBJECT_ATTRIBUTES) {
+            String value = attributes.apply(attribute);
+            if (value == null || value.isBlank()) {
+                continue;
+            }
+            for (String name : List.of(value, value.toLowerCase(Locale.ROOT))) {
+                result.add(name);
+                if (schema != null && !schema.isBlank()) {
+                    result.add(schema + "." + name);
+                    result.add(schema.toLowerCase(Locale.ROOT) + "." + name);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the tables and sequences of the entities and changesets which changed since the last diff.
+     * The tables of the entities which reference a changed entity are also returned, the type of their
+     * foreign key columns depends on the identifier of the referenced entity.
+     *
+     * @param previous the state of the last diff.
+     * @return the changed objects or {@code null} if all objects must be compared.
+     */
+    public Set<String> changedObjects(IncrementalDiff previous) {
+        if (!base.equals(previous.base)) {
+            return null;
+        }
+        Set<String> changed = new HashSet<>();
+        Set<String> names = new HashSet<>(entities.keySet());
+        names.addAll(previous.entities.keySet());
+        for (String name : names) {
+            Entity current = entities.get(name);
+            Entity last = previous.entities.get(name);
+            if (current == null || last == null || !current.hash().equals(last.hash())) {
+                changed.add(name);
+            }
+        }
+
+        Set<String> result = new TreeSet<>();
+        for (IncrementalDiff state : List.of(this, previous)) {
+            for (Map.Entry<String, Entity> entry : state.entities.entrySet()) {
+                if (changed.contains(entry.getKey()) || entry.getValue().references().stream().anyMatch(changed::contains)) {
+                    result.addAll(entry.getValue().objects());
+                }
+            }
+        }
+
+        Set<String> keys = new HashSet<>(changeSets.keySet());
+        keys.addAll(previous.changeSets.keySet());
+        for (String key : keys) {
+            ChangeSetState current = changeSets.get(key);
+            ChangeSetState last = previous.changeSets.get(key);
+            if (current != null && last != null && current.checksum().equals(last.checksum())) {
+                continue;
+            }
+            for (ChangeSetState state : new ChangeSetState[]{current, last}) {
+                if (state == null) {
+                    continue;
+                }
+                if (state.objects() == null) {
+                    return null;
+                }
+                result.addAll(state.objects());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the scope of the changed objects and all sequences of the mapping.
+     *
+     * @param objects  the changed objects.
+     * @param excludes the names and patterns of the excluded objects.
+     * @return the entity scope of the changed objects.
+     */
+    public EntityScope scope(Set<String> objects, NamePatterns excludes) {
+        Set<String> scopeSequences = new HashSet<>(sequences);
+        scopeSequences.addAll(objects);
+        return EntityScope.of(objects, scopeSequences, schemas, NamePatterns.of(null), excludes);
+    }
+
+    /**
+     * Check if one of the objects belongs to the scope of the changed objects.
+     *
+     * @param names   the object names.
+     * @param objects the changed objects.
+     * @return {@code true} if the objects are compared by the incremental diff.
+     */
+    public boolean isChanged(Set<String> names, Set<String> objects) {
+        return names.stream().anyMatch(name -> objects.contains(name) || sequences.contains(name));
+    }
+
+    /**
+     * Returns the number of the entities.
+     *
+     * @return the number of the entities.
+     */
+    public int getEntities() {
+        return entities.size();
+    }
+
+    /**
+     * Returns the fingerprint of the output file.
+     *
+     * @return the fingerprint of the output file.
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * Set the fingerprint of the output file.
+     *
+     * @param output the fingerprint of the output file.
+     */
+    public void setOutput(String output) {
+        this.output = output;
+    }
+
+    /**
+     * Read the state file.
+     *
+     * @param file the state file.
+     * @return the state or {@code null} if the file does not exist or has another format version.
+     * @throws IOException if the file could not be read.
+     */
+    public static IncrementalDiff read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String[] version = split(reader.readLine());
+            if (version.length != 2 || !"version".equals(version[0]) || !VERSION.equals(version[1])) {
+                return null;
+            }
+            IncrementalDiff result = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] items = split(line);
+                switch (items[0]) {
+                    case "base" -> result = new IncrementalDiff(items[1], new TreeMap<>(), Set.of(), Set.of());
+                    case "output" -> Objects.requireNonNull(result).output = items[1];
+                    case "entity" -> Objects.requireNonNull(result).entities.put(items[1],
+                            new Entity(items[2], names(items[3]), names(items[4])));
+                    case "changeSet" -> Objects.requireNonNull(result).changeSets.put(items[1],
+                            new ChangeSetState(items[2], UNKNOWN.equals(items[3]) ? null : names(items[3])));
+                    default -> throw new IOException("Invalid incremental diff state file " + file + ": " + line);
+                }
+            }
+            return result;
+        } catch (IndexOutOfBoundsException | NullPointerException ex) {
+            throw new IOException("Invalid incremental diff state file " + file, ex);
+        }
+    }
+
+    /**
+     * Write the state file.
+     *
+     * @param file the state file.
+     * @throws IOException if the file could not be written.
+     */
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeLine(writer, "version", VERSION);
+            writeLine(writer, "base", base);
+            writeLine(writer, "output", output);
+            for (Map.Entry<String, Entity> entry : entities.entrySet()) {
+                Entity entity = entry.getValue();
+                writeLine(writer, "entity", entry.getKey(), entity.hash(), String.join(LIST_SEPARATOR, entity.objects()),
+                        String.join(LIST_SEPARATOR, entity.references()));
+            }
+            for (Map.Entry<String, ChangeSetState> entry : changeSets.entrySet()) {
+                ChangeSetState changeSet = entry.getValue();
+                writeLine(writer, "changeSet", entry.getKey(), changeSet.checksum(),
+                        changeSet.objects() == null ? UNKNOWN : String.join(LIST_SEPARATOR, changeSet.objects()));
+            }
+        }
+    }
+
+    /**
+     * Write the line of the values.
+     *
+     * @param writer the state file writer.
+     * @param values the values of the line.
+     * @throws IOException if the line could not be written.
+     */
+    private static void writeLine(BufferedWriter writer, String... values) throws IOException {
+        writer.write(String.join(SEPARATOR, values));
+        writer.newLine();
+    }
+
+    /**
+     * Split the line of the state file.
+     *
+     * @param line the line.
+     * @return the values of the line.
+     */
+    private static String[] split(String line) {
+        return line == null ? new String[0] : line.split(SEPARATOR, -1);
+    }
+
+    /**
+     * Returns the names of the value.
+     *
+     * @param value the comma separated names.
+     * @return the names.
+     */
+    private static Set<String> names(String value) {
+        Set<String> result = new TreeSet<>();
+        for (String item : value.split(LIST_SEPARATOR)) {
+            if (!item.isEmpty()) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reader of the entity state. The hash contains the bytecode of the entity class and the super classes,
+     * the embeddable classes, the attribute types and the converters which are not part of the JDK.
+     */
+    private static class EntityReader {
+
+        /**
+         * Hibernate class loader service.
+         */
+        private final ClassLoaderService classLoader;
+
+        /**
+         * Scope names of the tables of the mapping.
+         */
+        private final Map<Table, String> tableNames;
+
+        /**
+         * Fingerprint of the entity.
+         */
+        private final DiffFingerprint fingerprint = new DiffFingerprint();
+
+        /**
+         * Added classes.
+         */
+        private final Set<String> classes = new HashSet<>();
+
+        /**
+         * Tables of the entity.
+         */
+        private final Set<String> tables = new TreeSet<>();
+
+        /**
+         * Referenced entities.
+         */
+        private final Set<String> references = new TreeSet<>();
+
+        /**
+         * Default constructor.
+         *
+         * @param classLoader the Hibernate class loader service.
+         * @param tableNames  the scope names of the tables of the mapping.
+         */
+        EntityReader(ClassLoaderService classLoader, Map<Table, String> tableNames) {
+            this.classLoader = classLoader;
+            this.tableNames = tableNames;
+        }
+
+        /**
+         * Read the state of the entity.
+         *
+         * @param entity the entity mapping.
+         * @return the entity state.
+         */
+        Entity read(PersistentClass entity) {
+            fingerprint.add("entity", entity.getEntityName());
+            addClass(entity.getClassName());
+            addTable(entity.getTable());
+            addValue(entity.getIdentifier());
+            if (entity.getDiscriminator() != null) {
+                addValue(entity.getDiscriminator());
+            }
+            for (Join join : entity.getJoins()) {
+                addTable(join.getTable());
+                for (Property property : join.getProperties()) {
+                    addValue(property.getValue());
+                }
+            }
+            for (Property property : entity.getPropertyClosure()) {
+                addValue(property.getValue());
+            }
+            fingerprint.add("tables", tables);
+            return new Entity(fingerprint.toHex(), tables, references);
+        }
+
+        /**
+         * Add the value of the attribute.
+         *
+         * @param value the attribute value.
+         */
+        private void addValue(Value value) {
+            if (value instanceof Component component) {
+                addClass(component.getComponentClassName());
+                for (Property property : component.getProperties()) {
+                    addValue(property.getValue());
+                }
+            } else if (value instanceof Collection collection) {
+                addTable(collection.getCollectionTable());
+                addValue(collection.getElement());
+                if (collection instanceof IndexedCollection indexed) {
+                    addValue(indexed.getIndex());
+                }
+            } else if (value instanceof ToOne toOne) {
+                references.add(toOne.getReferencedEntityName());
+            } else if (value instanceof OneToMany oneToMany) {
+                references.add(oneToMany.getReferencedEntityName());
+            } else if (value instanceof SimpleValue simple) {
+                if (simple.getJpaAttributeConverterDescriptor() != null) {
+                    addClass(simple.getJpaAttributeConverterDescriptor().getAttributeConverterClass().getName());
+                }
+                try {
+                    addClass(simple.getType().getReturnedClass().getName());
+                } catch (RuntimeException ex) {
+                    fingerprint.add("type", simple.getTypeName());
+                }
+            }
+        }
+
+        /**
+         * Add the table of the entity.
+         *
+         * @param table the table.
+         */
+        private void addTable(Table table) {
+            String name = tableNames.get(table);
+            if (name != null) {
+                tables.add(name);
+            }
+        }
+
+        /**
+         * Add the bytecode of the class and its super classes.
+         *
+         * @param name the class name.
+         */
+        private void addClass(String name) {
+            if (name == null || name.startsWith("java.") || !classes.add(name)) {
+                return;
+            }
+            URL url = classLoader.locateResource(name.replace('.', '/') + ".class");
+            if (url == null) {
+                fingerprint.add(name, "-");
+                return;
+            }
+            try (InputStream input = url.openStream()) {
+                fingerprint.add(name, input);
+            } catch (IOException ex) {
+                fingerprint.add(name, "-");
+            }
+            try {
+                Class<?> superclass = classLoader.classForName(name).getSuperclass();
+                if (superclass != null) {
+                    addClass(superclass.getName());
+                }
+            } catch (ClassLoadingException ex) {
+                // the bytecode of the class is already in the fingerprint
+            }
+        }
+    }
+}
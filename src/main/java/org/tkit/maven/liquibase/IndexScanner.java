@@ -0,0 +1,286 @@
+package org.tkit.maven.liquibase;
+
+import jakarta.persistence.Converter;
+import org.hibernate.boot.archive.internal.UrlInputStreamAccess;
+import org.hibernate.boot.archive.scan.internal.ClassDescriptorImpl;
+import org.hibernate.boot.archive.scan.internal.MappingFileDescriptorImpl;
+import org.hibernate.boot.archive.scan.internal.PackageDescriptorImpl;
+import org.hibernate.boot.archive.scan.internal.ScanResultCollector;
+import org.hibernate.boot.archive.scan.internal.StandardScanner;
+import org.hibernate.boot.archive.scan.spi.ClassDescriptor;
+import org.hibernate.boot.archive.scan.spi.ScanEnvironment;
+import org.hibernate.boot.archive.scan.spi.ScanOptions;
+import org.hibernate.boot.archive.scan.spi.ScanParameters;
+import org.hibernate.boot.archive.scan.spi.ScanResult;
+import org.hibernate.boot.archive.scan.spi.Scanner;
+import org.hibernate.boot.archive.spi.ArchiveException;
+import org.jboss.jandex.DotName;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Hibernate scanner backed by the persistence classes index. The entities, embeddables, mapped superclasses
+ * and converters of the persistence unit URLs are read from the jandex index of the jar, the index cache
+ * or the persistence classes scan of the directory instead of the Hibernate scan of all class files.
+ * Packages and mapping files are found by the entry names. URLs which are not local files or directories
+ * are scanned by the Hibernate standard scanner.
+ */
+public class IndexScanner implements Scanner {
+
+    /**
+     * Converter annotation.
+     */
+    private static final DotName CONVERTER = DotName.createSimple(Converter.class.getName());
+
+    /**
+     * Class file suffix.
+     */
+    private static final String CLASS_SUFFIX = ".class";
+
+    /**
+     * Package info class file.
+     */
+    private static final String PACKAGE_INFO = "package-info.class";
+
+    /**
+     * Default JPA mapping file.
+     */
+    private static final String ORM_XML = "META-INF/orm.xml";
+
+    /**
+     * Hibernate mapping file suffix.
+     */
+    private static final String HBM_XML = "hbm.xml";
+
+    /**
+     * The index cache of the jar files or {@code null} to read the jar files without cache.
+     */
+    private final JandexIndexCache cache;
+
+    /**
+     * Number of the persistence classes of the last scan.
+     */
+    private int located;
+
+    /**
+     * Default constructor.
+     *
+     * @param cache the index cache of the jar files or {@code null} to read the jar files without cache.
+     */
+    public IndexScanner(JandexIndexCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ScanResult scan(ScanEnvironment environment, ScanOptions options, ScanParameters parameters) {
+        Map<URL, Boolean> urls = new LinkedHashMap<>();
+        if (environment.getRootUrl() != null) {
+            urls.put(environment.getRootUrl(), true);
+        }
+        if (environment.getNonRootUrls() != null) {
+            environment.getNonRootUrls().forEach(url -> urls.putIfAbsent(url, false));
+        }
+
+        Map<Path, Boolean> elements = new LinkedHashMap<>();
+        for (Map.Entry<URL, Boolean> url : urls.entrySet()) {
+            Path path = toPath(url.getKey());
+            if (path == null) {
+                return new StandardScanner().scan(environment, options, parameters);
+            }
+            elements.put(path, url.getValue());
+        }
+
+        located = 0;
+        ScanResultCollector collector = new ScanResultCollector(environment, options, parameters);
+        for (Map.Entry<Path, Boolean> element : elements.entrySet()) {
+            try {
+                scan(element.getKey(), element.getValue(), environment, options, collector);
+            } catch (IOException ex) {
+                throw new ArchiveException("Error scanning " + element.getKey(), ex);
+            }
+        }
+        return collector.toScanResult();
+    }
+
+    /**
+     * Returns the number of the persistence classes found by the last scan.
+     *
+     * @return the number of the persistence classes.
+     */
+    public int getLocated() {
+        return located;
+    }
+
+    /**
+     * Scan the classpath element.
+     *
+     * @param element     the directory or the jar file.
+     * @param root        {@code true} for the persistence unit root.
+     * @param environment the scan environment.
+     * @param options     the scan options.
+     * @param collector   the scan result collector.
+     * @throws IOException if the element could not be read.
+     */
+    private void scan(Path element, boolean root, ScanEnvironment environment, ScanOptions options,
+                      ScanResultCollector collector) throws IOException {
+        if (!Files.exists(element)) {
+            return;
+        }
+
+        for (String name : names(element)) {
+            if (name.endsWith(PACKAGE_INFO)) {
+                if (name.length() > PACKAGE_INFO.length()) {
+                    String packageName = name.substring(0, name.lastIndexOf('/')).replace('/', '.');
+                    collector.handlePackage(new PackageDescriptorImpl(packageName, access(element, name)), root);
+                }
+            } else if (isMappingFile(name, environment, options)) {
+                collector.handleMappingFile(new MappingFileDescriptorImpl(name, access(element, name)), root);
+            }
+        }
+
+        for (Map.Entry<String, ClassDescriptor.Categorization> item : categories(classes(element)).entrySet()) {
+            String file = item.getKey().replace('.', '/') + CLASS_SUFFIX;
+            collector.handleClass(new ClassDescriptorImpl(item.getKey(), item.getValue(), access(element, file)), root);
+            located++;
+        }
+    }
+
+    /**
+     * Returns the persistence classes of the classpath element. Directories are always scanned,
+     * the jandex index of the directory may be stale during the compile phase.
+     *
+     * @param element the directory or the jar file.
+     * @return the persistence classes.
+     * @throws IOException if the element could not be read.
+     */
+    private PersistenceClasses classes(Path element) throws IOException {
+        if (Files.isDirectory(element)) {
+            return JandexIndexCache.scanDirectory(element);
+        }
+        if (cache != null) {
+            return cache.get(element).classes();
+        }
+        PersistenceClasses result = JandexIndexCache.readIndex(element);
+        return result != null ? result : JandexIndexCache.scanJar(element);
+    }
+
+    /**
+     * Returns the Hibernate categorization of the persistence classes.
+     * The entities, embeddables and mapped superclasses are model classes, the other converters are converters.
+     *
+     * @param items the persistence classes.
+     * @return the categorization by class name.
+     */
+    private static Map<String, ClassDescriptor.Categorization> categories(PersistenceClasses items) {
+        Map<String, ClassDescriptor.Categorization> result = new LinkedHashMap<>();
+        for (DotName annotation : PersistenceClasses.ANNOTATIONS) {
+            if (!annotation.equals(CONVERTER)) {
+                items.get(annotation).forEach(name -> result.put(name, ClassDescriptor.Categorization.MODEL));
+            }
+        }
+        items.get(CONVERTER).forEach(name -> result.putIfAbsent(name, ClassDescriptor.Categorization.CONVERTER));
+        return result;
+    }
+
+    /**
+     * Check if the entry could be a mapping file of the persistence unit.
+     *
+     * @param name        the entry name.
+     * @param environment the scan environment.
+     * @param options     the scan options.
+     * @return {@code true} for the mapping file.
+     */
+    @SuppressWarnings("deprecation")
+    private static boolean isMappingFile(String name, ScanEnvironment environment, ScanOptions options) {
+        if (name.endsWith(HBM_XML)) {
+            // the option has no replacement, the ScanResultCollector of hibernate uses it the same way
+            return options.canDetectHibernateMappingFiles();
+        }
+        return name.endsWith(ORM_XML) || environment.getExplicitlyListedMappingFiles().contains(name);
+    }
+
+    /**
+     * Returns the names of the files of the classpath element without reading them.
+     *
+     * @param element the directory or the jar file.
+     * @return the entry names.
+     * @throws IOException if the element could not be read.
+     */
+    private static List<String> names(Path element) throws IOException {
+        if (Files.isDirectory(element)) {
+            try (Stream<Path> paths = Files.walk(element)) {
+                return paths.filter(Files::isRegularFile)
+                        .map(path -> element.relativize(path).toString().replace('\\', '/'))
+                        .toList();
+            }
+        }
+        List<String> result = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(element.toFile())) {
+            zip.stream().filter(entry -> !entry.isDirectory()).map(ZipEntry::getName).forEach(result::add);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the stream access of the entry.
+     *
+     * @param element the directory or the jar file.
+     * @param name    the entry name.
+     * @return the stream access.
+     * @throws MalformedURLException if the entry URL is not valid.
+     */
+    private static UrlInputStreamAccess access(Path element, String name) throws MalformedURLException {
+        if (Files.isDirectory(element)) {
+            return new UrlInputStreamAccess(element.resolve(name).toUri().toURL());
+        }
+        return new UrlInputStreamAccess(new URL("jar:" + element.toUri() + "!/" + name));
+    }
+
+    /**
+     * Returns the local path of the URL.
+     *
+     * @param url the persistence unit URL.
+     * @return the path or {@code null} if the URL is not a local file.
+     */
+    private static Path toPath(URL url) {
+        String value = url.toExternalForm();
+        if ("jar".equals(url.getProtocol())) {
+            int index = value.indexOf("!/");
+            if (index < 0 || index + 2 < value.length()) {
+                return null;
+            }
+            value = value.substring("jar:".length(), index);
+        }
+        if (!value.startsWith("file:")) {
+            return null;
+        }
+        try {
+            return Path.of(new URL(value).toURI());
+        } catch (MalformedURLException | URISyntaxException | IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return IndexScanner.class.getName() + "[cache=" + (cache != null) + "]";
+    }
+}
@@ -0,0 +1,365 @@
+package org.tkit.maven.liquibase;
+
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexReader;
+import org.jboss.jandex.Indexer;
+import org.jboss.jandex.MergeIndexer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Persistent cache of the persistence classes of the dependency jars.
+ * The cache entry of the jar is keyed by the jar path, size and last modified time.
+ * Jars without jandex index could be scanned, the result of the scan is also stored by the jar checksum.
+ */
+public class JandexIndexCache {
+
+    /**
+     * Cache file format version.
+     */
+    private static final String VERSION = "2";
+
+    /**
+     * Cache file suffix.
+     */
+    private static final String SUFFIX = ".classes";
+
+    /**
+     * Directory of the cache entries stored by the jar checksum.
+     */
+    private static final String CHECKSUM_DIRECTORY = "sha256";
+
+    /**
+     * Separator of the annotation and class name in the cache file.
+     */
+    private static final char SEPARATOR = '=';
+
+    /**
+     * Class file suffix.
+     */
+    private static final String CLASS_SUFFIX = ".class";
+
+    /**
+     * Multi-release jar versions directory.
+     */
+    private static final String VERSIONS_DIRECTORY = "META-INF/versions/";
+
+    /**
+     * Persistence annotations package in the class file constant pool.
+     */
+    private static final byte[] PERSISTENCE_PACKAGE = "Ljakarta/persistence/".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Source of the persistence classes.
+     */
+    public enum Source {
+
+        /**
+         * Read from jandex index.
+         */
+        INDEX,
+
+        /**
+         * Scanned jar classes.
+         */
+        SCAN,
+
+        /**
+         * Jar without index which was not scanned.
+         */
+        NONE
+    }
+
+    /**
+     * Cache directory.
+     */
+    private final Path directory;
+
+    /**
+     * Scan the jars without index.
+     */
+    private final boolean scan;
+
+    /**
+     * Default constructor.
+     *
+     * @param directory the cache directory.
+     * @param scan      scan the jars without jandex index.
+     */
+    public JandexIndexCache(Path directory, boolean scan) {
+        this.directory = directory;
+        this.scan = scan;
+    }
+
+    /**
+     * Result of the lookup of the classpath element.
+     *
+     * @param classes the persistence classes.
+     * @param source  the source of the persistence classes.
+     * @param cached  {@code true} if the result was loaded from the cache.
+     */
+    public record Result(PersistenceClasses classes, Source source, boolean cached) {
+    }
+
+    /**
+     * Returns the persistence classes of the classpath element. Jar files are read from the cache
+     * if the jar did not change, directories are always read from the index file.
+     *
+     * @param element the classpath element.
+     * @return the persistence classes.
+     * @throws IOException if the index could not be read.
+     */
+    public Result get(Path element) throws IOException {
+        if (Files.isDirectory(element)) {
+            return new Result(readIndex(element), Source.INDEX, false);
+        }
+        if (!Files.isRegularFile(element)) {
+            return new Result(new PersistenceClasses(), Source.NONE, false);
+        }
+
+        String key = key(element);
+        Path file = directory.resolve(new DiffFingerprint().add("path", element.toAbsolutePath()).toHex() + SUFFIX);
+        Result result = readCache(file, key);
+        if (result != null && (result.source() != Source.NONE || !scan)) {
+            return result;
+        }
+
+        PersistenceClasses classes = readIndex(element);
+        Source source = classes != null ? Source.INDEX : Source.NONE;
+        if (classes == null && scan) {
+            // jar without index, look for the same jar content scanned before
+            String checksum = new DiffFingerprint().addFile(element).toHex();
+            Path checksumFile = directory.resolve(CHECKSUM_DIRECTORY).resolve(checksum + SUFFIX);
+            Result scanned = readCache(checksumFile, checksum);
+            if (scanned != null) {
+                writeCache(file, key, scanned.source(), scanned.classes());
+                return scanned;
+            }
+            classes = scanJar(element);
+            source = Source.SCAN;
+            writeCache(checksumFile, checksum, source, classes);
+        }
+        if (classes == null) {
+            classes = new PersistenceClasses();
+        }
+        writeCache(file, key, source, classes);
+        return new Result(classes, source, false);
+    }
+
+    /**
+     * Read the jandex index of the classpath element.
+     *
+     * @param element the classpath element.
+     * @return the persistence classes of the index or {@code null} if the jar has no index.
+     * @throws IOException if the index could not be read.
+     */
+    public static PersistenceClasses readIndex(Path element) throws IOException {
+        if (Files.isDirectory(element)) {
+            Path index = element.resolve(MergeIndexer.INDEX);
+            if (!Files.isRegularFile(index)) {
+                return new PersistenceClasses();
+            }
+            try (InputStream input = Files.newInputStream(index)) {
+                return PersistenceClasses.of(read(input));
+            }
+        }
+        try (ZipFile zip = new ZipFile(element.toFile())) {
+            ZipEntry entry = zip.getEntry(MergeIndexer.INDEX);
+            if (entry == null) {
+                return null;
+            }
+            try (InputStream input = zip.getInputStream(entry)) {
+                return PersistenceClasses.of(read(input));
+            }
+        }
+    }
+
+    /**
+     * Scan the classes of the jar. The classes are streamed from the jar file without extracting them
+     * and only classes which reference the persistence annotations are indexed.
+     *
+     * @param element the jar file.
+     * @return the persistence classes of the jar.
+     * @throws IOException if the jar could not be read.
+     */
+    public static PersistenceClasses scanJar(Path element) throws IOException {
+        Indexer indexer = new Indexer();
+        try (ZipFile zip = new ZipFile(element.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.endsWith(CLASS_SUFFIX) || name.startsWith(VERSIONS_DIRECTORY)
+                        || name.endsWith("module-info.class")) {
+                    continue;
+                }
+                try (InputStream input = zip.getInputStream(entry)) {
+                    index(indexer, input.readAllBytes());
+                }
+            }
+        }
+        return PersistenceClasses.of(indexer.complete());
+    }
+
+    /**
+     * Scan the classes of the directory. Only classes which reference the persistence annotations are indexed.
+     *
+     * @param element the classes directory.
+     * @return the persistence classes of the directory.
+     * @throws IOException if the directory could not be read.
+     */
+    public static PersistenceClasses scanDirectory(Path element) throws IOException {
+        Indexer indexer = new Indexer();
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(element)) {
+            files = paths.filter(path -> {
+                String name = element.relativize(path).toString().replace('\\', '/');
+                return name.endsWith(CLASS_SUFFIX) && !name.startsWith(VERSIONS_DIRECTORY)
+                        && !name.endsWith("module-info.class") && Files.isRegularFile(path);
+            }).toList();
+        }
+        for (Path file : files) {
+            index(indexer, Files.readAllBytes(file));
+        }
+        return PersistenceClasses.of(indexer.complete());
+    }
+
+    /**
+     * Index the class if it references the persistence annotations.
+     *
+     * @param indexer the indexer.
+     * @param data    the class file.
+     * @throws IOException if the class could not be indexed.
+     */
+    private static void index(Indexer indexer, byte[] data) throws IOException {
+        if (contains(data, PERSISTENCE_PACKAGE)) {
+            indexer.index(new ByteArrayInputStream(data));
+        }
+    }
+
+    /**
+     * Check if the data contains the pattern.
+     *
+     * @param data    the data.
+     * @param pattern the pattern.
+     * @return {@code true} if the data contains the pattern.
+     */
+    private static boolean contains(byte[] data, byte[] pattern) {
+        int last = data.length - pattern.length;
+        byte first = pattern[0];
+        for (int i = 0; i <= last; i++) {
+            if (data[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < pattern.length && data[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the jandex index from the stream.
+     *
+     * @param input the input stream.
+     * @return the index.
+     * @throws IOException if the index could not be read.
+     */
+    private static Index read(InputStream input) throws IOException {
+        return new IndexReader(input).read();
+    }
+
+    /**
+     * Create the cache key of the jar.
+     *
+     * @param element the jar file.
+     * @return the cache key.
+     * @throws IOException if the file attributes could not be read.
+     */
+    private static String key(Path element) throws IOException {
+        return VERSION + ":" + element.toAbsolutePath() + ":" + Files.size(element) + ":" + Files.getLastModifiedTime(element).toMillis();
+    }
+
+    /**
+     * Read the cache file.
+     *
+     * @param file the cache file.
+     * @param key  the expected cache key.
+     * @return the cached result or {@code null} if the cache entry does not exist or is outdated.
+     */
+    private static Result readCache(Path file, String key) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!key.equals(reader.readLine())) {
+                return null;
+            }
+            Source source = Source.valueOf(reader.readLine());
+            PersistenceClasses classes = new PersistenceClasses();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int index = line.indexOf(SEPARATOR);
+                if (index > 0) {
+                    classes.add(line.substring(0, index), line.substring(index + 1));
+                }
+            }
+            return new Result(classes, source, true);
+        } catch (IOException | RuntimeException ex) {
+            // corrupted cache entry will be replaced
+            return null;
+        }
+    }
+
+    /**
+     * Write the cache file. The file is written to temporary file and moved to the target file.
+     *
+     * @param file    the cache file.
+     * @param key     the cache key.
+     * @param source  the source of the persistence classes.
+     * @param classes the persistence classes.
+     * @throws IOException if the cache file could not be written.
+     */
+    private static void writeCache(Path file, String key, Source source, PersistenceClasses classes) throws IOException {
+        Path parent = file.getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(key);
+                writer.newLine();
+                writer.write(source.name());
+                writer.newLine();
+                for (Map.Entry<String, List<String>> entry : classes.getClasses().entrySet()) {
+                    for (String className : entry.getValue()) {
+                        writer.write(entry.getKey());
+                        writer.write(SEPARATOR);
+                        writer.write(className);
+                        writer.newLine();
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
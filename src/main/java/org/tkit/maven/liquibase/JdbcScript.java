@@ -0,0 +1,71 @@
+package org.tkit.maven.liquibase;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Executes SQL script statements in JDBC batches inside one transaction.
+ */
+public class JdbcScript {
+
+    /**
+     * Default batch size.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * Private constructor.
+     */
+    private JdbcScript() {
+    }
+
+    /**
+     * Execute the statements in batches in one transaction.
+     *
+     * @param url        the database URL.
+     * @param username   the database username.
+     * @param password   the database password.
+     * @param statements the SQL statements.
+     * @param batchSize  the batch size.
+     * @throws SQLException if the execution of the statements failed.
+     */
+    public static void execute(String url, String username, String password, List<String> statements, int batchSize) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, username, password)) {
+            execute(connection, statements, batchSize);
+        }
+    }
+
+    /**
+     * Execute the statements in batches in one transaction.
+     *
+     * @param connection the database connection.
+     * @param statements the SQL statements.
+     * @param batchSize  the batch size.
+     * @throws SQLException if the execution of the statements failed.
+     */
+    public static void execute(Connection connection, List<String> statements, int batchSize) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            int count = 0;
+            for (String sql : statements) {
+                statement.addBatch(sql);
+                if (++count % batchSize == 0) {
+                    statement.executeBatch();
+                }
+            }
+            if (count % batchSize != 0) {
+                statement.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -4,40 +4,85 @@ package org.tkit.maven.liquibase;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.spi.PersistenceUnitTransactionType;
+import liquibase.CatalogAndSchema;
 import liquibase.Contexts;
 import liquibase.LabelExpression;
 import liquibase.Liquibase;
+import liquibase.Scope;
+import liquibase.ThreadLocalScopeManager;
+import liquibase.changelog.ChangeLogHistoryServiceFactory;
+import liquibase.changelog.ChangeSet;
+import liquibase.command.core.DiffCommandStep;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.diff.DiffGeneratorFactory;
+import liquibase.diff.DiffResult;
+import liquibase.diff.compare.CompareControl;
+import liquibase.diff.output.DiffOutputControl;
+import liquibase.diff.output.ObjectChangeFilter;
+import liquibase.diff.output.StandardObjectChangeFilter;
 import liquibase.exception.LiquibaseException;
+import liquibase.integration.commandline.CommandLineUtils;
+import liquibase.lockservice.LockServiceFactory;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.InvalidExampleException;
+import liquibase.structure.DatabaseObject;
+import liquibase.util.LiquibaseUtil;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MavenPluginManager;
 import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.PluginConfigurationException;
+import org.apache.maven.plugin.PluginContainerException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
+import org.hibernate.Version;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.spi.MetadataImplementor;
 import org.hibernate.boot.registry.classloading.internal.ClassLoaderServiceImpl;
 import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.jdbc.env.spi.JdbcEnvironment;
+import org.hibernate.engine.jdbc.internal.FormatStyle;
 import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
 import org.hibernate.jpa.boot.internal.ParsedPersistenceXmlDescriptor;
+import org.hibernate.jpa.boot.internal.PersistenceXmlParser;
 import org.hibernate.jpa.boot.spi.Bootstrap;
 import org.hibernate.tool.schema.Action;
+import org.hibernate.tool.schema.internal.ExceptionHandlerHaltImpl;
+import org.hibernate.tool.schema.internal.SchemaCreatorImpl;
+import org.hibernate.tool.schema.internal.exec.GenerationTarget;
+import org.hibernate.tool.schema.spi.ExceptionHandler;
+import org.hibernate.tool.schema.spi.ExecutionOptions;
 import org.jboss.jandex.DotName;
-import org.jboss.jandex.Index;
 import org.jboss.jandex.MergeIndexer;
 import org.liquibase.maven.plugins.LiquibaseDatabaseDiff;
 import org.liquibase.maven.plugins.MavenUtils;
-import org.testcontainers.DockerClientFactory;
-import org.testcontainers.containers.GenericContainer;
-import org.testcontainers.containers.PostgreSQLContainer;
-import org.testcontainers.utility.DockerImageName;
 
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -45,6 +90,8 @@ import java.util.stream.Stream;
  * Liquibase diff mojo
  */
 @Mojo(name = "diff", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true, requiresDependencyResolution = ResolutionScope.COMPILE)
+// the phase timers are closed by try-with-resources and not referenced in the block
+@SuppressWarnings("try")
 public class LiquibaseDiffMojo extends LiquibaseDatabaseDiff {
 
     /**
@@ -53,6 +100,24 @@ public class LiquibaseDiffMojo extends LiquibaseDatabaseDiff {
     @Parameter(name = "postgresVersion", property = "postgresVersion")
     protected String postgresVersion;
 
+    /**
+     * Database provider for the source and target database: testcontainers or embedded.
+     */
+    @Parameter(name = "databaseProvider", property = "liquibase.databaseProvider", defaultValue = "testcontainers")
+    protected String databaseProvider;
+
+    /**
+     * Start one database server with two databases for the source and target database.
+     */
+    @Parameter(name = "singleServer", property = "liquibase.singleServer", defaultValue = "false")
+    protected boolean singleServer;
+
+    /**
+     * Share one database server between all modules of the build, each module gets new databases.
+     */
+    @Parameter(name = "sharedServer", property = "liquibase.sharedServer", defaultValue = "false")
+    protected boolean sharedServer;
+
     /**
      * The liquibase changeLog file.
      */
@@ -78,157 +143,1522 @@ public class LiquibaseDiffMojo extends LiquibaseDatabaseDiff {
     protected boolean externalLibs;
 
     /**
-     * Show hibernate format SQL
+     * Cache the entities of the external libs per jar file.
+     */
+    @Parameter(name = "indexCache", property = "jandex.indexCache", defaultValue = "true")
+    protected boolean indexCache;
+
+    /**
+     * The cache directory for the entities of the external libs.
+     */
+    @Parameter(name = "indexCacheDirectory", property = "jandex.indexCacheDirectory", defaultValue = "${settings.localRepository}/.cache/tkit-liquibase/jandex")
+    protected String indexCacheDirectory;
+
+    /**
+     * The persistence annotations of the classes of the external libs: Entity, Embeddable, MappedSuperclass, Converter.
+     */
+    @Parameter(name = "persistenceAnnotations", property = "jandex.persistenceAnnotations", defaultValue = "Entity,Embeddable,MappedSuperclass,Converter")
+    protected String persistenceAnnotations;
+
+    /**
+     * Scan the external libs without jandex index for entities. Requires the index cache.
+     */
+    @Parameter(name = "indexDependencies", property = "jandex.indexDependencies", defaultValue = "false")
+    protected boolean indexDependencies;
+
+    /**
+     * Show hibernate format SQL
+     */
+    @Parameter(name = "formatSql", property = "liquibase.hibernate.formatSql", defaultValue = "true")
+    protected String formatSql;
+
+    /**
+     * Create the target database from the Hibernate metadata without the entity manager factory.
+     */
+    @Parameter(name = "metadataOnly", property = "liquibase.hibernate.metadataOnly", defaultValue = "false")
+    protected boolean metadataOnly;
+
+    /**
+     * Cache the Hibernate create script of the target database by the hash of the entity classes and the Hibernate settings.
+     */
+    @Parameter(name = "schemaCache", property = "liquibase.hibernate.schemaCache", defaultValue = "true")
+    protected boolean schemaCache;
+
+    /**
+     * The cache directory of the Hibernate create scripts.
+     */
+    @Parameter(name = "schemaCacheDirectory", property = "liquibase.hibernate.schemaCacheDirectory", defaultValue = "${project.build.directory}/liquibase-hibernate-schema")
+    protected String schemaCacheDirectory;
+
+    /**
+     * Find the Hibernate entities of the persistence unit in the persistence classes index instead of the Hibernate class scan.
+     */
+    @Parameter(name = "indexScanner", property = "liquibase.hibernate.indexScanner", defaultValue = "true")
+    protected boolean indexScanner;
+
+    /**
+     * Compare the Hibernate metadata with the liquibase changelog in memory without databases.
+     */
+    @Parameter(name = "offline", property = "liquibase.offline", defaultValue = "false")
+    protected boolean offline;
+
+    /**
+     * Restrict the database snapshots and the diff to the tables and sequences of the Hibernate mapping.
+     */
+    @Parameter(name = "entityScope", property = "liquibase.entityScope", defaultValue = "false")
+    protected boolean entityScope;
+
+    /**
+     * Comma separated names or patterns of the additional objects of the entity scope.
+     */
+    @Parameter(name = "entityScopeIncludes", property = "liquibase.entityScopeIncludes")
+    protected String entityScopeIncludes;
+
+    /**
+     * Comma separated names or patterns of the objects excluded from the entity scope.
+     */
+    @Parameter(name = "entityScopeExcludes", property = "liquibase.entityScopeExcludes")
+    protected String entityScopeExcludes;
+
+    /**
+     * Compare only the objects of the changed entities and changeSets and merge the result into the last output file.
+     */
+    @Parameter(name = "incremental", property = "liquibase.incremental", defaultValue = "false")
+    protected boolean incremental;
+
+    /**
+     * Persistence units or tenant schemas compared in one execution against one database server.
+     */
+    @Parameter(name = "units")
+    protected List<DiffUnit> units;
+
+    /**
+     * The maximum number of units compared in parallel.
+     */
+    @Parameter(name = "unitThreads", property = "liquibase.unitThreads", defaultValue = "4")
+    protected int unitThreads;
+
+    /**
+     * Enable liquibase verbose
+     */
+    @Parameter(name = "liquibaseVerbose", property = "liquibase.verbose", defaultValue = "false")
+    protected boolean liquibaseVerbose;
+
+    /**
+     * Disable or enable the liquibase developer user name `dev`.
+     */
+    @Parameter(name = "liquibaseDevUser", property = "liquibase.verbose", defaultValue = "true")
+    protected boolean liquibaseDevUser;
+
+    /**
+     * Skip the diff if the entities, the changelog and the plugin versions did not change since the last run.
+     */
+    @Parameter(name = "fingerprintCache", property = "liquibase.fingerprintCache", defaultValue = "true")
+    protected boolean fingerprintCache;
+
+    /**
+     * The fingerprint file of the last diff run.
+     */
+    @Parameter(name = "fingerprintFile", property = "liquibase.fingerprintFile", defaultValue = "${project.build.directory}/liquibase-diff.fingerprint")
+    protected String fingerprintFile;
+
+    /**
+     * Restore the source database from the checkpoint of the changelog and apply only the new changesets.
+     */
+    @Parameter(name = "checkpoints", property = "liquibase.checkpoints", defaultValue = "false")
+    protected boolean checkpoints;
+
+    /**
+     * The source database checkpoint directory.
+     */
+    @Parameter(name = "checkpointDirectory", property = "liquibase.checkpointDirectory", defaultValue = "${settings.localRepository}/.cache/tkit-liquibase/checkpoints/${project.groupId}/${project.artifactId}")
+    protected String checkpointDirectory;
+
+    /**
+     * The maximum number of the stored source database checkpoints.
+     */
+    @Parameter(name = "maxCheckpoints", property = "liquibase.maxCheckpoints", defaultValue = "3")
+    protected int maxCheckpoints;
+
+    /**
+     * Apply the pending changesets to the source database as one SQL script in batches of one transaction.
+     * The script is rendered once and stored by the hash of the changesets in the {@code checkpointDirectory}.
+     */
+    @Parameter(name = "bulkUpdate", property = "liquibase.bulkUpdate", defaultValue = "false")
+    protected boolean bulkUpdate;
+
+    /**
+     * Cache the parsed XML changelog files by the file content and parse the included files of the changelog in parallel.
+     */
+    @Parameter(name = "changeLogCache", property = "liquibase.changeLogCache", defaultValue = "true")
+    protected boolean changeLogCache;
+
+    /**
+     * The cache directory of the parsed XML changelog files.
+     */
+    @Parameter(name = "changeLogCacheDirectory", property = "liquibase.changeLogCacheDirectory", defaultValue = "${settings.localRepository}/.cache/tkit-liquibase/changelogs")
+    protected String changeLogCacheDirectory;
+
+    /**
+     * Write the phase report with the timing and the counters of the execution.
+     */
+    @Parameter(name = "report", property = "liquibase.report", defaultValue = "true")
+    protected boolean report;
+
+    /**
+     * The phase report file.
+     */
+    @Parameter(name = "reportFile", property = "liquibase.reportFile", defaultValue = "${project.build.directory}/liquibase-diff-report.json")
+    protected String reportFile;
+
+    /**
+     * Plugin properties, passed to the Hibernate settings and the liquibase configuration of the execution.
+     */
+    @Parameter(name = "properties")
+    protected Properties properties;
+
+    /**
+     * The project being built.
+     */
+    @Parameter(readonly = true, required = true, defaultValue = "${project}")
+    private MavenProject currentProject;
+
+
+    @Parameter(readonly = true, required = true, defaultValue = "${session}")
+    protected MavenSession currentSession;
+
+    @Parameter(readonly = true, required = true, defaultValue = "${mojoExecution}")
+    protected MojoExecution currentMojoExecution;
+
+    /**
+     * Log line.
+     */
+    private static final String LOG_LINE = "--------------------------------------------------------------";
+
+    /**
+     * Source database name in the single server mode.
+     */
+    protected static final String LIQUIBASE_DATABASE = "liquibase_state";
+
+    /**
+     * Target database name in the single server mode.
+     */
+    protected static final String HIBERNATE_DATABASE = "hibernate_state";
+
+    /**
+     * Offline database URL of the offline diff.
+     */
+    private static final String OFFLINE_URL = "offline:postgresql";
+
+    /**
+     * Changeset author of the liquibase developer user.
+     */
+    private static final String DEV_USER = "dev (generated)";
+
+    /**
+     * Database schema of the offline diff.
+     */
+    private static final String OFFLINE_SCHEMA = "public";
+
+    /**
+     * The persistence units descriptor.
+     */
+    private static final String PERSISTENCE_XML = "META-INF/persistence.xml";
+
+    /**
+     * Prefixes of the persistence unit properties which are replaced by the plugin settings.
+     */
+    private static final List<String> PLUGIN_SETTINGS = List.of("hibernate.hbm2ddl.", "hibernate.connection.",
+            "jakarta.persistence.schema-generation.", "javax.persistence.schema-generation.",
+            "jakarta.persistence.jdbc.", "javax.persistence.jdbc.");
+
+    /**
+     * Prefixes of the plugin properties which change the Hibernate schema creation, the schema is not cached with these settings.
+     */
+    private static final List<String> SCHEMA_SETTINGS = List.of("hibernate.hbm2ddl.", "jakarta.persistence.schema-generation.",
+            "javax.persistence.schema-generation.", "jakarta.persistence.sql-load-script-source", "javax.persistence.sql-load-script-source");
+
+    /**
+     * Hibernate import script executed by the schema creation of the entity manager factory.
+     */
+    private static final String IMPORT_SQL = "import.sql";
+
+    /**
+     * Maximum number of the cached Hibernate schemas.
+     */
+    private static final int MAX_SCHEMAS = 20;
+
+    /**
+     * Entities from the external libraries.
+     */
+    private List<String> externalEntities;
+
+    /**
+     * Phase report of the execution, shared by the units.
+     */
+    private PhaseReport phaseReport;
+
+    /**
+     * State of the diff execution of the project or the unit.
+     */
+    private DiffExecution execution = new DiffExecution(null);
+
+    /**
+     * Plugin manager to create the mojo of each diff unit.
+     */
+    @Component
+    private MavenPluginManager pluginManager;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        configure();
+        startReport("diff");
+        try {
+            executeDiffGoal();
+        } finally {
+            writeReport();
+        }
+    }
+
+    /**
+     * Set the liquibase mojo settings from the plugin parameters.
+     */
+    private void configure() {
+        logLevel = "INFO";
+        verbose = liquibaseVerbose;
+        diffChangeLogFile = outputFile;
+        changeLogFile = liquibaseChangeLogFile;
+        project = currentProject;
+        session = currentSession;
+        mojoExecution = currentMojoExecution;
+        analyticsEnabled = false;
+        if (liquibaseDevUser && changeSetAuthor == null) {
+            changeSetAuthor = DEV_USER;
+        }
+    }
+
+    /**
+     * Execute the diff goal.
+     *
+     * @throws MojoExecutionException if the method fails.
+     * @throws MojoFailureException   if the method fails.
+     */
+    protected void executeDiffGoal() throws MojoExecutionException, MojoFailureException {
+        String fingerprint = null;
+        if (fingerprintCache) {
+            try (PhaseReport.Phase ignored = phase("fingerprint")) {
+                fingerprint = createFingerprint();
+            }
+            if (isUpToDate(fingerprint)) {
+                getLog().info("Entities and liquibase changes did not change. Reusing the diff output: " + String.join(", ", outputFiles()));
+                return;
+            }
+        }
+
+        if (units != null && !units.isEmpty()) {
+            executeUnits();
+            if (fingerprint != null) {
+                writeFingerprint(fingerprint);
+            }
+            return;
+        }
+
+        if (offline) {
+            executeOffline();
+            if (fingerprint != null) {
+                writeFingerprint(fingerprint);
+            }
+            return;
+        }
+
+        getLog().info(LOG_LINE);
+        getLog().info("Start databases. Provider: " + databaseProvider + ", single server: " + singleServer
+                + ", shared server: " + sharedServer);
+        getLog().info(LOG_LINE);
+
+        DatabaseProviderType providerType = databaseProviderType();
+        boolean oneServer = singleServer || sharedServer;
+        String liquibaseDatabase = LIQUIBASE_DATABASE;
+        String hibernateDatabase = HIBERNATE_DATABASE;
+        DatabaseProvider liquibaseStateDB;
+        DatabaseProvider hibernateStateDB;
+        if (sharedServer) {
+            try (PhaseReport.Phase ignored = phase("database-start")) {
+                liquibaseStateDB = acquireSharedServer(providerType);
+            }
+            hibernateStateDB = liquibaseStateDB;
+            liquibaseDatabase = DatabaseServerPool.getInstance().databaseName(LIQUIBASE_DATABASE);
+            hibernateDatabase = DatabaseServerPool.getInstance().databaseName(HIBERNATE_DATABASE);
+        } else {
+            liquibaseStateDB = providerType.create(postgresVersion);
+            hibernateStateDB = singleServer ? liquibaseStateDB : providerType.create(postgresVersion);
+        }
+
+        try {
+
+            // start databases
+            if (sharedServer) {
+                createDatabases(liquibaseStateDB, liquibaseDatabase, hibernateDatabase);
+            } else if (singleServer) {
+                startDatabases(liquibaseStateDB);
+                createDatabases(liquibaseStateDB, liquibaseDatabase, hibernateDatabase);
+            } else {
+                startDatabases(liquibaseStateDB, hibernateStateDB);
+            }
+            useDatabases(liquibaseStateDB, oneServer ? liquibaseDatabase : null,
+                    hibernateStateDB, oneServer ? hibernateDatabase : null);
+
+            executeDiff();
+            if (fingerprint != null) {
+                writeFingerprint(fingerprint);
+            }
+        } finally {
+            if (sharedServer) {
+                dropDatabases(liquibaseStateDB, liquibaseDatabase, hibernateDatabase);
+            } else {
+                Stream.of(liquibaseStateDB, hibernateStateDB).distinct().parallel().forEach(DatabaseProvider::stop);
+            }
+        }
+    }
+
+    /**
+     * Set the connection of the source and target database.
+     *
+     * @param source        the source database server.
+     * @param sourceName    the source database name or {@code null} for the default database of the server.
+     * @param reference     the target database server.
+     * @param referenceName the target database name or {@code null} for the default database of the server.
+     */
+    protected void useDatabases(DatabaseProvider source, String sourceName, DatabaseProvider reference, String referenceName) {
+        username = source.getUsername();
+        password = source.getPassword();
+        url = sourceName != null ? source.getJdbcUrl(sourceName) : source.getJdbcUrl();
+        execution.setSourceDatabase(source);
+        execution.setSourceDatabaseName(sourceName != null ? sourceName : source.getDatabaseName());
+
+        referenceUsername = reference.getUsername();
+        referencePassword = reference.getPassword();
+        referenceUrl = referenceName != null ? reference.getJdbcUrl(referenceName) : reference.getJdbcUrl();
+    }
+
+    /**
+     * Create the target database from Hibernate and execute the liquibase diff with the source database.
+     *
+     * @throws MojoExecutionException if the method fails.
+     * @throws MojoFailureException   if the method fails.
+     */
+    protected void executeDiff() throws MojoExecutionException, MojoFailureException {
+        getLog().info(LOG_LINE);
+        getLog().info("Execute target database update from Hibernate." + unitLog());
+        getLog().info(LOG_LINE);
+        if (createCachedSchema(referenceUsername, referencePassword, referenceUrl)) {
+            executeLiquibase();
+        } else if (metadataOnly) {
+            try (PhaseReport.Phase ignored = phase("hibernate-bootstrap")) {
+                createHibernateSchema(referenceUsername, referencePassword, referenceUrl);
+            }
+            executeLiquibase();
+        } else {
+            EntityManagerFactory ef;
+            try (PhaseReport.Phase ignored = phase("hibernate-bootstrap")) {
+                ef = startHibernate(referenceUsername, referencePassword, referenceUrl);
+            }
+            try (ef; EntityManager em = ef.createEntityManager()) {
+                getLog().info("EntityManager entities: " + em.getMetamodel().getEntities());
+                count("entities", em.getMetamodel().getEntities().size());
+                executeLiquibase();
+            }
+        }
+        getLog().info(LOG_LINE);
+        getLog().info("Finished target database update from Hibernate." + unitLog());
+        getLog().info(LOG_LINE);
+    }
+
+    /**
+     * Execute the diff of all units in parallel. The units share one database server,
+     * each unit creates its own source and target database. Each unit thread has its own
+     * liquibase scope manager, the scopes of the units are not visible to the other units.
+     *
+     * @throws MojoExecutionException if the method fails.
+     * @throws MojoFailureException   if the method fails.
+     */
+    @SuppressWarnings("deprecation")
+    private void executeUnits() throws MojoExecutionException, MojoFailureException {
+        Set<String> ids = new HashSet<>();
+        for (DiffUnit item : units) {
+            if (item.getName() == null || item.getName().isBlank()) {
+                throw new MojoExecutionException("Diff unit without name: " + item);
+            }
+            if (!ids.add(item.databaseId())) {
+                throw new MojoExecutionException("Duplicate diff unit name: " + item.getName());
+            }
+        }
+
+        getLog().info(LOG_LINE);
+        getLog().info("Execute diff of the units: " + units.stream().map(DiffUnit::getName).toList() + ", offline: " + offline
+                + ", provider: " + databaseProvider + ", shared server: " + sharedServer + ", threads: " + unitThreads);
+        getLog().info(LOG_LINE);
+
+        // scan the external libraries once for all units
+        if (externalLibs) {
+            getExternalEntities();
+        }
+
+        DatabaseProvider server = null;
+        if (!offline) {
+            DatabaseProviderType providerType = databaseProviderType();
+            if (sharedServer) {
+                try (PhaseReport.Phase ignored = phase("database-start")) {
+                    server = acquireSharedServer(providerType);
+                }
+            } else {
+                server = providerType.create(postgresVersion);
+                startDatabases(server);
+            }
+        }
+
+        Scope rootScope = Scope.getCurrentScope();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(unitThreads, units.size())));
+        List<LiquibaseDiffMojo> mojos = new ArrayList<>();
+        try {
+            Map<String, Future<?>> futures = new LinkedHashMap<>();
+            for (DiffUnit item : units) {
+                LiquibaseDiffMojo mojo = forUnit(item);
+                mojos.add(mojo);
+                DatabaseProvider unitServer = server;
+                futures.put(item.getName(), executor.submit(() -> {
+                    Scope.setScopeManager(new ThreadLocalScopeManager(rootScope));
+                    mojo.executeUnit(unitServer);
+                    return null;
+                }));
+            }
+            List<String> failed = new ArrayList<>();
+            for (Map.Entry<String, Future<?>> item : futures.entrySet()) {
+                try {
+                    item.getValue().get();
+                } catch (ExecutionException ex) {
+                    getLog().error("Error executing the diff of the unit " + item.getKey(), ex.getCause());
+                    failed.add(item.getKey());
+                }
+            }
+            if (!failed.isEmpty()) {
+                throw new MojoExecutionException("Error executing the diff of the units: " + failed);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Diff of the units was interrupted.", ex);
+        } finally {
+            executor.shutdownNow();
+            mojos.forEach(mojo -> pluginManager.releaseMojo(mojo, currentMojoExecution));
+            if (server != null && !sharedServer) {
+                server.stop();
+            }
+        }
+    }
+
+    /**
+     * Execute the diff of the unit in its own databases on the running database server.
+     *
+     * @param server the database server or {@code null} for the offline diff.
+     * @throws MojoExecutionException if the method fails.
+     * @throws MojoFailureException   if the method fails.
+     */
+    private void executeUnit(DatabaseProvider server) throws MojoExecutionException, MojoFailureException {
+        if (server == null) {
+            executeOffline();
+            return;
+        }
+        DiffUnit unit = execution.getUnit();
+        String liquibaseDatabase = LIQUIBASE_DATABASE + "_" + unit.databaseId();
+        String hibernateDatabase = HIBERNATE_DATABASE + "_" + unit.databaseId();
+        if (sharedServer) {
+            liquibaseDatabase = DatabaseServerPool.getInstance().databaseName(liquibaseDatabase);
+            hibernateDatabase = DatabaseServerPool.getInstance().databaseName(hibernateDatabase);
+        }
+        createDatabases(server, liquibaseDatabase, hibernateDatabase);
+        try {
+            if (unit.getSchema() != null) {
+                for (String database : List.of(liquibaseDatabase, hibernateDatabase)) {
+                    try {
+                        server.createSchema(database, unit.getSchema());
+                    } catch (SQLException ex) {
+                        throw new MojoExecutionException("Error creating the schema " + unit.getSchema() + " in the database " + database, ex);
+                    }
+                }
+            }
+            username = server.getUsername();
+            password = server.getPassword();
+            url = server.getJdbcUrl(liquibaseDatabase);
+            execution.setSourceDatabase(server);
+            execution.setSourceDatabaseName(liquibaseDatabase);
+
+            referenceUsername = server.getUsername();
+            referencePassword = server.getPassword();
+            referenceUrl = server.getJdbcUrl(hibernateDatabase);
+
+            executeDiff();
+        } finally {
+            dropDatabases(server, liquibaseDatabase, hibernateDatabase);
+        }
+    }
+
+    /**
+     * Returns the mojo of the diff unit. The mojo is configured by maven with the parameters of this execution
+     * and has its own execution state, connection, changelog and output settings, the units are executed in parallel.
+     * The phase report and the entities of the external libraries are shared with this mojo.
+     *
+     * @param item the diff unit.
+     * @return the mojo of the unit.
+     * @throws MojoExecutionException if the mojo could not be created.
+     */
+    private LiquibaseDiffMojo forUnit(DiffUnit item) throws MojoExecutionException {
+        LiquibaseDiffMojo result;
+        try {
+            result = (LiquibaseDiffMojo) pluginManager.getConfiguredMojo(org.apache.maven.plugin.Mojo.class,
+                    currentSession, currentMojoExecution);
+        } catch (PluginConfigurationException | PluginContainerException ex) {
+            throw new MojoExecutionException("Error creating the diff of the unit " + item.getName(), ex);
+        }
+        result.configure();
+        result.execution = new DiffExecution(item);
+        result.phaseReport = phaseReport;
+        result.externalEntities = externalEntities;
+        if (item.getChangeLogFile() != null) {
+            result.liquibaseChangeLogFile = item.getChangeLogFile();
+            result.changeLogFile = item.getChangeLogFile();
+        }
+        result.outputFile = unitOutputFile(item);
+        result.diffChangeLogFile = result.outputFile;
+        if (item.getSchema() != null) {
+            result.defaultSchemaName = item.getSchema();
+            result.referenceDefaultSchemaName = item.getSchema();
+        }
+        if (item.getProperties() != null) {
+            result.properties = new Properties();
+            if (properties != null) {
+                result.properties.putAll(properties);
+            }
+            result.properties.putAll(item.getProperties());
+        }
+        result.checkpointDirectory = Path.of(checkpointDirectory).resolve(item.databaseId()).toString();
+        return result;
+    }
+
+    /**
+     * Returns the output file of the unit.
+     *
+     * @param item the diff unit.
+     * @return the output file of the unit.
+     */
+    private String unitOutputFile(DiffUnit item) {
+        if (item.getOutputFile() != null) {
+            return item.getOutputFile();
+        }
+        return Path.of(currentProject.getBuild().getDirectory()).resolve("liquibase-diff-" + item.databaseId() + "-changeLog.xml").toString();
+    }
+
+    /**
+     * Returns the unit suffix of the log messages.
+     *
+     * @return the unit suffix of the log messages.
+     */
+    private String unitLog() {
+        return execution.getUnit() != null ? " Unit: " + execution.getUnit().getName() : "";
+    }
+
+    /**
+     * Returns the database schema of the offline diff.
+     *
+     * @return the database schema of the offline diff.
+     */
+    private String offlineSchema() {
+        DiffUnit unit = execution.getUnit();
+        return unit != null && unit.getSchema() != null ? unit.getSchema() : OFFLINE_SCHEMA;
+    }
+
+    /**
+     * Execute the offline diff of the Hibernate metadata and the liquibase changelog without databases.
+     *
+     * @throws MojoExecutionException if the method fails.
+     * @throws MojoFailureException   if the method fails.
+     */
+    protected void executeOffline() throws MojoExecutionException, MojoFailureException {
+        username = "offline";
+        password = "offline";
+        url = OFFLINE_URL;
+        referenceUsername = username;
+        referencePassword = password;
+        referenceUrl = OFFLINE_URL;
+
+        getLog().info(LOG_LINE);
+        getLog().info("Execute offline diff of Hibernate metadata and liquibase changelog." + unitLog());
+        getLog().info(LOG_LINE);
+        executeLiquibase();
+    }
+
+    /**
+     * Execute the liquibase mojo. The plugin properties are set in the liquibase scope of the current thread
+     * instead of the system properties, the parallel module builds do not share the configuration.
+     *
+     * @throws MojoExecutionException if the method fails.
+     * @throws MojoFailureException   if the method fails.
+     */
+    private void executeLiquibase() throws MojoExecutionException, MojoFailureException {
+        Map<String, Object> scopeValues = new HashMap<>();
+        if (properties != null) {
+            properties.forEach((key, value) -> scopeValues.put(key.toString(), value));
+        }
+        ChangeLogParseCache cache = changeLogCache ? prefetchChangeLog() : null;
+        if (cache != null) {
+            scopeValues.put(ChangeLogParseCache.SCOPE_KEY, cache);
+        }
+        try {
+            Scope.child(scopeValues, () -> super.execute());
+        } catch (MojoExecutionException | MojoFailureException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new MojoExecutionException(ex.getMessage(), ex);
+        } finally {
+            if (cache != null) {
+                count("changeLogFilesParsed", cache.getParsed());
+                count("changeLogFilesCached", cache.getCached());
+                try {
+                    cache.prune();
+                } catch (IOException ex) {
+                    getLog().warn("Error removing the changelog cache files. Error: " + ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the changelog parse cache and parse the XML changelog with all included files in parallel.
+     *
+     * @return the changelog parse cache.
+     * @throws MojoExecutionException if the parsing was interrupted.
+     */
+    private ChangeLogParseCache prefetchChangeLog() throws MojoExecutionException {
+        ChangeLogParseCache cache = new ChangeLogParseCache(Path.of(changeLogCacheDirectory));
+        Path changeLog = changeLogPath();
+        if (!Files.isRegularFile(changeLog) || !liquibaseChangeLogFile.endsWith(".xml")) {
+            return cache;
+        }
+        try (PhaseReport.Phase ignored = phase("changelog-prefetch")) {
+            count("changeLogFiles", cache.prefetch(changeLog, ChangeLogParseCache.roots(currentProject),
+                    Runtime.getRuntime().availableProcessors()).size());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Parsing of the changelog was interrupted.", ex);
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the liquibase changelog file resolved against the project directory,
+     * the working directory of the maven process is shared by all modules of the build.
+     *
+     * @return the liquibase changelog file.
+     */
+    protected Path changeLogPath() {
+        return currentProject.getBasedir().toPath().resolve(liquibaseChangeLogFile);
+    }
+
+    /**
+     * Create the databases on the running database server.
+     *
+     * @param server    the database server.
+     * @param databases the database names.
+     * @throws MojoExecutionException if one of the databases could not be created.
+     */
+    protected void createDatabases(DatabaseProvider server, String... databases) throws MojoExecutionException {
+        try (PhaseReport.Phase ignored = phase("database-create")) {
+            for (String database : databases) {
+                try {
+                    server.createDatabase(database);
+                } catch (Exception ex) {
+                    throw new MojoExecutionException("Error creating the database " + database, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the databases of the module on the shared database server.
+     *
+     * @param server    the database server.
+     * @param databases the database names.
+     */
+    protected void dropDatabases(DatabaseProvider server, String... databases) {
+        for (String database : databases) {
+            try {
+                server.dropDatabase(database);
+            } catch (Exception ex) {
+                getLog().warn("Error dropping the database " + database, ex);
+            }
+        }
+    }
+
+    /**
+     * Returns the database provider type of the {@code databaseProvider} parameter.
+     *
+     * @return the database provider type.
+     * @throws MojoExecutionException if the provider type does not exist.
+     */
+    protected DatabaseProviderType databaseProviderType() throws MojoExecutionException {
+        DatabaseProviderType type = DatabaseProviderType.of(databaseProvider);
+        if (type == DatabaseProviderType.EMBEDDED && postgresVersion != null && !postgresVersion.isBlank()) {
+            getLog().warn("The embedded database provider ignores the postgresVersion '" + postgresVersion
+                    + "', the postgres version is set by the io.zonky.test.postgres:embedded-postgres-binaries-bom plugin dependency.");
+        }
+        return type;
+    }
+
+    /**
+     * Returns the shared database server of the build. The server is started by the first module.
+     *
+     * @param providerType the database provider type.
+     * @return the running database server.
+     * @throws MojoExecutionException if the database server could not be started.
+     */
+    private DatabaseProvider acquireSharedServer(DatabaseProviderType providerType) throws MojoExecutionException {
+        try {
+            return DatabaseServerPool.getInstance().acquire(currentSession, providerType, postgresVersion);
+        } catch (Exception ex) {
+            throw new MojoExecutionException("Error starting the shared database server.", ex);
+        }
+    }
+
+    /**
+     * Start the databases in parallel.
+     *
+     * @param databases the databases to start.
+     * @throws MojoExecutionException if one of the databases could not be started.
+     */
+    protected void startDatabases(DatabaseProvider... databases) throws MojoExecutionException {
+        try (PhaseReport.Phase ignored = phase("database-prepare")) {
+            for (DatabaseProvider database : databases) {
+                database.prepare();
+            }
+        } catch (Exception ex) {
+            throw new MojoExecutionException("Error preparing the database provider.", ex);
+        }
+        try (PhaseReport.Phase ignored = phase("database-start")) {
+            Stream.of(databases).parallel().forEach(database -> {
+                try {
+                    database.start();
+                } catch (RuntimeException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+        } catch (Exception ex) {
+            throw new MojoExecutionException("Error starting the databases.", ex);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void performLiquibaseTask(Liquibase liquibase) throws LiquibaseException {
+        if (offline) {
+            performOfflineDiff(liquibase);
+            return;
+        }
+        if (Files.exists(changeLogPath())) {
+            try (PhaseReport.Phase ignored = phase("changelog-parse")) {
+                count("changeSets", liquibase.getDatabaseChangeLog().getChangeSets().size());
+            }
+            getLog().info("--------------------------------------------------------------");
+            getLog().info("Execute source database update from file: " + liquibase.getChangeLogFile());
+            getLog().info("--------------------------------------------------------------");
+            int restored = 0;
+            if (checkpoints) {
+                restored = updateFromCheckpoint(liquibase);
+            } else {
+                try (PhaseReport.Phase ignored = phase("liquibase-update")) {
+                    update(liquibase);
+                }
+            }
+            count("changeSetsApplied", liquibase.getDatabase().getRanChangeSetList().size() - restored);
+        }
+        getLog().info("--------------------------------------------------------------");
+        getLog().info("Execute source-target database diff. Output: " + outputFile);
+        getLog().info("--------------------------------------------------------------");
+        performDiff(liquibase);
+    }
+
+    /**
+     * Compare the schema model of the Hibernate metadata with the schema model of the liquibase changelog
+     * and write the differences to the output file.
+     *
+     * @param liquibase the liquibase instance with the offline database.
+     * @throws LiquibaseException if the diff failed.
+     */
+    private void performOfflineDiff(Liquibase liquibase) throws LiquibaseException {
+        Database database = liquibase.getDatabase();
+        if (database.getDefaultSchemaName() == null) {
+            database.setDefaultSchemaName(offlineSchema());
+        }
+
+        OfflineSchema source = new OfflineSchema(database, offlineSchema());
+        if (Files.exists(changeLogPath())) {
+            getLog().info(LOG_LINE);
+            getLog().info("Read source schema from file: " + liquibase.getChangeLogFile());
+            getLog().info(LOG_LINE);
+            ChangeLogSchemaReader reader = new ChangeLogSchemaReader(source);
+            try (PhaseReport.Phase ignored = phase("changelog-read")) {
+                reader.read(liquibase.getDatabaseChangeLog());
+            }
+            count("changeSets", liquibase.getDatabaseChangeLog().getChangeSets().size());
+            reader.getWarnings().forEach(w -> getLog().warn("Change is not supported by the offline diff: " + w));
+        }
+
+        getLog().info(LOG_LINE);
+        getLog().info("Read target schema from Hibernate metadata.");
+        getLog().info(LOG_LINE);
+        OfflineSchema target = new OfflineSchema(database, offlineSchema());
+        try (PhaseReport.Phase ignored = phase("hibernate-metadata")) {
+            EntityManagerFactoryBuilderImpl builder = createEntityManagerFactoryBuilder(null, null, null, Action.NONE);
+            try {
+                MetadataImplementor metadata = builder.metadata();
+                getLog().info("Hibernate metadata entities: " + metadata.getEntityBindings().size());
+                count("entities", metadata.getEntityBindings().size());
+                new HibernateSchemaReader(target).read(metadata);
+                readMapping(metadata);
+            } finally {
+                builder.cancel();
+            }
+        } catch (MojoExecutionException ex) {
+            throw new LiquibaseException("Error reading the Hibernate metadata.", ex);
+        }
+
+        getLog().info(LOG_LINE);
+        getLog().info("Execute offline source-target diff. Output: " + outputFile);
+        getLog().info(LOG_LINE);
+        prepareIncrementalDiff(liquibase);
+        ObjectChangeFilter objectChangeFilter = createObjectChangeFilter();
+        CatalogAndSchema schema = new CatalogAndSchema(null, offlineSchema());
+        CompareControl compareControl = new CompareControl(new CompareControl.SchemaComparison[]{new CompareControl.SchemaComparison(schema, schema)},
+                DatabaseDiff.trimToNull(diffTypes));
+        DiffOutputControl diffOutputControl = new DiffOutputControl(diffIncludeCatalog, diffIncludeSchema, diffIncludeTablespace, null)
+                .addIncludedSchema(schema);
+        diffOutputControl.setObjectChangeFilter(objectChangeFilter);
+
+        try {
+            DiffResult diffResult;
+            try (PhaseReport.Phase ignored = phase("diff")) {
+                diffResult = DiffGeneratorFactory.getInstance().compare(target.toSnapshot(), source.toSnapshot(), compareControl);
+            }
+            countDiff(diffResult);
+            writeDiff(diffResult, diffOutputControl, database);
+        } catch (InvalidExampleException | IOException | ParserConfigurationException ex) {
+            throw new LiquibaseException("Error writing the offline diff.", ex);
+        }
+    }
+
+    /**
+     * Compare the source database with the target database and write the differences to the output file.
+     * The snapshots, the comparison and the serialization of the inherited diff are executed as separate phases.
+     *
+     * @param liquibase the liquibase instance of the source database.
+     * @throws LiquibaseException if the diff failed.
+     */
+    private void performDiff(Liquibase liquibase) throws LiquibaseException {
+        Database database = liquibase.getDatabase();
+        try (Database referenceDatabase = CommandLineUtils.createDatabaseObject(Scope.getCurrentScope().getClassLoader(),
+                referenceUrl, referenceUsername, referencePassword, referenceDriver, referenceDefaultCatalogName,
+                referenceDefaultSchemaName, outputDefaultCatalog, outputDefaultSchema, null, null, propertyProviderClass,
+                null, null, databaseChangeLogTableName, databaseChangeLogLockTableName)) {
+
+            getLog().info("Performing Diff on database " + database);
+            prepareIncrementalDiff(liquibase);
+            ObjectChangeFilter objectChangeFilter = createObjectChangeFilter();
+            CompareControl.SchemaComparison[] comparisons = CompareControl.computeSchemas(schemas, referenceSchemas, outputSchemas,
+                    defaultCatalogName, defaultSchemaName, referenceDefaultCatalogName, referenceDefaultSchemaName, database).finalSchemaComparisons;
+            String types = DatabaseDiff.trimToNull(diffTypes);
+            CompareControl compareControl = new CompareControl(comparisons, types);
+            Class<? extends DatabaseObject>[] snapshotTypes = DiffCommandStep.parseSnapshotTypes(types);
+
+            DatabaseSnapshot referenceSnapshot;
+            try (PhaseReport.Phase ignored = phase("snapshot-target")) {
+                referenceSnapshot = DatabaseDiff.snapshot(referenceDatabase, comparisons, true, objectChangeFilter, snapshotTypes);
+            }
+            DatabaseSnapshot comparisonSnapshot;
+            try (PhaseReport.Phase ignored = phase("snapshot-source")) {
+                comparisonSnapshot = DatabaseDiff.snapshot(database, comparisons, false, objectChangeFilter, snapshotTypes);
+            }
+            DiffResult diffResult;
+            try (PhaseReport.Phase ignored = phase("diff")) {
+                diffResult = DiffGeneratorFactory.getInstance().compare(referenceSnapshot, comparisonSnapshot, compareControl);
+            }
+            countDiff(diffResult);
+
+            DiffOutputControl diffOutputControl = DatabaseDiff.outputControl(comparisons, diffIncludeCatalog, diffIncludeSchema,
+                    diffIncludeTablespace);
+            diffOutputControl.setObjectChangeFilter(objectChangeFilter);
+            diffOutputControl.setReplaceIfExistsSet(useOrReplaceOption);
+            writeDiff(diffResult, diffOutputControl, referenceDatabase);
+        } catch (InvalidExampleException | IOException | ParserConfigurationException ex) {
+            throw new LiquibaseException("Error writing the database diff.", ex);
+        }
+    }
+
+    /**
+     * Write the differences to the output file.
+     *
+     * @param diffResult        the diff result.
+     * @param diffOutputControl the output control.
+     * @param referenceDatabase the reference database of the diff.
+     * @throws LiquibaseException           if the changelog could not be written.
+     * @throws IOException                  if the changelog could not be written.
+     * @throws ParserConfigurationException if the changelog could not be written.
+     */
+    private void writeDiff(DiffResult diffResult, DiffOutputControl diffOutputControl, Database referenceDatabase)
+            throws LiquibaseException, IOException, ParserConfigurationException {
+        Path output = Path.of(diffChangeLogFile);
+        Path previous = Path.of(diffChangeLogFile + ".previous");
+        if (execution.getIncrementalObjects() != null && Files.exists(output)) {
+            Files.move(output, previous, StandardCopyOption.REPLACE_EXISTING);
+        } else if (execution.getIncrementalState() != null) {
+            Files.deleteIfExists(output);
+        }
+        try (PhaseReport.Phase ignored = phase("serialization")) {
+            DatabaseDiff.write(diffResult, diffOutputControl, referenceDatabase, changeSetAuthor, runOnChangeTypes,
+                    replaceIfExistsTypes, diffChangeLogFile);
+        }
+        if (execution.getIncrementalState() != null) {
+            writeIncrementalDiff(diffResult, diffOutputControl, output, previous);
+        }
+        getLog().info("Differences written to Change Log File, " + diffChangeLogFile);
+    }
+
+    /**
+     * Merge the output of the incremental diff into the output of the last diff and write the incremental diff state.
+     *
+     * @param diffResult        the diff result.
+     * @param diffOutputControl the output control.
+     * @param output            the output file.
+     * @param previous          the output of the last diff.
+     * @throws LiquibaseException if the output could not be merged.
+     * @throws IOException        if the state file could not be written.
+     */
+    private void writeIncrementalDiff(DiffResult diffResult, DiffOutputControl diffOutputControl, Path output, Path previous)
+            throws LiquibaseException, IOException {
+        IncrementalDiff incrementalState = execution.getIncrementalState();
+        Set<String> incrementalObjects = execution.getIncrementalObjects();
+        if (incrementalObjects != null) {
+            try (PhaseReport.Phase ignored = phase("incremental-merge")) {
+                DiffChangeLogMerge merge = new DiffChangeLogMerge(diffResult, diffOutputControl);
+                merge.merge(previous, output, output, objects -> !incrementalState.isChanged(objects, incrementalObjects));
+                count("incrementalChangeSetsKept", merge.getKeptChangeSets());
+            } catch (XMLStreamException ex) {
+                throw new LiquibaseException("Error merging the incremental diff into the output file " + output, ex);
+            } finally {
+                Files.deleteIfExists(previous);
+            }
+        }
+        incrementalState.setOutput(new DiffFingerprint().addFile(output).toHex());
+        incrementalState.write(incrementalStatePath());
+    }
+
+    /**
+     * Returns the object filter of the entity scope and the diff include and exclude objects.
+     *
+     * @return the object filter or {@code null}.
+     * @throws LiquibaseException if both include and exclude objects are set.
+     */
+    private ObjectChangeFilter createObjectChangeFilter() throws LiquibaseException {
+        if (diffExcludeObjects != null && diffIncludeObjects != null) {
+            throw new LiquibaseException("Cannot specify both excludeObjects and includeObjects");
+        }
+        ObjectChangeFilter filter = null;
+        if (diffExcludeObjects != null) {
+            filter = new StandardObjectChangeFilter(StandardObjectChangeFilter.FilterType.EXCLUDE, diffExcludeObjects);
+        } else if (diffIncludeObjects != null) {
+            filter = new StandardObjectChangeFilter(StandardObjectChangeFilter.FilterType.INCLUDE, diffIncludeObjects);
+        }
+        ObjectChangeFilter result = execution.getScope() != null ? execution.getScope().and(filter) : filter;
+        if (execution.getIncrementalObjects() != null) {
+            return execution.getIncrementalState().scope(execution.getIncrementalObjects(), NamePatterns.of(entityScopeExcludes)).and(result);
+        }
+        return result;
+    }
+
+    /**
+     * Compare the incremental diff state with the state of the last diff and set the objects compared by the
+     * incremental diff. All objects are compared without the state of the last diff, if the plugin configuration
+     * changed, the output file was modified or the objects of a changed changeSet are unknown.
+     *
+     * @param liquibase the liquibase instance with the changelog.
+     * @throws LiquibaseException if the state of the last diff could not be read.
+     */
+    private void prepareIncrementalDiff(Liquibase liquibase) throws LiquibaseException {
+        execution.setIncrementalObjects(null);
+        IncrementalDiff incrementalState = execution.getIncrementalState();
+        if (incrementalState == null) {
+            return;
+        }
+        try (PhaseReport.Phase ignored = phase("incremental-state")) {
+            if (Files.exists(changeLogPath())) {
+                incrementalState.readChangeLog(liquibase.getDatabaseChangeLog().getChangeSets());
+            }
+            IncrementalDiff previous = IncrementalDiff.read(incrementalStatePath());
+            if (previous != null && new DiffFingerprint().addFile(Path.of(diffChangeLogFile)).toHex().equals(previous.getOutput())) {
+                execution.setIncrementalObjects(incrementalState.changedObjects(previous));
+            }
+        } catch (IOException ex) {
+            throw new LiquibaseException("Error reading the incremental diff state " + incrementalStatePath(), ex);
+        }
+        Set<String> incrementalObjects = execution.getIncrementalObjects();
+        if (incrementalObjects == null) {
+            getLog().info("Incremental diff: compare all objects.");
+        } else {
+            getLog().info("Incremental diff: compare objects " + incrementalObjects + " and the sequences.");
+            count("incrementalObjects", incrementalObjects.size());
+        }
+    }
+
+    /**
+     * Returns the state file of the incremental diff next to the output file.
+     *
+     * @return the state file.
+     */
+    private Path incrementalStatePath() {
+        return Path.of(diffChangeLogFile + ".incremental");
+    }
+
+    /**
+     * Add the number of the different objects to the report.
+     *
+     * @param diffResult the diff result.
+     */
+    private void countDiff(DiffResult diffResult) {
+        count("missingObjects", diffResult.getMissingObjects().size());
+        count("unexpectedObjects", diffResult.getUnexpectedObjects().size());
+        count("changedObjects", diffResult.getChangedObjects().size());
+    }
+
+    /**
+     * Apply the pending changesets to the source database, as bulk script if the bulk update is enabled.
+     *
+     * @param liquibase the liquibase instance.
+     * @throws LiquibaseException if the update failed.
+     */
+    private void update(Liquibase liquibase) throws LiquibaseException {
+        if (!bulkUpdate || !updateBulk(liquibase)) {
+            liquibase.update(new Contexts(), new LabelExpression());
+        }
+    }
+
+    /**
+     * Apply the pending changesets as one SQL script in batches of one transaction. The script is read
+     * from the script store or rendered from the changesets. The script also inserts the {@code DATABASECHANGELOG}
+     * rows, the database is in the same state as after the liquibase update.
+     *
+     * @param liquibase the liquibase instance.
+     * @return {@code false} if the changesets could not be applied as script and the liquibase update is required.
+     * @throws LiquibaseException if the pending changesets could not be read.
+     */
+    private boolean updateBulk(Liquibase liquibase) throws LiquibaseException {
+        Database database = liquibase.getDatabase();
+        List<ChangeSet> changeSets;
+        try (PhaseReport.Phase ignored = phase("bulk-plan")) {
+            changeSets = liquibase.listUnrunChangeSets(new Contexts(), new LabelExpression());
+        }
+        if (changeSets.isEmpty()) {
+            return true;
+        }
+
+        ChangeLogScripts store = new ChangeLogScripts(Path.of(checkpointDirectory), maxCheckpoints);
+        List<String> hashes = ChangeLogCheckpoints.prefixHashes("bulk:" + LiquibaseUtil.getBuildVersion() + ":"
+                + database.getShortName() + ":" + database.getRanChangeSetList().size(), changeSets);
+        String hash = hashes.get(hashes.size() - 1);
+        List<String> statements = null;
+        try {
+            statements = store.read(hash);
+        } catch (IOException ex) {
+            getLog().warn("Error reading the bulk update script " + hash, ex);
+        }
+        boolean cached = statements != null;
+        if (!cached) {
+            try (PhaseReport.Phase ignored = phase("bulk-render")) {
+                statements = ChangeLogScripts.render(changeSets, database);
+            } catch (ChangeLogScripts.UnsupportedChangeSetException ex) {
+                getLog().info("Bulk update is not supported for the " + ex.getMessage() + ". Execute liquibase update.");
+                Scope.getCurrentScope().getSingleton(ChangeLogHistoryServiceFactory.class).getChangeLogService(database).reset();
+                return false;
+            }
+        }
+
+        try (PhaseReport.Phase ignored = phase("bulk-execute")) {
+            JdbcScript.execute(((JdbcConnection) database.getConnection()).getUnderlyingConnection(), statements,
+                    JdbcScript.DEFAULT_BATCH_SIZE);
+        } catch (SQLException ex) {
+            getLog().warn("Bulk update failed, execute liquibase update. " + ex.getMessage());
+            return false;
+        } finally {
+            // the history service reads the changesets of the script on the next access
+            Scope.getCurrentScope().getSingleton(ChangeLogHistoryServiceFactory.class).getChangeLogService(database).reset();
+        }
+        getLog().info("Applied " + changeSets.size() + " changesets as bulk script of " + statements.size() + " statements"
+                + (cached ? " from " + checkpointDirectory : "") + ".");
+        count("bulkStatements", statements.size());
+
+        if (!cached) {
+            try {
+                store.write(hash, statements);
+            } catch (IOException ex) {
+                getLog().warn("Error writing the bulk update script " + hash, ex);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Restore the source database from the checkpoint of the longest changelog prefix,
+     * apply the remaining changesets and store the new checkpoint.
+     *
+     * @param liquibase the liquibase instance.
+     * @return the number of the changesets restored from the checkpoint.
+     * @throws LiquibaseException if the update failed.
+     */
+    private int updateFromCheckpoint(Liquibase liquibase) throws LiquibaseException {
+        DatabaseProvider sourceDatabase = execution.getSourceDatabase();
+        if (sourceDatabase == null || !sourceDatabase.isDumpSupported()) {
+            getLog().warn("Database provider " + databaseProvider + " does not support checkpoints. Execute full update.");
+            try (PhaseReport.Phase ignored = phase("liquibase-update")) {
+                update(liquibase);
+            }
+            return 0;
+        }
+
+        ChangeLogCheckpoints store = new ChangeLogCheckpoints(Path.of(checkpointDirectory), maxCheckpoints);
+        List<String> hashes = ChangeLogCheckpoints.prefixHashes(databaseProvider + ":" + postgresVersion,
+                liquibase.getDatabaseChangeLog().getChangeSets());
+
+        int restored = 0;
+        try (PhaseReport.Phase ignored = phase("checkpoint-restore")) {
+            ChangeLogCheckpoints.Checkpoint checkpoint = store.find(hashes);
+            if (checkpoint != null) {
+                sourceDatabase.restore(execution.getSourceDatabaseName(), checkpoint.file());
+                // reset only the services of this database, other modules of the build could run in parallel
+                LockServiceFactory.getInstance().getLockService(liquibase.getDatabase()).reset();
+                Scope.getCurrentScope().getSingleton(ChangeLogHistoryServiceFactory.class).getChangeLogService(liquibase.getDatabase()).reset();
+                restored = checkpoint.changeSets();
+            }
+        } catch (Exception ex) {
+            throw new LiquibaseException("Error restoring the source database checkpoint.", ex);
+        }
+        getLog().info("Restored changesets from checkpoint: " + restored + ", changesets to apply: " + (hashes.size() - restored));
+        count("changeSetsRestored", restored);
+
+        try (PhaseReport.Phase ignored = phase("liquibase-update")) {
+            update(liquibase);
+        }
+
+        if (hashes.isEmpty() || restored == hashes.size()) {
+            return restored;
+        }
+        try (PhaseReport.Phase ignored = phase("checkpoint-store")) {
+            Path file = store.file(hashes.get(hashes.size() - 1));
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            sourceDatabase.dump(execution.getSourceDatabaseName(), tmp);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            store.prune();
+            getLog().info("Stored source database checkpoint: " + file);
+        } catch (Exception ex) {
+            getLog().warn("Error storing the source database checkpoint.", ex);
+        }
+        return restored;
+    }
+
+    /**
+     * Start the Hibernate entity manager.
+     *
+     * @param username the database username.
+     * @param password the database password.
+     * @param url      the database URL.
+     * @return the corresponding entity manager.
+     * @throws MojoExecutionException if the method fails.
+     */
+    protected EntityManagerFactory startHibernate(String username, String password, String url) throws MojoExecutionException {
+        EntityManagerFactoryBuilderImpl builder = createEntityManagerFactoryBuilder(username, password, url, Action.CREATE_DROP);
+        HibernateMapping mapping = readMapping(builder.metadata());
+        EntityManagerFactory result = builder.build();
+        if (execution.getSchemaKey() != null) {
+            // the metadata contains the changes of the integrators applied by the build
+            writeCachedSchema(createSchemaScript(builder.metadata()), mapping);
+        }
+        return result;
+    }
+
+    /**
+     * Create the target database schema from the cached Hibernate create script if the entity classes
+     * and the Hibernate settings did not change. The mapping of the entity scope and the incremental diff
+     * is read from the cache.
+     *
+     * @param username the database username.
+     * @param password the database password.
+     * @param url      the database URL.
+     * @return {@code true} if the schema was created from the cache.
+     * @throws MojoExecutionException if the cache could not be read or the script failed.
+     */
+    private boolean createCachedSchema(String username, String password, String url) throws MojoExecutionException {
+        execution.setSchemaKey(null);
+        if (!schemaCache) {
+            return false;
+        }
+        String outputDirectory = currentProject.getBuild().getOutputDirectory();
+        if ((!metadataOnly && Files.exists(Path.of(outputDirectory, IMPORT_SQL))) || (properties != null
+                && properties.keySet().stream().anyMatch(key -> SCHEMA_SETTINGS.stream().anyMatch(key.toString()::startsWith)))) {
+            getLog().info("Hibernate schema cache is disabled by the import script or the schema generation settings.");
+            return false;
+        }
+        HibernateSchemaCache.Entry entry;
+        try (PhaseReport.Phase ignored = phase("hibernate-schema-cache")) {
+            DiffFingerprint fp = settingsFingerprint();
+            addClasspath(fp, LiquibaseDiffMojo::isSchemaFile);
+            execution.setSchemaKey(fp.toHex());
+            entry = new HibernateSchemaCache(Path.of(schemaCacheDirectory), MAX_SCHEMAS).read(execution.getSchemaKey());
+        } catch (IOException ex) {
+            throw new MojoExecutionException("Error reading the Hibernate schema cache " + schemaCacheDirectory, ex);
+        }
+        if (entry == null) {
+            count("schemaCached", 0);
+            return false;
+        }
+        getLog().info("Hibernate schema from cache: " + execution.getSchemaKey() + ", entities: " + entry.mapping().entityCount()
+                + ", DDL statements: " + entry.statements().size());
+        count("schemaCached", 1);
+        count("entities", entry.mapping().entityCount());
+        count("ddlStatements", entry.statements().size());
+        readMapping(entry.mapping());
+        try (PhaseReport.Phase ignored = phase("hibernate-schema")) {
+            JdbcScript.execute(url, username, password, entry.statements(), JdbcScript.DEFAULT_BATCH_SIZE);
+        } catch (SQLException ex) {
+            throw new MojoExecutionException("Error creating the target database schema from the Hibernate schema cache.", ex);
+        }
+        return true;
+    }
+
+    /**
+     * Store the Hibernate create script with the mapping in the cache.
+     *
+     * @param statements the DDL statements of the target database.
+     * @param mapping    the Hibernate mapping.
+     * @throws MojoExecutionException if the cache could not be written.
      */
-    @Parameter(name = "formatSql", property = "liquibase.hibernate.formatSql", defaultValue = "true")
-    protected String formatSql;
+    private void writeCachedSchema(List<String> statements, HibernateMapping mapping) throws MojoExecutionException {
+        try {
+            new HibernateSchemaCache(Path.of(schemaCacheDirectory), MAX_SCHEMAS).write(execution.getSchemaKey(), new HibernateSchemaCache.Entry(statements, mapping));
+        } catch (IOException ex) {
+            throw new MojoExecutionException("Error writing the Hibernate schema cache " + schemaCacheDirectory, ex);
+        }
+    }
 
     /**
-     * Enable liquibase verbose
+     * Read the entity scope and the incremental diff state of the Hibernate metadata.
+     *
+     * @param metadata the Hibernate metadata.
+     * @return the mapping of the Hibernate metadata.
+     * @throws MojoExecutionException if the incremental diff state could not be created.
      */
-    @Parameter(name = "liquibaseVerbose", property = "liquibase.verbose", defaultValue = "false")
-    protected boolean liquibaseVerbose;
+    private HibernateMapping readMapping(MetadataImplementor metadata) throws MojoExecutionException {
+        HibernateMapping mapping;
+        try (PhaseReport.Phase ignored = phase("hibernate-mapping")) {
+            mapping = HibernateMapping.of(metadata, incremental);
+        }
+        readMapping(mapping);
+        return mapping;
+    }
 
     /**
-     * Disable or enable the liquibase developer user name `dev`.
+     * Read the entity scope and the incremental diff state of the Hibernate mapping.
+     *
+     * @param mapping the Hibernate mapping.
+     * @throws MojoExecutionException if the incremental diff state could not be created.
      */
-    @Parameter(name = "liquibaseDevUser", property = "liquibase.verbose", defaultValue = "true")
-    protected boolean liquibaseDevUser;
+    private void readMapping(HibernateMapping mapping) throws MojoExecutionException {
+        readEntityScope(mapping);
+        readIncrementalState(mapping);
+    }
 
     /**
-     * Plugin properties
+     * Create the incremental diff state of the Hibernate mapping if the incremental diff is enabled.
+     *
+     * @param mapping the Hibernate mapping.
+     * @throws MojoExecutionException if the fingerprint of the mapping files could not be created.
      */
-    @Parameter(name = "properties")
-    protected Properties properties;
+    private void readIncrementalState(HibernateMapping mapping) throws MojoExecutionException {
+        if (!incremental) {
+            return;
+        }
+        try {
+            DiffFingerprint base = settingsFingerprint()
+                    .add("changeLogFile", liquibaseChangeLogFile)
+                    .addDirectory(Path.of(currentProject.getBuild().getOutputDirectory(), "META-INF"), Files::isRegularFile);
+            execution.setIncrementalState(IncrementalDiff.of(base.toHex(), mapping));
+        } catch (IOException ex) {
+            throw new MojoExecutionException("Error creating the incremental diff state.", ex);
+        }
+        count("incrementalEntities", execution.getIncrementalState().getEntities());
+    }
 
     /**
-     * The project being built.
+     * Read the database objects of the Hibernate mapping if the entity scope is enabled.
+     *
+     * @param mapping the Hibernate mapping.
      */
-    @Parameter(readonly = true, required = true, defaultValue = "${project}")
-    private MavenProject currentProject;
-
-
-    @Parameter(readonly = true, required = true, defaultValue = "${session}")
-    protected MavenSession currentSession;
-
-    @Parameter(readonly = true, required = true, defaultValue = "${mojoExecution}")
-    protected MojoExecution currentMojoExecution;
+    private void readEntityScope(HibernateMapping mapping) {
+        if (!entityScope) {
+            return;
+        }
+        EntityScope scope = EntityScope.of(mapping.tables(), mapping.sequences(), mapping.schemas(),
+                NamePatterns.of(entityScopeIncludes), NamePatterns.of(entityScopeExcludes));
+        execution.setScope(scope);
+        getLog().info("Entity scope: " + scope);
+        count("scopeTables", scope.getTables().size());
+        count("scopeSequences", scope.getSequences().size());
+    }
 
     /**
-     * Log line.
+     * Create the target database schema from the Hibernate metadata without the entity manager factory.
+     * The create script is rendered by the Hibernate schema tooling and executed in JDBC batches.
+     *
+     * @param username the database username.
+     * @param password the database password.
+     * @param url      the database URL.
+     * @throws MojoExecutionException if the method fails.
      */
-    private static final String LOG_LINE = "--------------------------------------------------------------";
+    protected void createHibernateSchema(String username, String password, String url) throws MojoExecutionException {
+        EntityManagerFactoryBuilderImpl builder = createEntityManagerFactoryBuilder(username, password, url, Action.NONE);
+        try {
+            MetadataImplementor metadata = builder.metadata();
+            HibernateMapping mapping = readMapping(metadata);
+            List<String> statements = createSchemaScript(metadata);
+            getLog().info("Hibernate metadata entities: " + metadata.getEntityBindings().size() + ", DDL statements: " + statements.size());
+            count("entities", metadata.getEntityBindings().size());
+            count("ddlStatements", statements.size());
+            if (getLog().isDebugEnabled()) {
+                statements.forEach(getLog()::debug);
+            }
+            JdbcScript.execute(url, username, password, statements, JdbcScript.DEFAULT_BATCH_SIZE);
+            if (execution.getSchemaKey() != null) {
+                writeCachedSchema(statements, mapping);
+            }
+        } catch (SQLException ex) {
+            throw new MojoExecutionException("Error creating the target database schema from Hibernate metadata.", ex);
+        } finally {
+            builder.cancel();
+        }
+    }
 
     /**
-     * {@inheritDoc}
+     * Render the create script of the Hibernate metadata. The names are qualified with the default schema
+     * of the Hibernate settings like in the schema creation of the entity manager factory.
+     *
+     * @param metadata the Hibernate metadata.
+     * @return the DDL statements.
      */
-    @Override
-    public void execute() throws MojoExecutionException, MojoFailureException {
-        logLevel = "INFO";
-        verbose = liquibaseVerbose;
-        diffChangeLogFile = outputFile;
-        changeLogFile = liquibaseChangeLogFile;
-        project = currentProject;
-        session = currentSession;
-        mojoExecution = currentMojoExecution;
-        analyticsEnabled = false;
-
-        getLog().info(LOG_LINE);
-        getLog().info("Start docker containers.");
-        getLog().info(LOG_LINE);
-
-        DockerImageName postgresDockerName = DockerImageName.parse(PostgreSQLContainer.IMAGE)
-                .withTag(this.postgresVersion != null ? this.postgresVersion : PostgreSQLContainer.DEFAULT_TAG);
-
-        PostgreSQLContainer<?> liquibaseStateDB = new PostgreSQLContainer<>(postgresDockerName);
-        PostgreSQLContainer<?> hibernateStateDB = new PostgreSQLContainer<>(postgresDockerName);
-
-        try {
-
-            // workaround to activate docker
-            DockerClientFactory.instance().client().pingCmd().exec();
-
-            // start containers
-            Stream.of(liquibaseStateDB, hibernateStateDB).parallel().forEach(GenericContainer::start);
-            if (properties != null) {
-                System.setProperties(properties);
+    private static List<String> createSchemaScript(MetadataImplementor metadata) {
+        StandardServiceRegistry registry = metadata.getMetadataBuildingOptions().getServiceRegistry();
+        Map<String, Object> settings = registry.requireService(ConfigurationService.class).getSettings();
+        List<String> result = new ArrayList<>();
+        ExecutionOptions options = new ExecutionOptions() {
+            @Override
+            public Map<String, Object> getConfigurationValues() {
+                return settings;
             }
 
-            if (liquibaseDevUser) {
-                System.setProperty("user.name", "dev");
+            @Override
+            public boolean shouldManageNamespaces() {
+                return false;
             }
 
-            username = liquibaseStateDB.getUsername();
-            password = liquibaseStateDB.getPassword();
-            url = liquibaseStateDB.getJdbcUrl();
-
-            referenceUsername = hibernateStateDB.getUsername();
-            referencePassword = hibernateStateDB.getPassword();
-            referenceUrl = hibernateStateDB.getJdbcUrl();
+            @Override
+            public ExceptionHandler getExceptionHandler() {
+                return ExceptionHandlerHaltImpl.INSTANCE;
+            }
+        };
+        GenerationTarget target = new GenerationTarget() {
+            @Override
+            public void prepare() {
+                // statements are collected in memory
+            }
 
-            getLog().info(LOG_LINE);
-            getLog().info("Execute target database update from Hibernate.");
-            getLog().info(LOG_LINE);
-            try (EntityManagerFactory ef = startHibernate(referenceUsername, referencePassword, referenceUrl);
-                 EntityManager em = ef.createEntityManager()) {
-                getLog().info("EntityManager entities: " + em.getMetamodel().getEntities());
-                super.execute();
+            @Override
+            public void accept(String command) {
+                result.add(command);
             }
-            getLog().info(LOG_LINE);
-            getLog().info("Finished target database update from Hibernate.");
-            getLog().info(LOG_LINE);
-        } finally {
-            Stream.of(liquibaseStateDB, hibernateStateDB).parallel().forEach(GenericContainer::stop);
-        }
-    }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    protected void performLiquibaseTask(Liquibase liquibase) throws LiquibaseException {
-        File changeFile = new File(liquibaseChangeLogFile);
-        if (changeFile.exists()) {
-            getLog().info("--------------------------------------------------------------");
-            getLog().info("Execute source database update from file: " + liquibase.getChangeLogFile());
-            getLog().info("--------------------------------------------------------------");
-            liquibase.update(new Contexts(), new LabelExpression());
-        }
-        getLog().info("--------------------------------------------------------------");
-        getLog().info("Execute source-target database diff. Output: " + outputFile);
-        getLog().info("--------------------------------------------------------------");
-        super.performLiquibaseTask(liquibase);
+            @Override
+            public void release() {
+                // statements are collected in memory
+            }
+        };
+        new SchemaCreatorImpl(registry).createFromMetadata(metadata, options, registry.requireService(JdbcEnvironment.class).getDialect(),
+                FormatStyle.NONE.getFormatter(), target);
+        return result;
     }
 
     /**
-     * Start the Hibernate entity manager.
+     * Create the Hibernate entity manager factory builder.
      *
      * @param username the database username.
      * @param password the database password.
-     * @param url      the database URL.
-     * @return the corresponding entity manager.
+     * @param url      the database URL or {@code null} for the offline metadata.
+     * @param action   the schema management action.
+     * @return the entity manager factory builder.
      * @throws MojoExecutionException if the method fails.
      */
-    protected EntityManagerFactory startHibernate(String username, String password, String url) throws MojoExecutionException {
+    protected EntityManagerFactoryBuilderImpl createEntityManagerFactoryBuilder(String username, String password, String url, Action action) throws MojoExecutionException {
 
         Map<String, Object> hibernateProperties = new HashMap<>();
         hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, Boolean.FALSE.toString());
 
-        hibernateProperties.put(AvailableSettings.HBM2DDL_AUTO, Action.CREATE_DROP);
+        hibernateProperties.put(AvailableSettings.HBM2DDL_AUTO, action);
         hibernateProperties.put(AvailableSettings.SHOW_SQL, showSql);
         hibernateProperties.put(AvailableSettings.FORMAT_SQL, formatSql);
 
-        hibernateProperties.put(AvailableSettings.JAKARTA_JDBC_URL , url);
-        hibernateProperties.put(AvailableSettings.JAKARTA_JDBC_USER, username);
-        hibernateProperties.put(AvailableSettings.JAKARTA_JDBC_PASSWORD, password);
+        if (url != null) {
+            hibernateProperties.put(AvailableSettings.JAKARTA_JDBC_URL, url);
+            hibernateProperties.put(AvailableSettings.JAKARTA_JDBC_USER, username);
+            hibernateProperties.put(AvailableSettings.JAKARTA_JDBC_PASSWORD, password);
+        } else {
+            // offline metadata without database connection
+            hibernateProperties.put(AvailableSettings.DIALECT, PostgreSQLDialect.class.getName());
+            hibernateProperties.put(AvailableSettings.ALLOW_METADATA_ON_BOOT, Boolean.FALSE.toString());
+        }
+
+        IndexScanner scanner = null;
+        if (indexScanner) {
+            scanner = new IndexScanner(indexCache ? new JandexIndexCache(Path.of(indexCacheDirectory), true) : null);
+            hibernateProperties.put(AvailableSettings.SCANNER, scanner);
+        }
 
-        hibernateProperties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, TenantIdentifierResolver.class.getName() );
+        DiffUnit unit = execution.getUnit();
+        if (unit != null && unit.getSchema() != null) {
+            hibernateProperties.put(AvailableSettings.DEFAULT_SCHEMA, unit.getSchema());
+            hibernateProperties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, new TenantIdentifierResolver(unit.getSchema()));
+        } else {
+            hibernateProperties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, TenantIdentifierResolver.class.getName() );
+        }
 
         getLog().info("Hibernate properties: " + hibernateProperties);
 
         URLClassLoader classLoader = createClassLoader();
 
-        ParsedPersistenceXmlDescriptor ppx = new ParsedPersistenceXmlDescriptor(null) {
+        ParsedPersistenceXmlDescriptor unitDescriptor = null;
+        if (unit != null && unit.getPersistenceUnit() != null) {
+            unitDescriptor = findPersistenceUnit(classLoader, unit.getPersistenceUnit());
+        }
+
+        ParsedPersistenceXmlDescriptor ppx = new ParsedPersistenceXmlDescriptor(unitDescriptor != null ? unitDescriptor.getPersistenceUnitRootUrl() : null) {
             @Override
             public ClassLoader getClassLoader() {
                 return classLoader;
@@ -239,16 +1669,34 @@ public class LiquibaseDiffMojo extends LiquibaseDatabaseDiff {
                 return classLoader;
             }
         };
+        if (unitDescriptor != null) {
+            unitDescriptor.getProperties().forEach((key, value) -> {
+                if (PLUGIN_SETTINGS.stream().noneMatch(key.toString()::startsWith)) {
+                    ppx.getProperties().put(key, value);
+                }
+            });
+        }
         ppx.getProperties().putAll(hibernateProperties);
-        ppx.setName(LiquibaseDiffMojo.class.getSimpleName());
+        ppx.setName(unitDescriptor != null ? unitDescriptor.getName() : LiquibaseDiffMojo.class.getSimpleName());
         ppx.setProviderClassName(org.hibernate.jpa.HibernatePersistenceProvider.class.getName());
         ppx.setTransactionType(PersistenceUnitTransactionType.RESOURCE_LOCAL);
-        ppx.setExcludeUnlistedClasses(false);
-        ppx.getJarFileUrls().addAll(Arrays.asList(classLoader.getURLs()));
 
-        if (externalLibs) {
+        if (unitDescriptor != null) {
+            getLog().info("Entities of the persistence unit: " + unitDescriptor.getName());
+            ppx.setExcludeUnlistedClasses(unitDescriptor.isExcludeUnlistedClasses());
+            ppx.addClasses(unitDescriptor.getManagedClassNames());
+            ppx.addMappingFiles(unitDescriptor.getMappingFileNames());
+            ppx.getJarFileUrls().addAll(unitDescriptor.getJarFileUrls());
+        } else {
+            ppx.setExcludeUnlistedClasses(false);
+            ppx.getJarFileUrls().addAll(Arrays.asList(classLoader.getURLs()));
+        }
+
+        if (unitDescriptor != null) {
+            getLog().info("External libraries are defined by the persistence unit.");
+        } else if (externalLibs) {
             getLog().info("Search external libraries for entities.");
-            var classesFromDependencies = getEntitiesFromDependencies();
+            var classesFromDependencies = getExternalEntities();
             if (classesFromDependencies != null) {
                 getLog().info("External entities: " + classesFromDependencies);
                 ppx.getManagedClassNames().addAll(classesFromDependencies);
@@ -266,21 +1714,361 @@ public class LiquibaseDiffMojo extends LiquibaseDatabaseDiff {
         EntityManagerFactoryBuilderImpl builder = (EntityManagerFactoryBuilderImpl)
                 Bootstrap.getEntityManagerFactoryBuilder(ppx, properties, new ClassLoaderServiceImpl(classLoader));
         builder.getConfigurationValues();
+        if (scanner != null) {
+            getLog().info("Persistence classes from index: " + scanner.getLocated());
+            count("persistenceClasses", scanner.getLocated());
+        }
 
-        return builder.build();
+        return builder;
     }
 
     /**
-     * Finds all classes in dependencies which are annotated with @Entity
+     * Finds the persistence unit in the {@code META-INF/persistence.xml} files of the project classpath.
+     *
+     * @param classLoader the project classloader.
+     * @param name        the persistence unit name.
+     * @return the persistence unit descriptor.
+     * @throws MojoExecutionException if the persistence unit does not exist.
+     */
+    private ParsedPersistenceXmlDescriptor findPersistenceUnit(ClassLoader classLoader, String name) throws MojoExecutionException {
+        try {
+            for (URL url : Collections.list(classLoader.getResources(PERSISTENCE_XML))) {
+                ParsedPersistenceXmlDescriptor result = PersistenceXmlParser.parse(url, PersistenceUnitTransactionType.RESOURCE_LOCAL).get(name);
+                if (result != null) {
+                    return result;
+                }
+            }
+        } catch (IOException ex) {
+            throw new MojoExecutionException("Error reading " + PERSISTENCE_XML, ex);
+        }
+        throw new MojoExecutionException("Persistence unit " + name + " not found in " + PERSISTENCE_XML);
+    }
+
+    /**
+     * Finds all classes in dependencies which are annotated with the persistence annotations. The indexes are read
+     * one by one and only the persistence classes are kept, the indexes of the dependencies are not merged.
      * @return list of dependencies
      * @throws MojoExecutionException error get entities from dependencies
      */
     protected List<String> getEntitiesFromDependencies() throws MojoExecutionException {
-        MergeIndexer indexer = new MergeIndexer();
-        loadIndexFromDependencies(indexer);
-        Index index = indexer.complete();
-        var classes = index.getAnnotations(DotName.createSimple(jakarta.persistence.Entity.class.getName()));
-        return classes.stream().map(clazz -> clazz.target().asClass().toString()).collect(Collectors.toList());
+        List<DotName> annotations = getPersistenceAnnotations();
+        if (indexCache) {
+            return getEntitiesFromIndexCache(annotations);
+        }
+        if (indexDependencies) {
+            getLog().warn("The indexDependencies requires the index cache, the jar files without jandex index are not scanned. Set indexCache to true.");
+        }
+        PersistenceIndexReader reader = new PersistenceIndexReader(annotations, Runtime.getRuntime().availableProcessors());
+        try {
+            List<String> result = new ArrayList<>();
+            for (PersistenceClasses item : reader.readAll(getIndexUrls())) {
+                result.addAll(item.get(annotations));
+            }
+            return result;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error loading index from libraries.", e);
+        }
+    }
+
+    /**
+     * Returns the persistence annotations of the {@code persistenceAnnotations} parameter.
+     *
+     * @return the persistence annotations.
+     * @throws MojoExecutionException if the parameter contains an unknown annotation.
+     */
+    private List<DotName> getPersistenceAnnotations() throws MojoExecutionException {
+        List<DotName> result = new ArrayList<>();
+        for (String name : persistenceAnnotations.split(",")) {
+            if (name.isBlank()) {
+                continue;
+            }
+            DotName annotation = PersistenceClasses.annotation(name.trim());
+            if (annotation == null) {
+                throw new MojoExecutionException("Unknown persistence annotation '" + name.trim()
+                        + "'. Supported values: Entity, Embeddable, MappedSuperclass, Converter");
+            }
+            result.add(annotation);
+        }
+        return result;
+    }
+
+    /**
+     * Finds all classes in dependencies which are annotated with the persistence annotations using the index cache.
+     * @param annotations the persistence annotations.
+     * @return list of dependencies
+     * @throws MojoExecutionException error get entities from dependencies
+     */
+    private List<String> getEntitiesFromIndexCache(List<DotName> annotations) throws MojoExecutionException {
+        try {
+            JandexIndexCache cache = new JandexIndexCache(Path.of(indexCacheDirectory), indexDependencies);
+            List<String> elements = project.getRuntimeClasspathElements();
+            List<JandexIndexCache.Result> items = elements.parallelStream()
+                    .map(element -> {
+                        try {
+                            return cache.get(Path.of(element));
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException("Error reading index of " + element, ex);
+                        }
+                    })
+                    .collect(Collectors.toList());
+
+            List<String> result = new ArrayList<>();
+            int cached = 0;
+            int scanned = 0;
+            for (int i = 0; i < items.size(); i++) {
+                JandexIndexCache.Result item = items.get(i);
+                if (!item.classes().isEmpty()) {
+                    getLog().info("External lib: " + elements.get(i));
+                }
+                if (item.cached()) {
+                    cached++;
+                }
+                if (item.source() == JandexIndexCache.Source.SCAN) {
+                    scanned++;
+                }
+                result.addAll(item.classes().get(annotations));
+            }
+            getLog().info("External libs scanned without index: " + scanned);
+            getLog().info("External libs index cache hits: " + cached);
+            count("jars", elements.size());
+            count("jarsScanned", scanned);
+            count("indexCacheHits", cached);
+            return result;
+        } catch (Exception e) {
+            throw new MojoExecutionException("Error loading index from libraries.", e);
+        }
+    }
+
+    /**
+     * Returns the entities from the external libraries. The libraries are scanned only once per execution.
+     *
+     * @return list of the entities.
+     * @throws MojoExecutionException error get entities from dependencies
+     */
+    private List<String> getExternalEntities() throws MojoExecutionException {
+        if (externalEntities == null) {
+            try (PhaseReport.Phase ignored = phase("entity-index")) {
+                externalEntities = getEntitiesFromDependencies();
+            }
+            count("externalEntities", externalEntities.size());
+        }
+        return externalEntities;
+    }
+
+    /**
+     * Create the fingerprint of the plugin and library versions and the configuration.
+     *
+     * @return the fingerprint of the settings.
+     */
+    private DiffFingerprint settingsFingerprint() {
+        return new DiffFingerprint()
+                .add("plugin", currentMojoExecution.getVersion())
+                .add("hibernate", Version.getVersionString())
+                .add("liquibase", LiquibaseUtil.getBuildVersion())
+                .add("postgresVersion", postgresVersion)
+                .add("properties", properties != null ? new TreeMap<>(properties) : null)
+                .add("externalLibs", externalLibs)
+                .add("persistenceAnnotations", persistenceAnnotations)
+                .add("diffTypes", diffTypes)
+                .add("diffIncludeObjects", diffIncludeObjects)
+                .add("diffExcludeObjects", diffExcludeObjects)
+                .add("changeSetAuthor", changeSetAuthor)
+                .add("liquibaseDevUser", liquibaseDevUser)
+                .add("defaultSchemaName", defaultSchemaName)
+                .add("referenceDefaultSchemaName", referenceDefaultSchemaName)
+                .add("metadataOnly", metadataOnly)
+                .add("offline", offline)
+                .add("entityScope", entityScope)
+                .add("entityScopeIncludes", entityScopeIncludes)
+                .add("entityScopeExcludes", entityScopeExcludes)
+                .add("units", units)
+                .add("databaseProvider", databaseProvider)
+                .add("incremental", incremental)
+                .add("unit", execution.getUnit());
+    }
+
+    /**
+     * Add the files of the output directory which match the filter and the runtime classpath to the fingerprint.
+     * The jar files are added by the size and the modification time, the enums, user types and converters
+     * of the dependencies change the schema too. The classpath directories are added by the content.
+     *
+     * @param fp     the fingerprint.
+     * @param filter the filter of the files of the output directory and of the classpath directories.
+     * @throws IOException            if a file could not be read.
+     * @throws MojoExecutionException if the runtime classpath could not be resolved.
+     */
+    private void addClasspath(DiffFingerprint fp, Predicate<Path> filter) throws IOException, MojoExecutionException {
+        Path outputDirectory = Path.of(currentProject.getBuild().getOutputDirectory());
+        fp.addDirectory(outputDirectory, filter);
+        List<String> elements;
+        try {
+            elements = currentProject.getRuntimeClasspathElements();
+        } catch (DependencyResolutionRequiredException ex) {
+            throw new MojoExecutionException("Error resolving the runtime classpath.", ex);
+        }
+        for (String element : new TreeSet<>(elements)) {
+            Path path = Path.of(element);
+            if (path.equals(outputDirectory)) {
+                continue;
+            }
+            if (Files.isDirectory(path)) {
+                fp.addDirectory(path, filter);
+            } else {
+                fp.addFileStamp(path);
+            }
+        }
+    }
+
+    /**
+     * Check if the file of the output directory is a class or a mapping file of the Hibernate schema:
+     * the classes, the {@code META-INF} files ({@code persistence.xml}, {@code orm.xml}) and the {@code hbm.xml} files.
+     *
+     * @param file the file.
+     * @return {@code true} if the file changes the Hibernate schema.
+     */
+    private static boolean isSchemaFile(Path file) {
+        String name = file.toString().replace('\\', '/');
+        return name.endsWith(".class") || name.endsWith(".hbm.xml") || name.contains("/META-INF/");
+    }
+
+    /**
+     * Create the fingerprint of the diff inputs: plugin and library versions, configuration,
+     * entity classes and the liquibase changelog files.
+     *
+     * @return the fingerprint.
+     * @throws MojoExecutionException error creating the fingerprint.
+     */
+    private String createFingerprint() throws MojoExecutionException {
+        try {
+            DiffFingerprint fp = settingsFingerprint();
+            addClasspath(fp, Files::isRegularFile);
+
+            Set<Path> changeLogs = new LinkedHashSet<>();
+            changeLogs.add(changeLogPath());
+            if (units != null) {
+                units.stream().filter(item -> item.getChangeLogFile() != null)
+                        .forEach(item -> changeLogs.add(currentProject.getBasedir().toPath().resolve(item.getChangeLogFile())));
+            }
+            ChangeLogParseCache cache = new ChangeLogParseCache(changeLogCache ? Path.of(changeLogCacheDirectory) : null);
+            List<Path> roots = ChangeLogParseCache.roots(currentProject);
+            for (Path changeLog : changeLogs) {
+                fp.addFile(changeLog);
+                fp.addDirectory(changeLog.getParent(), Files::isRegularFile);
+                // included files outside of the changelog directory
+                if (Files.isRegularFile(changeLog) && changeLog.toString().endsWith(".xml")) {
+                    for (Path include : cache.prefetch(changeLog, roots, Runtime.getRuntime().availableProcessors())) {
+                        fp.addFile(include);
+                    }
+                }
+            }
+            return fp.toHex();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Parsing of the changelog was interrupted.", ex);
+        } catch (IOException ex) {
+            throw new MojoExecutionException("Error creating the diff fingerprint.", ex);
+        }
+    }
+
+    /**
+     * Check if the fingerprint and the output file of the last run did not change.
+     *
+     * @param fingerprint the current fingerprint.
+     * @return {@code true} if the last diff output could be reused.
+     * @throws MojoExecutionException error reading the fingerprint file.
+     */
+    private boolean isUpToDate(String fingerprint) throws MojoExecutionException {
+        try {
+            String last = DiffFingerprint.read(Path.of(fingerprintFile));
+            return last != null && last.equals(fingerprint + "\n" + outputFingerprint());
+        } catch (IOException ex) {
+            throw new MojoExecutionException("Error reading the diff fingerprint file " + fingerprintFile, ex);
+        }
+    }
+
+    /**
+     * Write the fingerprint together with the fingerprint of the output file.
+     *
+     * @param fingerprint the current fingerprint.
+     * @throws MojoExecutionException error writing the fingerprint file.
+     */
+    private void writeFingerprint(String fingerprint) throws MojoExecutionException {
+        try {
+            DiffFingerprint.write(Path.of(fingerprintFile), fingerprint + "\n" + outputFingerprint());
+        } catch (IOException ex) {
+            throw new MojoExecutionException("Error writing the diff fingerprint file " + fingerprintFile, ex);
+        }
+    }
+
+    /**
+     * Returns the fingerprint of the output file or of the output files of the units.
+     *
+     * @return the fingerprint of the output files.
+     * @throws IOException error reading the output files.
+     */
+    private String outputFingerprint() throws IOException {
+        DiffFingerprint fp = new DiffFingerprint();
+        for (String file : outputFiles()) {
+            fp.addFile(Path.of(file));
+        }
+        return fp.toHex();
+    }
+
+    /**
+     * Returns the output file or the output files of the units.
+     *
+     * @return the output files.
+     */
+    private List<String> outputFiles() {
+        if (units == null || units.isEmpty()) {
+            return List.of(outputFile);
+        }
+        return units.stream().map(this::unitOutputFile).toList();
+    }
+
+    /**
+     * Start the phase of the report. The phases of the units are prefixed with the unit name.
+     *
+     * @param name the phase name.
+     * @return the running phase.
+     */
+    private PhaseReport.Phase phase(String name) {
+        return phaseReport.start(execution.getUnit() != null ? execution.getUnit().getName() + "/" + name : name);
+    }
+
+    /**
+     * Add the value to the counter of the report.
+     *
+     * @param name  the counter name.
+     * @param value the value.
+     */
+    private void count(String name, long value) {
+        phaseReport.count(name, value);
+    }
+
+    /**
+     * Start a new phase report of the goal.
+     *
+     * @param goal the mojo goal.
+     */
+    protected void startReport(String goal) {
+        phaseReport = new PhaseReport(goal, currentProject.getId());
+    }
+
+    /**
+     * Write the phase report to the report file.
+     */
+    protected void writeReport() {
+        getLog().info("Phases: " + phaseReport.summary());
+        if (!report) {
+            return;
+        }
+        try {
+            phaseReport.write(Path.of(reportFile));
+            getLog().info("Phase report: " + reportFile);
+        } catch (IOException ex) {
+            getLog().warn("Error writing the phase report " + reportFile, ex);
+        }
     }
 
     /**
@@ -310,11 +2098,11 @@ public class LiquibaseDiffMojo extends LiquibaseDatabaseDiff {
     }
 
     /**
-     * Loading index from dependencies.
-     * @param indexer indexer.
+     * Returns the jandex indexes of the dependencies.
+     * @return the index URLs.
      * @throws MojoExecutionException error loading dependencies.
      */
-    private void loadIndexFromDependencies(final MergeIndexer indexer) throws MojoExecutionException {
+    private List<URL> getIndexUrls() throws MojoExecutionException {
         try {
             List<String> elements;
             elements = project.getRuntimeClasspathElements();
@@ -330,14 +2118,14 @@ public class LiquibaseDiffMojo extends LiquibaseDatabaseDiff {
                 }
                 URL[] runtimeUrls = tmp.toArray(new URL[0]);
                 try (URLClassLoader newLoader = new URLClassLoader(runtimeUrls, Thread.currentThread().getContextClassLoader())) {
-                    Enumeration<URL> items = newLoader.getResources(MergeIndexer.INDEX);
-                    while (items.hasMoreElements()) {
-                        URL url = items.nextElement();
-                        getLog().info("External lib: " + url);
-                        indexer.loadFromUrl(url);
-                    }
+                    List<URL> indexes = Collections.list(newLoader.getResources(MergeIndexer.INDEX));
+                    indexes.forEach(url -> getLog().info("External lib: " + url));
+                    count("jars", elements.size());
+                    count("jandexIndexes", indexes.size());
+                    return indexes;
                 }
             }
+            return List.of();
         } catch (Exception e) {
             throw new MojoExecutionException("Error loading index from libraries.", e);
         }
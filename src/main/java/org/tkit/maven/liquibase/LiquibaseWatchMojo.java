@@ -0,0 +1,139 @@
+package org.tkit.maven.liquibase;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Liquibase watch mojo. The goal starts the database server once, migrates the source database once
+ * and keeps running. Each change of the compiled classes resets only the target database, creates the target
+ * schema from Hibernate and rewrites the diff output. Each change of the liquibase changelog directory also
+ * resets and migrates the source database. The goal runs until the maven process is stopped.
+ */
+@Mojo(name = "watch", requiresDependencyResolution = ResolutionScope.COMPILE)
+public class LiquibaseWatchMojo extends LiquibaseDiffMojo {
+
+    /**
+     * Log line.
+     */
+    private static final String LOG_LINE = "--------------------------------------------------------------";
+
+    /**
+     * The quiet period in milliseconds after the last file change before the diff is executed.
+     */
+    @Parameter(name = "watchQuietPeriod", property = "liquibase.watchQuietPeriod", defaultValue = "300")
+    protected long watchQuietPeriod;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void executeDiffGoal() throws MojoExecutionException, MojoFailureException {
+        if (units != null && !units.isEmpty()) {
+            getLog().warn("The watch goal does not support the diff units, the project persistence unit is used.");
+        }
+
+        List<Path> roots = new ArrayList<>();
+        roots.add(Path.of(project.getBuild().getOutputDirectory()));
+        Path changeLogDirectory = changeLogPath().toAbsolutePath().normalize().getParent();
+        roots.add(changeLogDirectory);
+
+        if (offline) {
+            watch(roots, changeLogDirectory, null);
+            return;
+        }
+
+        getLog().info(LOG_LINE);
+        getLog().info("Start database server. Provider: " + databaseProvider);
+        getLog().info(LOG_LINE);
+        DatabaseProvider server = databaseProviderType().create(postgresVersion);
+        Thread shutdownHook = new Thread(server::stop, "liquibase-watch-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        try {
+            startDatabases(server);
+            createDatabases(server, LIQUIBASE_DATABASE, HIBERNATE_DATABASE);
+            useDatabases(server, LIQUIBASE_DATABASE, server, HIBERNATE_DATABASE);
+            watch(roots, changeLogDirectory, server);
+        } finally {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                server.stop();
+            } catch (IllegalStateException ex) {
+                // shutdown in progress, the hook stops the server
+            }
+        }
+    }
+
+    /**
+     * Execute the first diff and the diff of each change until the thread is interrupted.
+     *
+     * @param roots              the watched directories.
+     * @param changeLogDirectory the directory of the liquibase changelog.
+     * @param server             the database server or {@code null} for the offline diff.
+     * @throws MojoExecutionException if the directories could not be watched.
+     */
+    private void watch(List<Path> roots, Path changeLogDirectory, DatabaseProvider server) throws MojoExecutionException {
+        try (ChangeWatcher watcher = new ChangeWatcher(roots)) {
+            diff(server, true, false);
+            while (!Thread.currentThread().isInterrupted()) {
+                getLog().info("Watching " + watcher.getRoots() + " for changes. Stop the goal with Ctrl+C.");
+                Set<Path> changes = watcher.await(watchQuietPeriod);
+                boolean changeLog = changes.stream().anyMatch(path -> path.startsWith(changeLogDirectory));
+                getLog().info("Detected " + changes.size() + " changed files" + (changeLog ? " including the liquibase changelog." : "."));
+                diff(server, false, changeLog);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            throw new MojoExecutionException("Error watching the directories " + roots, ex);
+        }
+    }
+
+    /**
+     * Reset the databases and execute the diff. The errors of the diff are logged, the goal keeps watching.
+     * The checkpoints are only restored to the new source database, the migrated source database
+     * is updated with the new changesets only.
+     *
+     * @param server      the database server or {@code null} for the offline diff.
+     * @param initial     {@code true} for the first diff on the new databases.
+     * @param resetSource {@code true} to reset the source database.
+     */
+    private void diff(DatabaseProvider server, boolean initial, boolean resetSource) {
+        long start = System.nanoTime();
+        boolean useCheckpoints = checkpoints;
+        checkpoints = useCheckpoints && (initial || resetSource);
+        startReport("watch");
+        try {
+            if (server != null && resetSource) {
+                dropDatabases(server, LIQUIBASE_DATABASE);
+                createDatabases(server, LIQUIBASE_DATABASE);
+            }
+            if (server != null && !initial) {
+                dropDatabases(server, HIBERNATE_DATABASE);
+                createDatabases(server, HIBERNATE_DATABASE);
+            }
+            Files.deleteIfExists(project.getBasedir().toPath().resolve(outputFile));
+            if (server != null) {
+                executeDiff();
+            } else {
+                executeOffline();
+            }
+            getLog().info("Diff finished in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms. Output: " + outputFile);
+        } catch (MojoExecutionException | MojoFailureException | IOException | RuntimeException ex) {
+            getLog().error("Diff failed: " + ex.getMessage(), ex);
+        } finally {
+            checkpoints = useCheckpoints;
+            writeReport();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.tkit.maven.liquibase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled database object names and patterns:
+ * <ul>
+ *     <li>{@code table1} - exact name</li>
+ *     <li>{@code tmp_*} - glob pattern with {@code *} and {@code ?}</li>
+ *     <li>{@code regex:tmp_[0-9]+} - regular expression, the rest of the value</li>
+ * </ul>
+ */
+public class NamePatterns {
+
+    /**
+     * Regular expression prefix.
+     */
+    private static final String REGEX_PREFIX = "regex:";
+
+    /**
+     * Exact names.
+     */
+    private final Set<String> names = new HashSet<>();
+
+    /**
+     * Glob and regular expression patterns.
+     */
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    /**
+     * Configured names and patterns.
+     */
+    private final List<String> items = new ArrayList<>();
+
+    /**
+     * Compile the comma separated names and patterns.
+     *
+     * @param value the comma separated names and patterns or {@code null}.
+     * @return the compiled names and patterns.
+     */
+    public static NamePatterns of(String value) {
+        NamePatterns result = new NamePatterns();
+        for (String item : split(value)) {
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * Split the comma separated names and patterns. The regular expression may contain commas
+     * (for example {@code regex:t_[a-z]{1,3}}) and extends to the end of the value, it has to be the last item.
+     *
+     * @param value the comma separated names and patterns or {@code null}.
+     * @return the trimmed names and patterns.
+     */
+    public static List<String> split(String value) {
+        List<String> result = new ArrayList<>();
+        if (value == null) {
+            return result;
+        }
+        int start = 0;
+        while (start <= value.length()) {
+            String rest = value.substring(start);
+            int end = value.indexOf(',', start);
+            if (rest.trim().startsWith(REGEX_PREFIX) || end < 0) {
+                result.add(rest.trim());
+                break;
+            }
+            result.add(value.substring(start, end).trim());
+            start = end + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Add the name or pattern.
+     *
+     * @param item the name, glob or regular expression.
+     */
+    public void add(String item) {
+        if (item.isEmpty()) {
+            return;
+        }
+        items.add(item);
+        if (item.startsWith(REGEX_PREFIX)) {
+            patterns.add(Pattern.compile(item.substring(REGEX_PREFIX.length())));
+        } else if (item.indexOf('*') >= 0 || item.indexOf('?') >= 0) {
+            patterns.add(glob(item));
+        } else {
+            names.add(item);
+        }
+    }
+
+    /**
+     * Check if there are no names and patterns.
+     *
+     * @return {@code true} if there are no names and patterns.
+     */
+    public boolean isEmpty() {
+        return names.isEmpty() && patterns.isEmpty();
+    }
+
+    /**
+     * Check if the name matches one of the names or patterns.
+     *
+     * @param name the object name.
+     * @return {@code true} if the name matches.
+     */
+    public boolean matches(String name) {
+        if (names.contains(name)) {
+            return true;
+        }
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(name).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compile the glob pattern to the regular expression.
+     *
+     * @param glob the glob pattern.
+     * @return the regular expression pattern.
+     */
+    private static Pattern glob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (!literal.isEmpty()) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (!literal.isEmpty()) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return items.toString();
+    }
+}
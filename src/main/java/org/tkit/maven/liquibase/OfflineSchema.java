@@ -0,0 +1,530 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.database.Database;
+import liquibase.datatype.DataTypeFactory;
+import liquibase.exception.DatabaseException;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.InvalidExampleException;
+import liquibase.snapshot.SnapshotIdService;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.DatabaseObjectCollection;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.DataType;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.ForeignKeyConstraintType;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.PrimaryKey;
+import liquibase.structure.core.Schema;
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.Table;
+import liquibase.structure.core.UniqueConstraint;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory schema model of the postgresql database built from the liquibase structure objects.
+ * The model is filled from the Hibernate metadata or from the liquibase changelog
+ * and converted to the database snapshot for the liquibase diff.
+ */
+public class OfflineSchema {
+
+    /**
+     * Default postgresql precision of the timestamp and time types.
+     */
+    private static final Pattern DEFAULT_TIME_PRECISION = Pattern.compile("^(TIMESTAMP|TIME)\\(6\\)");
+
+    /**
+     * Postgresql data type aliases.
+     */
+    private static final Map<String, String> TYPE_ALIASES = Map.of(
+            "FLOAT(53)", "FLOAT8",
+            "DOUBLE PRECISION", "FLOAT8",
+            "FLOAT(24)", "FLOAT4",
+            "REAL", "FLOAT4"
+    );
+
+    /**
+     * The offline database.
+     */
+    private final Database database;
+
+    /**
+     * The database schema.
+     */
+    private final Schema schema;
+
+    /**
+     * Tables by name.
+     */
+    private final Map<String, Table> tables = new LinkedHashMap<>();
+
+    /**
+     * Sequences by name.
+     */
+    private final Map<String, Sequence> sequences = new LinkedHashMap<>();
+
+    /**
+     * Default constructor.
+     *
+     * @param database   the offline database.
+     * @param schemaName the schema name.
+     */
+    public OfflineSchema(Database database, String schemaName) {
+        this.database = database;
+        this.schema = new Schema((String) null, schemaName);
+    }
+
+    /**
+     * Returns the offline database.
+     *
+     * @return the offline database.
+     */
+    public Database getDatabase() {
+        return database;
+    }
+
+    /**
+     * Returns the database schema.
+     *
+     * @return the database schema.
+     */
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Normalize the data type to the postgresql type of the liquibase type system.
+     *
+     * @param type the data type definition.
+     * @return the normalized data type.
+     */
+    public DataType type(String type) {
+        String value = DataTypeFactory.getInstance().fromDescription(type, database).toDatabaseDataType(database).toString()
+                .toUpperCase(Locale.ROOT);
+        value = DEFAULT_TIME_PRECISION.matcher(value).replaceFirst("$1");
+        return new DataType(TYPE_ALIASES.getOrDefault(value, value));
+    }
+
+    /**
+     * Returns the table.
+     *
+     * @param name the table name.
+     * @return the table or {@code null} if the table does not exist.
+     */
+    public Table getTable(String name) {
+        return tables.get(name);
+    }
+
+    /**
+     * Returns all tables.
+     *
+     * @return collection of the tables.
+     */
+    public Collection<Table> getTables() {
+        return tables.values();
+    }
+
+    /**
+     * Add the table.
+     *
+     * @param name the table name.
+     * @return the new table.
+     */
+    public Table addTable(String name) {
+        Table table = new Table();
+        table.setName(name);
+        table.setSchema(schema);
+        tables.put(name, table);
+        return table;
+    }
+
+    /**
+     * Remove the table and all foreign keys referencing the table.
+     *
+     * @param name the table name.
+     */
+    public void removeTable(String name) {
+        Table table = tables.remove(name);
+        if (table != null) {
+            removeForeignKeys(fk -> fk.getPrimaryKeyTable() == table);
+        }
+    }
+
+    /**
+     * Rename the table.
+     *
+     * @param oldName the old table name.
+     * @param newName the new table name.
+     */
+    public void renameTable(String oldName, String newName) {
+        Table table = tables.remove(oldName);
+        if (table != null) {
+            table.setName(newName);
+            tables.put(newName, table);
+        }
+    }
+
+    /**
+     * Add the column to the table.
+     *
+     * @param table    the table.
+     * @param name     the column name.
+     * @param type     the column data type.
+     * @param nullable the column nullable flag.
+     * @return the new column.
+     */
+    public Column addColumn(Table table, String name, DataType type, boolean nullable) {
+        Column column = new Column();
+        column.setName(name);
+        column.setRelation(table);
+        column.setType(type);
+        column.setNullable(nullable);
+        column.setValidateNullable(true);
+        table.getColumns().add(column);
+        return column;
+    }
+
+    /**
+     * Mark the column as auto increment column.
+     *
+     * @param column the column.
+     */
+    public static void setAutoIncrement(Column column) {
+        column.setAutoIncrementInformation(new Column.AutoIncrementInformation(BigInteger.ONE, BigInteger.ONE));
+    }
+
+    /**
+     * Returns the foreign key rule of the SQL referential action.
+     *
+     * @param action the referential action, for example {@code SET NULL}.
+     * @return the foreign key rule, postgresql default {@code NO ACTION} if the action is not set.
+     */
+    public static ForeignKeyConstraintType foreignKeyRule(String action) {
+        if (action == null) {
+            return ForeignKeyConstraintType.importedKeyNoAction;
+        }
+        return switch (action.trim().toUpperCase(Locale.ROOT).replace('_', ' ')) {
+            case "CASCADE" -> ForeignKeyConstraintType.importedKeyCascade;
+            case "SET NULL" -> ForeignKeyConstraintType.importedKeySetNull;
+            case "SET DEFAULT" -> ForeignKeyConstraintType.importedKeySetDefault;
+            case "RESTRICT" -> ForeignKeyConstraintType.importedKeyRestrict;
+            default -> ForeignKeyConstraintType.importedKeyNoAction;
+        };
+    }
+
+    /**
+     * Remove the column and all constraints and indexes with the column.
+     *
+     * @param table the table.
+     * @param name  the column name.
+     */
+    public void removeColumn(Table table, String name) {
+        Column column = table.getColumn(name);
+        if (column == null) {
+            return;
+        }
+        table.getColumns().remove(column);
+        Predicate<List<Column>> contains = columns -> columns.stream().anyMatch(c -> name.equals(c.getName()));
+        PrimaryKey pk = table.getPrimaryKey();
+        if (pk != null && contains.test(pk.getColumns())) {
+            table.setPrimaryKey(null);
+        }
+        table.getIndexes().removeIf(index -> contains.test(index.getColumns()));
+        table.getUniqueConstraints().removeIf(uc -> contains.test(uc.getColumns()));
+        removeForeignKeys(fk -> (fk.getForeignKeyTable() == table && contains.test(fk.getForeignKeyColumns()))
+                || (fk.getPrimaryKeyTable() == table && contains.test(fk.getPrimaryKeyColumns())));
+    }
+
+    /**
+     * Rename the column in the table, its constraints, indexes and referencing foreign keys.
+     *
+     * @param table   the table.
+     * @param oldName the old column name.
+     * @param newName the new column name.
+     */
+    public void renameColumn(Table table, String oldName, String newName) {
+        Column column = table.getColumn(oldName);
+        if (column == null) {
+            return;
+        }
+        column.setName(newName);
+        List<List<Column>> references = new ArrayList<>();
+        if (table.getPrimaryKey() != null) {
+            references.add(table.getPrimaryKey().getColumns());
+        }
+        table.getIndexes().forEach(index -> references.add(index.getColumns()));
+        table.getUniqueConstraints().forEach(uc -> references.add(uc.getColumns()));
+        for (Table item : tables.values()) {
+            for (ForeignKey fk : item.getOutgoingForeignKeys()) {
+                if (fk.getForeignKeyTable() == table) {
+                    references.add(fk.getForeignKeyColumns());
+                }
+                if (fk.getPrimaryKeyTable() == table) {
+                    references.add(fk.getPrimaryKeyColumns());
+                }
+            }
+        }
+        references.forEach(columns -> columns.stream().filter(c -> oldName.equals(c.getName())).forEach(c -> c.setName(newName)));
+    }
+
+    /**
+     * Set the primary key of the table. The primary key columns are not nullable.
+     *
+     * @param table   the table.
+     * @param name    the constraint name.
+     * @param columns the primary key column names.
+     */
+    public void setPrimaryKey(Table table, String name, List<String> columns) {
+        PrimaryKey pk = new PrimaryKey();
+        pk.setName(name);
+        pk.setTable(table);
+        for (int i = 0; i < columns.size(); i++) {
+            pk.addColumn(i, reference(table, columns.get(i)));
+            Column column = table.getColumn(columns.get(i));
+            if (column != null) {
+                column.setNullable(false);
+            }
+        }
+        table.setPrimaryKey(pk);
+    }
+
+    /**
+     * Add the unique constraint to the table.
+     *
+     * @param table   the table.
+     * @param name    the constraint name.
+     * @param columns the constraint column names.
+     */
+    public void addUniqueConstraint(Table table, String name, List<String> columns) {
+        UniqueConstraint uc = new UniqueConstraint();
+        uc.setName(name);
+        uc.setRelation(table);
+        for (int i = 0; i < columns.size(); i++) {
+            uc.addColumn(i, reference(table, columns.get(i)));
+        }
+        table.getUniqueConstraints().add(uc);
+    }
+
+    /**
+     * Remove the unique constraint from the table.
+     *
+     * @param table the table.
+     * @param name  the constraint name.
+     */
+    public void removeUniqueConstraint(Table table, String name) {
+        table.getUniqueConstraints().removeIf(uc -> name.equals(uc.getName()));
+    }
+
+    /**
+     * Add the index to the table. The index uses the postgres default access method {@code btree}.
+     *
+     * @param table   the table.
+     * @param name    the index name.
+     * @param unique  the unique flag.
+     * @param columns the index column names.
+     */
+    public void addIndex(Table table, String name, boolean unique, List<String> columns) {
+        Index index = new Index();
+        index.setName(name);
+        index.setRelation(table);
+        index.setUnique(unique);
+        index.setUsing("btree");
+        columns.forEach(column -> index.addColumn(reference(table, column)));
+        table.getIndexes().add(index);
+    }
+
+    /**
+     * Remove the index.
+     *
+     * @param name the index name.
+     */
+    public void removeIndex(String name) {
+        tables.values().forEach(table -> table.getIndexes().removeIf(index -> name.equals(index.getName())));
+    }
+
+    /**
+     * Add the foreign key to the table.
+     *
+     * @param table             the base table.
+     * @param name              the constraint name.
+     * @param columns           the base column names.
+     * @param referencedTable   the referenced table.
+     * @param referencedColumns the referenced column names.
+     * @return the new foreign key.
+     */
+    public ForeignKey addForeignKey(Table table, String name, List<String> columns, Table referencedTable, List<String> referencedColumns) {
+        ForeignKey fk = new ForeignKey();
+        fk.setName(name);
+        fk.setForeignKeyTable(table);
+        fk.setPrimaryKeyTable(referencedTable);
+        columns.forEach(column -> fk.addForeignKeyColumn(reference(table, column)));
+        referencedColumns.forEach(column -> fk.addPrimaryKeyColumn(reference(referencedTable, column)));
+        table.getOutgoingForeignKeys().add(fk);
+        return fk;
+    }
+
+    /**
+     * Remove the foreign key from the table.
+     *
+     * @param table the base table.
+     * @param name  the constraint name.
+     */
+    public void removeForeignKey(Table table, String name) {
+        table.getOutgoingForeignKeys().removeIf(fk -> name.equals(fk.getName()));
+    }
+
+    /**
+     * Remove the foreign keys matching the filter from all tables.
+     *
+     * @param filter the foreign key filter.
+     */
+    public void removeForeignKeys(Predicate<ForeignKey> filter) {
+        tables.values().forEach(table -> table.getOutgoingForeignKeys().removeIf(filter));
+    }
+
+    /**
+     * Returns the sequence.
+     *
+     * @param name the sequence name.
+     * @return the sequence or {@code null} if the sequence does not exist.
+     */
+    public Sequence getSequence(String name) {
+        return sequences.get(name);
+    }
+
+    /**
+     * Add the sequence.
+     *
+     * @param name        the sequence name.
+     * @param startValue  the start value, postgresql default {@code 1} if {@code null}.
+     * @param incrementBy the increment, postgresql default {@code 1} if {@code null}.
+     * @return the new sequence.
+     */
+    public Sequence addSequence(String name, BigInteger startValue, BigInteger incrementBy) {
+        Sequence sequence = new Sequence();
+        sequence.setName(name);
+        sequence.setSchema(schema);
+        sequence.setStartValue(startValue != null ? startValue : BigInteger.ONE);
+        sequence.setIncrementBy(incrementBy != null ? incrementBy : BigInteger.ONE);
+        sequences.put(name, sequence);
+        return sequence;
+    }
+
+    /**
+     * Remove the sequence.
+     *
+     * @param name the sequence name.
+     */
+    public void removeSequence(String name) {
+        sequences.remove(name);
+    }
+
+    /**
+     * Rename the sequence.
+     *
+     * @param oldName the old sequence name.
+     * @param newName the new sequence name.
+     */
+    public void renameSequence(String oldName, String newName) {
+        Sequence sequence = sequences.remove(oldName);
+        if (sequence != null) {
+            sequence.setName(newName);
+            sequences.put(newName, sequence);
+        }
+    }
+
+    /**
+     * Create the database snapshot of the schema model.
+     *
+     * @return the database snapshot.
+     * @throws DatabaseException        if the snapshot could not be created.
+     * @throws InvalidExampleException if the snapshot could not be created.
+     */
+    public DatabaseSnapshot toSnapshot() throws DatabaseException, InvalidExampleException {
+        Snapshot snapshot = new Snapshot(database);
+        for (Table table : tables.values()) {
+            snapshot.add(table);
+            table.getColumns().forEach(snapshot::add);
+            snapshot.add(table.getPrimaryKey());
+            table.getUniqueConstraints().forEach(snapshot::add);
+            table.getIndexes().forEach(snapshot::add);
+            table.getOutgoingForeignKeys().forEach(snapshot::add);
+        }
+        sequences.values().forEach(snapshot::add);
+        return snapshot;
+    }
+
+    /**
+     * Create the column reference of the constraint or index.
+     *
+     * @param table the table.
+     * @param name  the column name.
+     * @return the column reference.
+     */
+    private static Column reference(Table table, String name) {
+        Column column = new Column();
+        column.setName(name);
+        column.setRelation(table);
+        return column;
+    }
+
+    /**
+     * Database snapshot of the offline schema model.
+     */
+    private static class Snapshot extends DatabaseSnapshot {
+
+        /**
+         * The snapshot objects.
+         */
+        private final DatabaseObjectCollection objects;
+
+        /**
+         * Default constructor.
+         *
+         * @param database the offline database.
+         * @throws DatabaseException        if the snapshot could not be created.
+         * @throws InvalidExampleException if the snapshot could not be created.
+         */
+        Snapshot(Database database) throws DatabaseException, InvalidExampleException {
+            super(new DatabaseObject[0], database);
+            this.objects = new DatabaseObjectCollection(database);
+        }
+
+        /**
+         * Add the object to the snapshot.
+         *
+         * @param object the database object.
+         */
+        void add(DatabaseObject object) {
+            if (object != null) {
+                object.setSnapshotId(SnapshotIdService.getInstance().generateId());
+                objects.add(object);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public <T extends DatabaseObject> T get(T example) {
+            return objects.get(example, getSchemaComparisons());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public <T extends DatabaseObject> Set<T> get(Class<T> type) {
+            return objects.get(type);
+        }
+    }
+}
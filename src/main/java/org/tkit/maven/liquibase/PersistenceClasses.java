@@ -0,0 +1,150 @@
+package org.tkit.maven.liquibase;
+
+import jakarta.persistence.Converter;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Entity;
+import jakarta.persistence.MappedSuperclass;
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.AnnotationTarget;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.IndexView;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistence classes of one classpath element grouped by the annotation.
+ */
+public class PersistenceClasses {
+
+    /**
+     * Entity annotation.
+     */
+    public static final DotName ENTITY = DotName.createSimple(Entity.class.getName());
+
+    /**
+     * Persistence annotations stored for each classpath element.
+     */
+    public static final List<DotName> ANNOTATIONS = List.of(
+            ENTITY,
+            DotName.createSimple(Embeddable.class.getName()),
+            DotName.createSimple(MappedSuperclass.class.getName()),
+            DotName.createSimple(Converter.class.getName())
+    );
+
+    /**
+     * Returns the persistence annotation of the simple name.
+     *
+     * @param name the simple name of the annotation, for example {@code Entity}.
+     * @return the annotation or {@code null} if the name is not a persistence annotation.
+     */
+    public static DotName annotation(String name) {
+        for (DotName annotation : ANNOTATIONS) {
+            if (annotation.withoutPackagePrefix().equals(name)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Classes by annotation name.
+     */
+    private final Map<String, List<String>> classes = new LinkedHashMap<>();
+
+    /**
+     * Create the persistence classes from the index.
+     *
+     * @param index the index.
+     * @return the persistence classes.
+     */
+    public static PersistenceClasses of(IndexView index) {
+        return of(index, ANNOTATIONS);
+    }
+
+    /**
+     * Create the persistence classes of the annotations from the index.
+     *
+     * @param index       the index.
+     * @param annotations the annotations of the persistence classes.
+     * @return the persistence classes.
+     */
+    public static PersistenceClasses of(IndexView index, Collection<DotName> annotations) {
+        PersistenceClasses result = new PersistenceClasses();
+        for (DotName annotation : annotations) {
+            for (AnnotationInstance instance : index.getAnnotations(annotation)) {
+                if (instance.target() != null && instance.target().kind() == AnnotationTarget.Kind.CLASS) {
+                    result.add(annotation.toString(), instance.target().asClass().name().toString());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add the class for the annotation.
+     *
+     * @param annotation the annotation name.
+     * @param className  the class name.
+     */
+    public void add(String annotation, String className) {
+        classes.computeIfAbsent(annotation, k -> new ArrayList<>()).add(className);
+    }
+
+    /**
+     * Returns the classes annotated with the annotation.
+     *
+     * @param annotation the annotation.
+     * @return list of the class names.
+     */
+    public List<String> get(DotName annotation) {
+        return classes.getOrDefault(annotation.toString(), Collections.emptyList());
+    }
+
+    /**
+     * Returns the classes annotated with one of the annotations.
+     *
+     * @param annotations the annotations.
+     * @return list of the class names in the order of the annotations.
+     */
+    public List<String> get(Collection<DotName> annotations) {
+        Set<String> result = new LinkedHashSet<>();
+        for (DotName annotation : annotations) {
+            result.addAll(get(annotation));
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Returns the entity classes.
+     *
+     * @return list of the entity class names.
+     */
+    public List<String> getEntities() {
+        return get(ENTITY);
+    }
+
+    /**
+     * Returns all classes by annotation name.
+     *
+     * @return the classes by annotation name.
+     */
+    public Map<String, List<String>> getClasses() {
+        return Collections.unmodifiableMap(classes);
+    }
+
+    /**
+     * Returns {@code true} if there are no persistence classes.
+     *
+     * @return {@code true} if there are no persistence classes.
+     */
+    public boolean isEmpty() {
+        return classes.isEmpty();
+    }
+}
@@ -0,0 +1,107 @@
+package org.tkit.maven.liquibase;
+
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.IndexReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reader of the jandex indexes which keeps only the classes of the target annotations. Each index is decoded,
+ * filtered and released by the reading thread, the full indexes are never merged. The heap holds at most one decoded
+ * index per thread and the persistence classes of the read indexes, it does not grow with the size of the classpath.
+ */
+public class PersistenceIndexReader {
+
+    /**
+     * The annotations of the retained classes.
+     */
+    private final List<DotName> annotations;
+
+    /**
+     * Maximum number of the indexes decoded in parallel.
+     */
+    private final int threads;
+
+    /**
+     * Default constructor.
+     *
+     * @param annotations the annotations of the retained classes.
+     * @param threads     the maximum number of the indexes decoded in parallel.
+     */
+    public PersistenceIndexReader(Collection<DotName> annotations, int threads) {
+        this.annotations = List.copyOf(annotations);
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Read the index and keep the classes of the target annotations.
+     *
+     * @param input the index input stream.
+     * @return the persistence classes of the index.
+     * @throws IOException if the index could not be read.
+     */
+    public PersistenceClasses read(InputStream input) throws IOException {
+        return PersistenceClasses.of(new IndexReader(input).read(), annotations);
+    }
+
+    /**
+     * Read the index of the URL and keep the classes of the target annotations.
+     *
+     * @param url the index URL.
+     * @return the persistence classes of the index.
+     * @throws IOException if the index could not be read.
+     */
+    public PersistenceClasses read(URL url) throws IOException {
+        try (InputStream input = url.openStream()) {
+            return read(input);
+        }
+    }
+
+    /**
+     * Read the indexes on a bounded pool.
+     *
+     * @param urls the index URLs.
+     * @return the persistence classes in the order of the URLs.
+     * @throws IOException if one of the indexes could not be read.
+     */
+    public List<PersistenceClasses> readAll(List<URL> urls) throws IOException {
+        List<PersistenceClasses> result = new ArrayList<>(urls.size());
+        int size = Math.min(threads, urls.size());
+        if (size <= 1) {
+            for (URL url : urls) {
+                result.add(read(url));
+            }
+            return result;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(size);
+        try {
+            List<Future<PersistenceClasses>> futures = new ArrayList<>(urls.size());
+            for (URL url : urls) {
+                futures.add(executor.submit(() -> read(url)));
+            }
+            for (Future<PersistenceClasses> future : futures) {
+                result.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Reading of the indexes was interrupted.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException("Error reading the indexes.", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+}
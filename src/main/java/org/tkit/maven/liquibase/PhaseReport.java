@@ -0,0 +1,472 @@
+package org.tkit.maven.liquibase;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Timing and resource report of the mojo phases. Each phase records the wall time, the bytes allocated
+ * by the executing thread and the peak heap usage. The phases and the counters are emitted as JFR events
+ * and written as JSON report.
+ * The peak heap is the maximum of the heap usage at the phase start and end and of the heap usage before
+ * each garbage collection during the phase. The memory pools are not reset, nested phases do not change
+ * the peak of the outer phase. The peak is measured for the whole JVM, it is approximate when phases
+ * of parallel builds overlap.
+ */
+public class PhaseReport {
+
+    /**
+     * Thread bean for the allocated bytes.
+     */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Memory bean for the heap usage.
+     */
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    /**
+     * The mojo goal.
+     */
+    private final String goal;
+
+    /**
+     * The maven project id.
+     */
+    private final String project;
+
+    /**
+     * Start time of the report.
+     */
+    private final Instant started = Instant.now();
+
+    /**
+     * Start of the report in nanoseconds.
+     */
+    private final long start = System.nanoTime();
+
+    /**
+     * Finished phases.
+     */
+    private final List<Result> phases = new CopyOnWriteArrayList<>();
+
+    /**
+     * Counters by name.
+     */
+    private final Map<String, Long> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the report.
+     *
+     * @param goal    the mojo goal.
+     * @param project the maven project id.
+     */
+    public PhaseReport(String goal, String project) {
+        this.goal = goal;
+        this.project = project;
+    }
+
+    /**
+     * Start the phase. The phase is recorded when it is closed.
+     *
+     * @param name the phase name.
+     * @return the running phase.
+     */
+    public Phase start(String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * Add the value to the counter.
+     *
+     * @param name  the counter name.
+     * @param value the value.
+     */
+    public void count(String name, long value) {
+        counters.merge(name, value, Long::sum);
+        CounterEvent event = new CounterEvent();
+        if (event.isEnabled()) {
+            event.project = project;
+            event.goal = goal;
+            event.counter = name;
+            event.value = value;
+            event.commit();
+        }
+    }
+
+    /**
+     * Returns the finished phases.
+     *
+     * @return the finished phases.
+     */
+    public List<Result> getPhases() {
+        return List.copyOf(phases);
+    }
+
+    /**
+     * Returns the counters sorted by name.
+     *
+     * @return the counters.
+     */
+    public Map<String, Long> getCounters() {
+        return new TreeMap<>(counters);
+    }
+
+    /**
+     * Returns the phase durations for the log.
+     *
+     * @return the phase durations.
+     */
+    public String summary() {
+        return phases.stream().map(p -> p.name() + " " + p.millis() + " ms").collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Write the JSON report to the file.
+     *
+     * @param file the report file.
+     * @throws IOException if the file could not be written.
+     */
+    public void write(Path file) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"goal\": ").append(json(goal)).append(",\n");
+        sb.append("  \"project\": ").append(json(project)).append(",\n");
+        sb.append("  \"started\": ").append(json(started.toString())).append(",\n");
+        sb.append("  \"millis\": ").append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).append(",\n");
+        sb.append("  \"phases\": [");
+        List<Result> items = new ArrayList<>(phases);
+        for (int i = 0; i < items.size(); i++) {
+            Result item = items.get(i);
+            sb.append(i == 0 ? "\n" : ",\n");
+            sb.append("    {\"name\": ").append(json(item.name()))
+                    .append(", \"thread\": ").append(json(item.thread()))
+                    .append(", \"offsetMillis\": ").append(item.offsetMillis())
+                    .append(", \"millis\": ").append(item.millis())
+                    .append(", \"allocatedBytes\": ").append(item.allocatedBytes())
+                    .append(", \"peakHeapBytes\": ").append(item.peakHeapBytes())
+                    .append("}");
+        }
+        sb.append(items.isEmpty() ? "],\n" : "\n  ],\n");
+        sb.append("  \"counters\": {");
+        Map<String, Long> values = getCounters();
+        int i = 0;
+        for (Map.Entry<String, Long> item : values.entrySet()) {
+            sb.append(i++ == 0 ? "\n" : ",\n");
+            sb.append("    ").append(json(item.getKey())).append(": ").append(item.getValue());
+        }
+        sb.append(values.isEmpty() ? "}\n" : "\n  }\n");
+        sb.append("}\n");
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the JSON string value.
+     *
+     * @param value the value.
+     * @return the JSON string.
+     */
+    private static String json(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread or {@code -1} if not supported.
+     *
+     * @return the allocated bytes.
+     */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the used heap of the JVM.
+     *
+     * @return the used heap bytes.
+     */
+    private static long heapUsed() {
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Returns the names of the heap memory pools.
+     *
+     * @return the heap memory pool names.
+     */
+    private static Set<String> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid())
+                .map(MemoryPoolMXBean::getName)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Returns the garbage collectors which emit the collection notifications.
+     *
+     * @return the notification emitters of the garbage collectors.
+     */
+    private static List<NotificationEmitter> collectors() {
+        List<NotificationEmitter> result = new ArrayList<>();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter emitter) {
+                result.add(emitter);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Running phase of the report.
+     */
+    public class Phase implements AutoCloseable {
+
+        /**
+         * The phase name.
+         */
+        private final String name;
+
+        /**
+         * The phase start in nanoseconds.
+         */
+        private final long begin = System.nanoTime();
+
+        /**
+         * The allocated bytes of the thread at the phase start.
+         */
+        private final long allocated = allocatedBytes();
+
+        /**
+         * The peak heap usage of the phase.
+         */
+        private final AtomicLong peak = new AtomicLong(heapUsed());
+
+        /**
+         * The garbage collectors with the registered listener.
+         */
+        private final List<NotificationEmitter> collectors = collectors();
+
+        /**
+         * The garbage collection listener of the phase.
+         */
+        private final NotificationListener listener = this::collected;
+
+        /**
+         * The JFR event of the phase.
+         */
+        private final PhaseEvent event = new PhaseEvent();
+
+        /**
+         * Creates the phase.
+         *
+         * @param name the phase name.
+         */
+        Phase(String name) {
+            this.name = name;
+            collectors.forEach(emitter -> emitter.addNotificationListener(listener, null, null));
+            event.begin();
+        }
+
+        /**
+         * Update the peak with the heap usage before the garbage collection.
+         *
+         * @param notification the garbage collection notification.
+         * @param handback     the handback object, not used.
+         */
+        private void collected(Notification notification, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            Set<String> pools = heapPools();
+            long used = 0;
+            for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageBeforeGc().entrySet()) {
+                if (pools.contains(pool.getKey())) {
+                    used += pool.getValue().getUsed();
+                }
+            }
+            peak.accumulateAndGet(used, Math::max);
+        }
+
+        /**
+         * Record the phase.
+         */
+        @Override
+        public void close() {
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            long end = allocatedBytes();
+            long allocatedBytes = allocated >= 0 && end >= 0 ? end - allocated : -1;
+            for (NotificationEmitter emitter : collectors) {
+                try {
+                    emitter.removeNotificationListener(listener);
+                } catch (ListenerNotFoundException ex) {
+                    // not registered
+                }
+            }
+            long peakHeap = peak.accumulateAndGet(heapUsed(), Math::max);
+            phases.add(new Result(name, Thread.currentThread().getName(),
+                    TimeUnit.NANOSECONDS.toMillis(begin - start), millis, allocatedBytes, peakHeap));
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.project = project;
+                event.goal = goal;
+                event.phase = name;
+                event.allocated = allocatedBytes;
+                event.peakHeap = peakHeap;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Finished phase.
+     *
+     * @param name           the phase name.
+     * @param thread         the thread name.
+     * @param offsetMillis   the phase start relative to the report start.
+     * @param millis         the wall time.
+     * @param allocatedBytes the bytes allocated by the thread or {@code -1}.
+     * @param peakHeapBytes  the peak heap usage.
+     */
+    public record Result(String name, String thread, long offsetMillis, long millis, long allocatedBytes, long peakHeapBytes) {
+    }
+
+    /**
+     * JFR event of the mojo phase.
+     */
+    @Name("org.tkit.maven.liquibase.Phase")
+    @Label("Liquibase Plugin Phase")
+    @Category({"tkit", "Liquibase Plugin"})
+    @Description("Phase of the tkit liquibase plugin goal.")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+
+        /**
+         * The maven project id.
+         */
+        @Label("Project")
+        String project;
+
+        /**
+         * The mojo goal.
+         */
+        @Label("Goal")
+        String goal;
+
+        /**
+         * The phase name.
+         */
+        @Label("Phase")
+        String phase;
+
+        /**
+         * The bytes allocated by the thread.
+         */
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+
+        /**
+         * The peak heap usage.
+         */
+        @Label("Peak Heap")
+        @DataAmount
+        long peakHeap;
+    }
+
+    /**
+     * JFR event of the mojo counter.
+     */
+    @Name("org.tkit.maven.liquibase.Counter")
+    @Label("Liquibase Plugin Counter")
+    @Category({"tkit", "Liquibase Plugin"})
+    @Description("Counter of the tkit liquibase plugin goal.")
+    @StackTrace(false)
+    static class CounterEvent extends Event {
+
+        /**
+         * The maven project id.
+         */
+        @Label("Project")
+        String project;
+
+        /**
+         * The mojo goal.
+         */
+        @Label("Goal")
+        String goal;
+
+        /**
+         * The counter name.
+         */
+        @Label("Counter")
+        String counter;
+
+        /**
+         * The counter value.
+         */
+        @Label("Value")
+        long value;
+    }
+}
@@ -0,0 +1,219 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.change.Change;
+import liquibase.change.ChangeWithColumns;
+import liquibase.change.ColumnConfig;
+import liquibase.changelog.ChangeSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Compiled skip rules of the check goal. The rules are indexed by the serialized change name,
+ * each rule matches the object names of the change (table, index, constraint, sequence or view name).
+ * The column names are matched only for the column changes ({@code addColumn}, {@code dropColumn},
+ * {@code modifyDataType}, ...), also in the {@code table.column} format.
+ * <p>
+ * The rule value is a comma separated list of the names:
+ * <ul>
+ *     <li>{@code table1} - exact name</li>
+ *     <li>{@code tmp_*} - glob pattern with {@code *} and {@code ?}</li>
+ *     <li>{@code regex:tmp_[0-9]+} - regular expression, the rest of the value</li>
+ * </ul>
+ */
+public class SkipRules {
+
+    /**
+     * Change attributes with the object names.
+     */
+    private static final List<String> NAME_ATTRIBUTES = List.of(
+            "tableName", "oldTableName", "newTableName", "baseTableName", "referencedTableName",
+            "indexName", "constraintName", "sequenceName", "oldSequenceName", "newSequenceName",
+            "viewName", "oldViewName", "newViewName");
+
+    /**
+     * Change attributes with the column names.
+     */
+    private static final List<String> COLUMN_ATTRIBUTES = List.of("columnName", "oldColumnName", "newColumnName");
+
+    /**
+     * Changes of the columns of one table, the rules of these changes match the column names.
+     */
+    private static final Set<String> COLUMN_CHANGES = Set.of(
+            "addColumn", "dropColumn", "renameColumn", "modifyDataType", "addNotNullConstraint", "dropNotNullConstraint",
+            "addDefaultValue", "dropDefaultValue", "addAutoIncrement", "setColumnRemarks");
+
+    /**
+     * Rules by the serialized change name.
+     */
+    private final Map<String, NamePatterns> rules;
+
+    /**
+     * Default constructor.
+     *
+     * @param rules the rules by the serialized change name.
+     */
+    private SkipRules(Map<String, NamePatterns> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Compile the skip rules.
+     *
+     * @param skipChanges the skip changes map change_name - comma separated list of names.
+     * @return the compiled skip rules.
+     */
+    public static SkipRules compile(Map<String, String> skipChanges) {
+        Map<String, NamePatterns> rules = new HashMap<>();
+        if (skipChanges != null) {
+            for (Map.Entry<String, String> entry : skipChanges.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                NamePatterns rule = rules.computeIfAbsent(entry.getKey(), k -> new NamePatterns());
+                for (String item : NamePatterns.split(entry.getValue())) {
+                    rule.add(item);
+                }
+            }
+        }
+        rules.values().removeIf(NamePatterns::isEmpty);
+        return new SkipRules(rules);
+    }
+
+    /**
+     * Check if there are no rules.
+     *
+     * @return {@code true} if there are no rules.
+     */
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * Check if there are rules for the change.
+     *
+     * @param changeName the serialized change name.
+     * @return {@code true} if the change could be skipped.
+     */
+    public boolean hasRules(String changeName) {
+        return rules.containsKey(changeName);
+    }
+
+    /**
+     * Remove the skipped changes from the changeSets and returns the changeSets with the unresolved changes.
+     *
+     * @param changeSets the liquibase changeSets.
+     * @return the changeSets with the unresolved changes.
+     */
+    public List<ChangeSet> unresolved(List<ChangeSet> changeSets) {
+        List<ChangeSet> result = new ArrayList<>(changeSets.size());
+        for (ChangeSet item : changeSets) {
+
+            Set<Change> remove = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Change change : item.getChanges()) {
+                if (skip(change)) {
+                    remove.add(change);
+                }
+            }
+
+            // remove all skip changes from changeSet
+            if (!remove.isEmpty()) {
+                item.removeAllChanges(remove);
+            }
+
+            // keep only not empty changeSets
+            if (!item.getChanges().isEmpty()) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check if the liquibase change should be skipped.
+     *
+     * @param change the liquibase change.
+     * @return {@code true} if the change should be skipped.
+     */
+    public boolean skip(Change change) {
+        String changeName = change.getSerializedObjectName();
+        if (!hasRules(changeName)) {
+            return false;
+        }
+        List<String> columns = new ArrayList<>();
+        if (change instanceof ChangeWithColumns<?> item && item.getColumns() != null) {
+            for (ColumnConfig column : item.getColumns()) {
+                columns.add(column.getName());
+            }
+        }
+        return skip(changeName, attribute -> {
+            Object value = change.getSerializableFieldValue(attribute);
+            return value instanceof String text ? text : null;
+        }, columns);
+    }
+
+    /**
+     * Check if the change should be skipped.
+     *
+     * @param changeName the serialized change name.
+     * @param attributes the change attribute values by the attribute name.
+     * @param columns    the names of the change columns.
+     * @return {@code true} if the change should be skipped.
+     */
+    public boolean skip(String changeName, Function<String, String> attributes, List<String> columns) {
+        NamePatterns rule = rules.get(changeName);
+        if (rule == null) {
+            return false;
+        }
+        for (String attribute : NAME_ATTRIBUTES) {
+            String value = attributes.apply(attribute);
+            if (value != null && rule.matches(value)) {
+                return true;
+            }
+        }
+        if (!COLUMN_CHANGES.contains(changeName)) {
+            return false;
+        }
+        String tableName = attributes.apply("tableName");
+        for (String attribute : COLUMN_ATTRIBUTES) {
+            if (matchesColumn(rule, tableName, attributes.apply(attribute))) {
+                return true;
+            }
+        }
+        for (String name : columns) {
+            if (matchesColumn(rule, tableName, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if the column name matches the rule.
+     *
+     * @param rule      the rule.
+     * @param tableName the table name of the change or {@code null}.
+     * @param name      the column name or {@code null}.
+     * @return {@code true} if the name matches the rule.
+     */
+    private static boolean matchesColumn(NamePatterns rule, String tableName, String name) {
+        if (name == null) {
+            return false;
+        }
+        return rule.matches(name) || (tableName != null && rule.matches(tableName + "." + name));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return rules.toString();
+    }
+}
@@ -1,27 +1,60 @@
-package org.tkit.maven.liquibase;
-
-import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
-
-/**
- * Tenant resolver.
- */
-public class TenantIdentifierResolver implements CurrentTenantIdentifierResolver {
-
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public String resolveCurrentTenantIdentifier() {
-        return "base";
-    }
-
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public boolean validateExistingCurrentSessions() {
-        return false;
-    }
-}
\ No newline at end of file
+package org.tkit.maven.liquibase;
+
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+
+/**
+ * Tenant resolver.
+ */
+public class TenantIdentifierResolver implements CurrentTenantIdentifierResolver {
+
+    /**
+     * Default tenant.
+     */
+    public static final String DEFAULT_TENANT = "base";
+
+    /**
+     * The tenant identifier.
+     */
+    private final String tenant;
+
+    /**
+     * Default constructor.
+     */
+    public TenantIdentifierResolver() {
+        this(DEFAULT_TENANT);
+    }
+
+    /**
+     * Creates the resolver of the tenant.
+     *
+     * @param tenant the tenant identifier.
+     */
+    public TenantIdentifierResolver(String tenant) {
+        this.tenant = tenant;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String resolveCurrentTenantIdentifier() {
+        return tenant;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean validateExistingCurrentSessions() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return TenantIdentifierResolver.class.getName() + "[" + tenant + "]";
+    }
+}
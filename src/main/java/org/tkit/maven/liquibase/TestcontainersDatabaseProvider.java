@@ -0,0 +1,145 @@
+package org.tkit.maven.liquibase;
+
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.Container;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+import org.testcontainers.utility.MountableFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Postgres database in the docker container.
+ */
+public class TestcontainersDatabaseProvider implements DatabaseProvider {
+
+    /**
+     * Postgres container.
+     */
+    private final PostgreSQLContainer<?> container;
+
+    /**
+     * Dump file directory in the container.
+     */
+    private static final String CONTAINER_DUMP_DIR = "/tmp/";
+
+    /**
+     * Default constructor.
+     *
+     * @param postgresVersion the postgres docker image version.
+     */
+    public TestcontainersDatabaseProvider(String postgresVersion) {
+        DockerImageName postgresDockerName = DockerImageName.parse(PostgreSQLContainer.IMAGE)
+                .withTag(postgresVersion != null ? postgresVersion : PostgreSQLContainer.DEFAULT_TAG);
+        container = new PostgreSQLContainer<>(postgresDockerName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prepare() {
+        // workaround to activate docker
+        DockerClientFactory.instance().client().pingCmd().exec();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void start() {
+        container.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop() {
+        container.stop();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getJdbcUrl() {
+        return container.getJdbcUrl();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getUsername() {
+        return container.getUsername();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPassword() {
+        return container.getPassword();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getJdbcUrl(String database) {
+        return "jdbc:postgresql://" + container.getHost() + ":" + container.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT)
+                + "/" + database + "?loggerLevel=OFF";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDatabaseName() {
+        return container.getDatabaseName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isDumpSupported() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dump(String database, Path file) throws Exception {
+        String dumpFile = CONTAINER_DUMP_DIR + database + ".dump";
+        exec("pg_dump", "-U", getUsername(), "-d", database, "-Fc", "-f", dumpFile);
+        container.copyFileFromContainer(dumpFile, file.toString());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void restore(String database, Path file) throws Exception {
+        String dumpFile = CONTAINER_DUMP_DIR + database + ".dump";
+        container.copyFileToContainer(MountableFile.forHostPath(file), dumpFile);
+        exec("pg_restore", "-U", getUsername(), "-d", database, "--no-owner", "--exit-on-error", dumpFile);
+    }
+
+    /**
+     * Execute the command in the container.
+     *
+     * @param command the command.
+     * @throws IOException          if the command failed.
+     * @throws InterruptedException if the command was interrupted.
+     */
+    private void exec(String... command) throws IOException, InterruptedException {
+        Container.ExecResult result = container.execInContainer(command);
+        if (result.getExitCode() != 0) {
+            throw new IOException("Command " + command[0] + " failed with exit code " + result.getExitCode() + ": " + result.getStderr());
+        }
+    }
+}
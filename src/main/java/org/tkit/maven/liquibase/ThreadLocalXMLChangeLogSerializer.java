@@ -0,0 +1,65 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.changelog.ChangeLogChild;
+import liquibase.changelog.ChangeSet;
+import liquibase.serializer.ChangeLogSerializer;
+import liquibase.serializer.LiquibaseSerializable;
+import liquibase.serializer.core.xml.XMLChangeLogSerializer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * XML changelog serializer for the parallel maven builds. The liquibase {@link XMLChangeLogSerializer}
+ * is registered as a singleton with one DOM document, this serializer uses one instance per thread.
+ * Registered with higher priority in {@code META-INF/services/liquibase.serializer.ChangeLogSerializer}.
+ */
+public class ThreadLocalXMLChangeLogSerializer implements ChangeLogSerializer {
+
+    /**
+     * XML serializer of the current thread.
+     */
+    private static final ThreadLocal<XMLChangeLogSerializer> SERIALIZER = ThreadLocal.withInitial(XMLChangeLogSerializer::new);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getValidFileExtensions() {
+        return SERIALIZER.get().getValidFileExtensions();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String serialize(LiquibaseSerializable object, boolean pretty) {
+        return SERIALIZER.get().serialize(object, pretty);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends ChangeLogChild> void write(List<T> children, OutputStream out) throws IOException {
+        SERIALIZER.get().write(children, out);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void append(ChangeSet changeSet, File changeLogFile) throws IOException {
+        SERIALIZER.get().append(changeSet, changeLogFile);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPriority() {
+        return SERIALIZER.get().getPriority() + 1;
+    }
+}
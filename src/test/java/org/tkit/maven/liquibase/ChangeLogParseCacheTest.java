@@ -0,0 +1,177 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.Scope;
+import liquibase.changelog.ChangeLogParameters;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.resource.CompositeResourceAccessor;
+import liquibase.resource.DirectoryResourceAccessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the cache of the parsed XML changelog files.
+ */
+class ChangeLogParseCacheTest {
+
+    /**
+     * Changelog header.
+     */
+    private static final String HEADER = """
+            <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+            <databaseChangeLog xmlns="http://www.liquibase.org/xml/ns/dbchangelog"
+                               xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+                               xsi:schemaLocation="http://www.liquibase.org/xml/ns/dbchangelog http://www.liquibase.org/xml/ns/dbchangelog/dbchangelog-latest.xsd">
+            """;
+
+    /**
+     * Prefetch parses the include tree once, the next build reads all files from the cache.
+     *
+     * @param directory the changelog directory.
+     * @throws Exception if the changelog could not be parsed.
+     */
+    @Test
+    void prefetchIncludeTree(@TempDir Path directory) throws Exception {
+        Path changeLog = changeLogs(directory);
+        Path cacheDirectory = directory.resolve("cache");
+
+        ChangeLogParseCache cache = new ChangeLogParseCache(cacheDirectory);
+        Set<Path> files = cache.prefetch(changeLog, List.of(directory.resolve("resources")), 2);
+        assertEquals(Set.of(changeLog, directory.resolve("db/one.xml"), directory.resolve("db/all/a.xml"),
+                directory.resolve("db/all/b.xml"), directory.resolve("resources/root.xml")), files);
+        assertEquals(5, cache.getParsed());
+        assertEquals(0, cache.getCached());
+        assertEquals(5, cacheFiles(cacheDirectory));
+
+        ChangeLogParseCache next = new ChangeLogParseCache(cacheDirectory);
+        assertEquals(files, next.prefetch(changeLog, List.of(directory.resolve("resources")), 2));
+        assertEquals(0, next.getParsed());
+        assertEquals(5, next.getCached());
+    }
+
+    /**
+     * The memory cache does not write cache files.
+     *
+     * @param directory the changelog directory.
+     * @throws Exception if the changelog could not be parsed.
+     */
+    @Test
+    void memoryOnly(@TempDir Path directory) throws Exception {
+        Path changeLog = changeLogs(directory);
+        ChangeLogParseCache cache = new ChangeLogParseCache(null);
+        assertEquals(5, cache.prefetch(changeLog, List.of(directory.resolve("resources")), 1).size());
+        assertEquals(5, cache.getParsed());
+        try (Stream<Path> stream = Files.walk(directory)) {
+            assertEquals(0, stream.filter(p -> p.toString().endsWith(".node")).count());
+        }
+        cache.prune();
+    }
+
+    /**
+     * The liquibase parser reads the changelog and all included files from the cache and creates the same changeSets.
+     *
+     * @param directory the changelog directory.
+     * @throws Exception if the changelog could not be parsed.
+     */
+    @Test
+    void parseFromCache(@TempDir Path directory) throws Exception {
+        Path changeLog = changeLogs(directory);
+        List<String> expected = ids(directory, null);
+
+        ChangeLogParseCache cache = new ChangeLogParseCache(directory.resolve("cache"));
+        cache.prefetch(changeLog, List.of(directory.resolve("resources")), 2);
+        assertEquals(expected, ids(directory, cache));
+        assertEquals(5, cache.getParsed());
+        assertEquals(5, cache.getCached());
+    }
+
+    /**
+     * Write the master changelog with the relative, the not relative and the directory includes.
+     * The changelogs contain a random id, the cache of the build does not contain them.
+     *
+     * @param directory the changelog directory.
+     * @return the master changelog file.
+     * @throws Exception if the files could not be written.
+     */
+    private static Path changeLogs(Path directory) throws Exception {
+        String id = UUID.randomUUID().toString();
+        Files.createDirectories(directory.resolve("db/all"));
+        Files.createDirectories(directory.resolve("resources"));
+        write(directory.resolve("db/one.xml"), changeSet(id, "one"));
+        write(directory.resolve("db/all/a.xml"), changeSet(id, "a"));
+        write(directory.resolve("db/all/b.xml"), changeSet(id, "b"));
+        write(directory.resolve("resources/root.xml"), changeSet(id, "root"));
+        return write(directory.resolve("changeLog.xml"), changeSet(id, "master") + """
+                    <include file="db/one.xml" relativeToChangelogFile="true"/>
+                    <includeAll path="db/all" relativeToChangelogFile="true"/>
+                    <include file="root.xml"/>
+                """);
+    }
+
+    /**
+     * Returns the changeSet XML.
+     *
+     * @param id   the random id of the changelogs.
+     * @param name the changelog name.
+     * @return the changeSet XML.
+     */
+    private static String changeSet(String id, String name) {
+        return "    <changeSet author=\"" + id + "\" id=\"" + name + "\">\n"
+                + "        <dropTable tableName=\"t_" + name + "\"/>\n"
+                + "    </changeSet>\n";
+    }
+
+    /**
+     * Write the changelog file.
+     *
+     * @param file    the changelog file.
+     * @param content the changelog content.
+     * @return the changelog file.
+     * @throws Exception if the file could not be written.
+     */
+    private static Path write(Path file, String content) throws Exception {
+        return Files.writeString(file, HEADER + content + "</databaseChangeLog>\n");
+    }
+
+    /**
+     * Returns the number of the cache files.
+     *
+     * @param directory the cache directory.
+     * @return the number of the cache files.
+     * @throws Exception if the directory could not be read.
+     */
+    private static long cacheFiles(Path directory) throws Exception {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.filter(p -> p.toString().endsWith(".node")).count();
+        }
+    }
+
+    /**
+     * Parse the changelog with the liquibase parser.
+     *
+     * @param directory the changelog directory.
+     * @param cache     the changelog parse cache of the scope or {@code null}.
+     * @return the changeSet ids.
+     * @throws Exception if the changelog could not be parsed.
+     */
+    private static List<String> ids(Path directory, ChangeLogParseCache cache) throws Exception {
+        try (DirectoryResourceAccessor accessor = new DirectoryResourceAccessor(directory);
+             DirectoryResourceAccessor resources = new DirectoryResourceAccessor(directory.resolve("resources"))) {
+            CompositeResourceAccessor accessors = new CompositeResourceAccessor(accessor, resources);
+            return Scope.child(cache == null ? Map.of() : Map.of(ChangeLogParseCache.SCOPE_KEY, cache), () -> {
+                DatabaseChangeLog changeLog = new CachingXMLChangeLogParser().parse("changeLog.xml", new ChangeLogParameters(), accessors);
+                return changeLog.getChangeSets().stream().map(ChangeSet::getId).toList();
+            });
+        }
+    }
+}
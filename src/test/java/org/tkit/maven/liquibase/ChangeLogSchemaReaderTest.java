@@ -0,0 +1,246 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.change.AddColumnConfig;
+import liquibase.change.Change;
+import liquibase.change.ColumnConfig;
+import liquibase.change.core.AddForeignKeyConstraintChange;
+import liquibase.change.core.AddPrimaryKeyChange;
+import liquibase.change.core.AddUniqueConstraintChange;
+import liquibase.change.core.CreateIndexChange;
+import liquibase.change.core.CreateTableChange;
+import liquibase.change.core.DropColumnChange;
+import liquibase.change.core.RenameColumnChange;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.ForeignKeyConstraintType;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.Table;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the schema model of the offline diff read from the liquibase changes.
+ */
+class ChangeLogSchemaReaderTest {
+
+    /**
+     * The schema model.
+     */
+    private OfflineSchema schema;
+
+    /**
+     * Create the schema model with the person and address tables, the primary keys, the unique constraint,
+     * the index and the foreign key.
+     *
+     * @throws Exception if the offline database could not be created.
+     */
+    @BeforeEach
+    void createSchema() throws Exception {
+        Database database = DatabaseFactory.getInstance().openDatabase("offline:postgresql", null, null, null, null);
+        database.setDefaultSchemaName("public");
+        schema = new OfflineSchema(database, "public");
+
+        CreateIndexChange index = new CreateIndexChange();
+        index.setTableName("person");
+        index.setIndexName("ix_person_code");
+        AddColumnConfig indexColumn = new AddColumnConfig();
+        indexColumn.setName("code");
+        index.addColumn(indexColumn);
+
+        AddForeignKeyConstraintChange fk = new AddForeignKeyConstraintChange();
+        fk.setConstraintName("fk_person_address");
+        fk.setBaseTableName("person");
+        fk.setBaseColumnNames("address_id");
+        fk.setReferencedTableName("address");
+        fk.setReferencedColumnNames("id");
+        fk.setDeleteCascade(true);
+
+        read(createTable("address", "id", "street"),
+                createTable("person", "id", "code", "address_id"),
+                primaryKey("address", "id"),
+                primaryKey("person", "id,code"),
+                uniqueConstraint("person", "uk_person_code", "code"),
+                index, fk);
+    }
+
+    /**
+     * The changes create the tables, constraints, indexes and foreign keys.
+     */
+    @Test
+    void readTables() {
+        Table person = schema.getTable("person");
+        assertNotNull(person);
+        assertEquals(List.of("id", "code", "address_id"), names(person.getColumns()));
+        assertEquals(List.of("id", "code"), names(person.getPrimaryKey().getColumns()));
+        assertEquals(List.of("code"), names(person.getUniqueConstraints().get(0).getColumns()));
+        assertEquals(List.of("code"), names(index(person, "ix_person_code").getColumns()));
+        ForeignKey fk = person.getOutgoingForeignKeys().get(0);
+        assertEquals(List.of("address_id"), names(fk.getForeignKeyColumns()));
+        assertEquals(ForeignKeyConstraintType.importedKeyCascade, fk.getDeleteRule());
+    }
+
+    /**
+     * Dropping a column removes the primary key, unique constraints, indexes and foreign keys with the column.
+     */
+    @Test
+    void dropColumnRemovesConstraints() {
+        DropColumnChange dropCode = new DropColumnChange();
+        dropCode.setTableName("person");
+        dropCode.setColumnName("code");
+        DropColumnChange dropAddress = new DropColumnChange();
+        dropAddress.setTableName("person");
+        dropAddress.setColumnName("address_id");
+        read(dropCode, dropAddress);
+
+        Table person = schema.getTable("person");
+        assertEquals(List.of("id"), names(person.getColumns()));
+        assertNull(person.getPrimaryKey());
+        assertTrue(person.getUniqueConstraints().isEmpty());
+        assertTrue(person.getIndexes().isEmpty());
+        assertTrue(person.getOutgoingForeignKeys().isEmpty());
+    }
+
+    /**
+     * Dropping a referenced column removes the foreign keys of the other tables.
+     */
+    @Test
+    void dropReferencedColumnRemovesForeignKey() {
+        DropColumnChange drop = new DropColumnChange();
+        drop.setTableName("address");
+        drop.setColumnName("id");
+        read(drop);
+
+        assertNull(schema.getTable("address").getPrimaryKey());
+        assertTrue(schema.getTable("person").getOutgoingForeignKeys().isEmpty());
+    }
+
+    /**
+     * Renaming a column renames it in the primary key, unique constraints, indexes and foreign keys.
+     */
+    @Test
+    void renameColumnRenamesReferences() {
+        read(renameColumn("person", "code", "person_code"), renameColumn("address", "id", "address_key"),
+                renameColumn("person", "address_id", "address_key"));
+
+        Table person = schema.getTable("person");
+        assertEquals(List.of("id", "person_code", "address_key"), names(person.getColumns()));
+        assertEquals(List.of("id", "person_code"), names(person.getPrimaryKey().getColumns()));
+        assertEquals(List.of("person_code"), names(person.getUniqueConstraints().get(0).getColumns()));
+        assertEquals(List.of("person_code"), names(index(person, "ix_person_code").getColumns()));
+        ForeignKey fk = person.getOutgoingForeignKeys().get(0);
+        assertEquals(List.of("address_key"), names(fk.getForeignKeyColumns()));
+        assertEquals(List.of("address_key"), names(fk.getPrimaryKeyColumns()));
+        assertEquals(List.of("address_key"), names(schema.getTable("address").getPrimaryKey().getColumns()));
+    }
+
+    /**
+     * Read the changes as one changeset into the schema model.
+     *
+     * @param changes the changes.
+     */
+    private void read(Change... changes) {
+        DatabaseChangeLog changeLog = new DatabaseChangeLog("changeLog.xml");
+        ChangeSet changeSet = new ChangeSet("1", "test", false, false, "changeLog.xml", null, null, changeLog);
+        for (Change change : changes) {
+            changeSet.addChange(change);
+        }
+        changeLog.addChangeSet(changeSet);
+        ChangeLogSchemaReader reader = new ChangeLogSchemaReader(schema);
+        reader.read(changeLog);
+        assertEquals(List.of(), reader.getWarnings());
+    }
+
+    /**
+     * Returns the create table change with the bigint columns.
+     *
+     * @param table   the table name.
+     * @param columns the column names.
+     * @return the change.
+     */
+    private static CreateTableChange createTable(String table, String... columns) {
+        CreateTableChange result = new CreateTableChange();
+        result.setTableName(table);
+        for (String column : columns) {
+            result.addColumn(new ColumnConfig().setName(column).setType("bigint"));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the add primary key change.
+     *
+     * @param table   the table name.
+     * @param columns the comma separated column names.
+     * @return the change.
+     */
+    private static AddPrimaryKeyChange primaryKey(String table, String columns) {
+        AddPrimaryKeyChange result = new AddPrimaryKeyChange();
+        result.setTableName(table);
+        result.setColumnNames(columns);
+        return result;
+    }
+
+    /**
+     * Returns the add unique constraint change.
+     *
+     * @param table   the table name.
+     * @param name    the constraint name.
+     * @param columns the comma separated column names.
+     * @return the change.
+     */
+    private static AddUniqueConstraintChange uniqueConstraint(String table, String name, String columns) {
+        AddUniqueConstraintChange result = new AddUniqueConstraintChange();
+        result.setTableName(table);
+        result.setConstraintName(name);
+        result.setColumnNames(columns);
+        return result;
+    }
+
+    /**
+     * Returns the rename column change.
+     *
+     * @param table   the table name.
+     * @param oldName the old column name.
+     * @param newName the new column name.
+     * @return the change.
+     */
+    private static RenameColumnChange renameColumn(String table, String oldName, String newName) {
+        RenameColumnChange result = new RenameColumnChange();
+        result.setTableName(table);
+        result.setOldColumnName(oldName);
+        result.setNewColumnName(newName);
+        return result;
+    }
+
+    /**
+     * Returns the index of the table.
+     *
+     * @param table the table.
+     * @param name  the index name.
+     * @return the index.
+     */
+    private static Index index(Table table, String name) {
+        return table.getIndexes().stream().filter(index -> name.equals(index.getName())).findFirst().orElseThrow();
+    }
+
+    /**
+     * Returns the column names.
+     *
+     * @param columns the columns.
+     * @return the column names.
+     */
+    private static List<String> names(List<Column> columns) {
+        return columns.stream().map(Column::getName).toList();
+    }
+}
@@ -0,0 +1,147 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.Scope;
+import liquibase.change.ColumnConfig;
+import liquibase.change.core.CreateTableChange;
+import liquibase.change.core.RawSQLChange;
+import liquibase.changelog.ChangeLogHistoryServiceFactory;
+import liquibase.changelog.ChangeSet;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the rendered SQL scripts of the bulk update.
+ */
+class ChangeLogScriptsTest {
+
+    /**
+     * The statements are read back unchanged, also with line breaks and lines which look like the statement header.
+     *
+     * @param directory the script directory.
+     * @throws Exception if the script could not be written or read.
+     */
+    @Test
+    void writeAndRead(@TempDir Path directory) throws Exception {
+        ChangeLogScripts scripts = new ChangeLogScripts(directory, 10);
+        List<String> statements = List.of(
+                "CREATE TABLE t_person (id BIGINT)",
+                "INSERT INTO t_person VALUES (1);\n-- statement 3\r\nabc",
+                "",
+                "COMMENT ON TABLE t_person IS 'äöü\n'");
+        assertNull(scripts.read("hash"));
+        scripts.write("hash", statements);
+        assertEquals(statements, scripts.read("hash"));
+    }
+
+    /**
+     * The least recently used scripts are removed.
+     *
+     * @param directory the script directory.
+     * @throws Exception if the script could not be written or read.
+     */
+    @Test
+    void prune(@TempDir Path directory) throws Exception {
+        ChangeLogScripts scripts = new ChangeLogScripts(directory, 2);
+        scripts.write("a", List.of("a"));
+        Files.setLastModifiedTime(directory.resolve("a.sql"), FileTime.fromMillis(1000));
+        scripts.write("b", List.of("b"));
+        scripts.write("c", List.of("c"));
+        assertNull(scripts.read("a"));
+        assertEquals(List.of("b"), scripts.read("b"));
+        assertEquals(List.of("c"), scripts.read("c"));
+    }
+
+    /**
+     * The script file without the statement header is rejected.
+     *
+     * @param directory the script directory.
+     * @throws Exception if the script could not be written.
+     */
+    @Test
+    void invalidScript(@TempDir Path directory) throws Exception {
+        Files.writeString(directory.resolve("hash.sql"), "CREATE TABLE t_person (id BIGINT)\n");
+        assertThrows(IOException.class, () -> new ChangeLogScripts(directory, 10).read("hash"));
+        Files.writeString(directory.resolve("hash.sql"), "-- statement 100\nCREATE TABLE\n");
+        assertThrows(IOException.class, () -> new ChangeLogScripts(directory, 10).read("hash"));
+    }
+
+    /**
+     * The statements of the changes are followed by the insert of the changeset into the changelog table.
+     *
+     * @param directory the directory of the offline changelog table.
+     * @throws Exception if the statements could not be rendered.
+     */
+    @Test
+    void render(@TempDir Path directory) throws Exception {
+        ChangeSet changeSet = changeSet("1");
+        CreateTableChange createTable = new CreateTableChange();
+        createTable.setTableName("t_person");
+        createTable.addColumn(new ColumnConfig().setName("id").setType("bigint"));
+        changeSet.addChange(createTable);
+        RawSQLChange sql = new RawSQLChange("update t_person set id = 1");
+        changeSet.addChange(sql);
+
+        List<String> statements = ChangeLogScripts.render(List.of(changeSet), database(directory));
+        assertEquals(3, statements.size());
+        assertTrue(statements.get(0).startsWith("CREATE TABLE"), statements.get(0));
+        assertEquals("update t_person set id = 1", statements.get(1));
+        assertTrue(statements.get(2).startsWith("INSERT INTO"), statements.get(2));
+        assertTrue(statements.get(2).contains("'1', 'test', 'changeLog.xml'"), statements.get(2));
+    }
+
+    /**
+     * The changesets which the liquibase update has to execute are rejected.
+     *
+     * @param directory the directory of the offline changelog table.
+     * @throws Exception if the database could not be created.
+     */
+    @Test
+    void unsupportedChangeSet(@TempDir Path directory) throws Exception {
+        Database database = database(directory);
+        ChangeSet changeSet = new ChangeSet("1", "test", false, false, "changeLog.xml", null, null, false, null, null);
+        changeSet.addChange(new RawSQLChange("vacuum"));
+
+        ChangeLogScripts.UnsupportedChangeSetException ex = assertThrows(ChangeLogScripts.UnsupportedChangeSetException.class,
+                () -> ChangeLogScripts.render(List.of(changeSet("0"), changeSet), database));
+        assertSame(changeSet, ex.getChangeSet());
+        assertTrue(ex.getMessage().startsWith("runInTransaction=false of "), ex.getMessage());
+    }
+
+    /**
+     * Returns the changeset of the test changelog.
+     *
+     * @param id the changeset id.
+     * @return the changeset.
+     */
+    private static ChangeSet changeSet(String id) {
+        return new ChangeSet(id, "test", false, false, "changeLog.xml", null, null, null);
+    }
+
+    /**
+     * Returns the offline postgres database with the changelog table in the directory.
+     *
+     * @param directory the directory of the offline changelog table.
+     * @return the database.
+     * @throws Exception if the database could not be created.
+     */
+    private static Database database(Path directory) throws Exception {
+        Database result = DatabaseFactory.getInstance().openDatabase("offline:postgresql?changeLogFile="
+                + directory.resolve("databasechangelog.csv"), null, null, null, null);
+        Scope.getCurrentScope().getSingleton(ChangeLogHistoryServiceFactory.class).getChangeLogService(result).init();
+        return result;
+    }
+}
@@ -0,0 +1,187 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.change.Change;
+import liquibase.changelog.ChangeLogParameters;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.parser.core.xml.XMLChangeLogSAXParser;
+import liquibase.resource.DirectoryResourceAccessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the streaming check of the changelog with the skip rules applied to the changelog of the liquibase parser.
+ */
+class ChangeLogStreamCheckTest {
+
+    /**
+     * Changelog header.
+     */
+    private static final String HEADER = """
+            <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+            <databaseChangeLog xmlns="http://www.liquibase.org/xml/ns/dbchangelog"
+                               xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+                               xsi:schemaLocation="http://www.liquibase.org/xml/ns/dbchangelog http://www.liquibase.org/xml/ns/dbchangelog/dbchangelog-latest.xsd">
+            """;
+
+    /**
+     * Changelog footer.
+     */
+    private static final String FOOTER = "</databaseChangeLog>\n";
+
+    /**
+     * ChangeSets of the diff changelog.
+     */
+    private static final String CHANGE_SETS = """
+                <changeSet author="test" id="1">
+                    <createTable tableName="t_person">
+                        <column name="id" type="BIGINT">
+                            <constraints nullable="false" primaryKey="true" primaryKeyName="t_person_pkey"/>
+                        </column>
+                        <column name="name" type="VARCHAR(100)"/>
+                    </createTable>
+                </changeSet>
+                <changeSet author="test" id="2">
+                    <comment>legacy columns</comment>
+                    <dropColumn columnName="legacy" tableName="t_person"/>
+                    <dropColumn columnName="old_name" tableName="t_person"/>
+                </changeSet>
+                <changeSet author="test" id="3">
+                    <dropTable tableName="tmp_import"/>
+                    <dropTable tableName="t_address"/>
+                </changeSet>
+                <changeSet author="test" id="4">
+                    <createIndex indexName="ix_tmp_ab" tableName="t_person">
+                        <column name="name"/>
+                    </createIndex>
+                </changeSet>
+                <changeSet author="test" id="5">
+                    <addColumn tableName="t_person">
+                        <column name="email" type="VARCHAR(255)"/>
+                    </addColumn>
+                </changeSet>
+            """;
+
+    /**
+     * Skip rules of the changelog.
+     */
+    private static final Map<String, String> RULES = Map.of(
+            "dropColumn", "legacy, t_person.old_*",
+            "dropTable", "tmp_*",
+            "createIndex", "regex:ix_tmp_[a-z]{1,3}",
+            "addColumn", "t_person.email");
+
+    /**
+     * The streaming check writes the same unresolved changeSets and changes as the liquibase parser with the skip rules.
+     *
+     * @param directory the changelog directory.
+     * @throws Exception if the check failed.
+     */
+    @Test
+    void sameUnresolvedChangesAsParser(@TempDir Path directory) throws Exception {
+        Path file = write(directory, CHANGE_SETS);
+        SkipRules skip = SkipRules.compile(RULES);
+
+        ChangeLogStreamCheck check = new ChangeLogStreamCheck(skip);
+        List<String> fragments = new ArrayList<>();
+        assertEquals(ChangeLogStreamCheck.Result.INVALID, check.check(file));
+        check.write(file, fragments::add);
+
+        DatabaseChangeLog changeLog = parse(directory, file);
+        List<ChangeSet> changeSets = changeLog.getChangeSets();
+        int changes = changeSets.stream().mapToInt(item -> item.getChanges().size()).sum();
+        List<ChangeSet> unresolved = skip.unresolved(changeSets);
+        int unresolvedChanges = unresolved.stream().mapToInt(item -> item.getChanges().size()).sum();
+
+        assertEquals(changeSets.size(), check.getChangeSets());
+        assertEquals(changes, check.getChanges());
+        assertEquals(unresolvedChanges, check.getChanges() - check.getSkippedChanges());
+        assertEquals(unresolved.size(), fragments.size());
+        for (int i = 0; i < unresolved.size(); i++) {
+            String fragment = fragments.get(i);
+            assertTrue(fragment.contains("id=\"" + unresolved.get(i).getId() + "\""), fragment);
+            for (Change change : unresolved.get(i).getChanges()) {
+                assertTrue(fragment.contains("<" + change.getSerializedObjectName()), fragment);
+            }
+        }
+        assertEquals(List.of("1", "3"), unresolved.stream().map(ChangeSet::getId).toList());
+        assertTrue(fragments.get(1).contains("t_address") && !fragments.get(1).contains("tmp_import"), fragments.get(1));
+    }
+
+    /**
+     * The streaming check and the liquibase parser with the skip rules find no unresolved changes.
+     *
+     * @param directory the changelog directory.
+     * @throws Exception if the check failed.
+     */
+    @Test
+    void sameValidResultAsParser(@TempDir Path directory) throws Exception {
+        Path file = write(directory, CHANGE_SETS);
+        SkipRules skip = SkipRules.compile(Map.of(
+                "createTable", "t_*",
+                "dropColumn", "legacy,old_name",
+                "dropTable", "regex:t(mp)?_.*",
+                "createIndex", "ix_*",
+                "addColumn", "email"));
+
+        ChangeLogStreamCheck check = new ChangeLogStreamCheck(skip);
+        assertEquals(ChangeLogStreamCheck.Result.VALID, check.check(file));
+        assertEquals(check.getChanges(), check.getSkippedChanges());
+        assertTrue(skip.unresolved(parse(directory, file).getChangeSets()).isEmpty());
+    }
+
+    /**
+     * Changelogs with includes, properties or property placeholders in the skipped changes need the liquibase parser.
+     *
+     * @param directory the changelog directory.
+     * @throws Exception if the check failed.
+     */
+    @Test
+    void unsupportedFeatures(@TempDir Path directory) throws Exception {
+        ChangeLogStreamCheck check = new ChangeLogStreamCheck(SkipRules.compile(RULES));
+        assertEquals(ChangeLogStreamCheck.Result.UNSUPPORTED,
+                check.check(write(directory, "    <include file=\"other.xml\" relativeToChangelogFile=\"true\"/>\n")));
+        assertEquals(ChangeLogStreamCheck.Result.UNSUPPORTED,
+                check.check(write(directory, "    <property name=\"table\" value=\"t_person\"/>\n")));
+        assertEquals(ChangeLogStreamCheck.Result.UNSUPPORTED, check.check(write(directory, """
+                    <changeSet author="test" id="1">
+                        <dropTable tableName="${table}"/>
+                    </changeSet>
+                """)));
+    }
+
+    /**
+     * Write the changelog file.
+     *
+     * @param directory  the changelog directory.
+     * @param changeSets the XML content of the changelog.
+     * @return the changelog file.
+     * @throws Exception if the file could not be written.
+     */
+    private static Path write(Path directory, String changeSets) throws Exception {
+        return Files.writeString(directory.resolve("changeLog.xml"), HEADER + changeSets + FOOTER);
+    }
+
+    /**
+     * Parse the changelog with the liquibase XML parser.
+     *
+     * @param directory the changelog directory.
+     * @param file      the changelog file.
+     * @return the changelog.
+     * @throws Exception if the changelog could not be parsed.
+     */
+    private static DatabaseChangeLog parse(Path directory, Path file) throws Exception {
+        try (DirectoryResourceAccessor accessor = new DirectoryResourceAccessor(directory)) {
+            return new XMLChangeLogSAXParser().parse(file.getFileName().toString(), new ChangeLogParameters(), accessor);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.command.CommandScope;
+import liquibase.command.core.DiffChangelogCommandStep;
+import liquibase.command.core.helpers.DbUrlConnectionArgumentsCommandStep;
+import liquibase.command.core.helpers.ReferenceDbUrlConnectionCommandStep;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.diff.DiffGeneratorFactory;
+import liquibase.diff.DiffResult;
+import liquibase.diff.compare.CompareControl;
+import liquibase.structure.DatabaseObject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the diff steps of the diff goal with the liquibase {@code diffChangelog} command.
+ */
+class DatabaseDiffTest {
+
+    /**
+     * The changeset author.
+     */
+    private static final String AUTHOR = "test";
+
+    /**
+     * The database server of the test.
+     */
+    private static DatabaseProvider server;
+
+    /**
+     * Start the database server and create the reference and the comparison database.
+     *
+     * @throws Exception if the databases could not be created.
+     */
+    @BeforeAll
+    static void start() throws Exception {
+        server = new EmbeddedDatabaseProvider();
+        server.start();
+        server.createDatabase("reference");
+        server.createDatabase("comparison");
+        JdbcScript.execute(server.getJdbcUrl("reference"), server.getUsername(), server.getPassword(), List.of(
+                "create sequence t_person_seq start with 1 increment by 50",
+                "create table t_address (id bigint not null primary key, street varchar(255), city varchar(100) not null)",
+                "create table t_person (id bigint not null primary key, name varchar(100) not null, email varchar(255),"
+                        + " address_id bigint, constraint uk_person_email unique (email))",
+                "alter table t_person add constraint fk_person_address foreign key (address_id) references t_address (id)",
+                "create index ix_person_name on t_person (name)"), JdbcScript.DEFAULT_BATCH_SIZE);
+        JdbcScript.execute(server.getJdbcUrl("comparison"), server.getUsername(), server.getPassword(), List.of(
+                "create table t_person (id bigint not null primary key, name varchar(50), legacy varchar(10))",
+                "create table t_legacy (id bigint not null primary key)"), JdbcScript.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Stop the database server.
+     */
+    @AfterAll
+    static void stop() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    /**
+     * The snapshots, the comparison and the changelog of the diff steps write the same changelog
+     * as the liquibase {@code diffChangelog} command.
+     *
+     * @param directory the output directory.
+     * @throws Exception if the diff failed.
+     */
+    @Test
+    void sameChangeLogAsDiffChangelogCommand(@TempDir Path directory) throws Exception {
+        Path expected = directory.resolve("expected.xml");
+        try (Database reference = open("reference"); Database comparison = open("comparison")) {
+            new CommandScope(DiffChangelogCommandStep.COMMAND_NAME)
+                    .addArgumentValue(ReferenceDbUrlConnectionCommandStep.REFERENCE_DATABASE_ARG, reference)
+                    .addArgumentValue(DbUrlConnectionArgumentsCommandStep.DATABASE_ARG, comparison)
+                    .addArgumentValue(DiffChangelogCommandStep.CHANGELOG_FILE_ARG, expected.toString())
+                    .addArgumentValue(DiffChangelogCommandStep.AUTHOR_ARG, AUTHOR)
+                    .execute();
+        }
+
+        Path actual = directory.resolve("actual.xml");
+        try (Database reference = open("reference"); Database comparison = open("comparison")) {
+            CompareControl.SchemaComparison[] comparisons = CompareControl.computeSchemas(null, null, null, null, null,
+                    null, null, comparison).finalSchemaComparisons;
+            @SuppressWarnings("unchecked")
+            Class<? extends DatabaseObject>[] types = new Class[0];
+            DiffResult diffResult = DiffGeneratorFactory.getInstance().compare(
+                    DatabaseDiff.snapshot(reference, comparisons, true, null, types),
+                    DatabaseDiff.snapshot(comparison, comparisons, false, null, types),
+                    new CompareControl(comparisons, (String) null));
+            DatabaseDiff.write(diffResult, DatabaseDiff.outputControl(comparisons, false, false, false), reference, AUTHOR,
+                    null, null, actual.toString());
+        }
+
+        String result = normalize(actual);
+        assertTrue(result.contains("fk_person_address"), result);
+        assertTrue(result.contains("t_legacy"), result);
+        assertEquals(normalize(expected), result);
+    }
+
+    /**
+     * Returns the trimmed value or {@code null} for the blank values.
+     */
+    @Test
+    void trimToNull() {
+        assertEquals(null, DatabaseDiff.trimToNull(null));
+        assertEquals(null, DatabaseDiff.trimToNull(" \t"));
+        assertEquals("tables,columns", DatabaseDiff.trimToNull(" tables,columns "));
+    }
+
+    /**
+     * Open the liquibase database of the test database.
+     *
+     * @param name the database name.
+     * @return the liquibase database.
+     * @throws Exception if the connection failed.
+     */
+    private static Database open(String name) throws Exception {
+        return DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(
+                DriverManager.getConnection(server.getJdbcUrl(name), server.getUsername(), server.getPassword())));
+    }
+
+    /**
+     * Returns the changelog without the generated changeset ids.
+     *
+     * @param file the changelog file.
+     * @return the normalized changelog.
+     * @throws Exception if the file could not be read.
+     */
+    private static String normalize(Path file) throws Exception {
+        return Files.readString(file).replaceAll("id=\"\\d+-\\d+\"", "id=\"\"");
+    }
+}
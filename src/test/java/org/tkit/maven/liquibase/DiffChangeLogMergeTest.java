@@ -0,0 +1,161 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.diff.DiffResult;
+import liquibase.diff.compare.CompareControl;
+import liquibase.diff.output.DiffOutputControl;
+import liquibase.snapshot.EmptyDatabaseSnapshot;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the merge of the incremental diff output into the output of the last diff.
+ */
+class DiffChangeLogMergeTest {
+
+    /**
+     * Changelog header.
+     */
+    private static final String HEADER = """
+            <?xml version="1.1" encoding="UTF-8" standalone="no"?>
+            <databaseChangeLog xmlns="http://www.liquibase.org/xml/ns/dbchangelog" \
+            xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance" \
+            xsi:schemaLocation="http://www.liquibase.org/xml/ns/dbchangelog http://www.liquibase.org/xml/ns/dbchangelog/dbchangelog-latest.xsd">
+            """;
+
+    /**
+     * Output of the last diff.
+     */
+    private static final String PREVIOUS = """
+                <changeSet author="test" id="drop-fk">
+                    <dropForeignKeyConstraint baseTableName="t_c" constraintName="fk_c_old"/>
+                </changeSet>
+                <changeSet author="test" id="table-a">
+                    <createTable tableName="t_a">
+                        <column name="id" type="BIGINT"/>
+                    </createTable>
+                </changeSet>
+                <changeSet author="test" id="table-b-old">
+                    <createTable tableName="t_b">
+                        <column name="id" type="INTEGER"/>
+                    </createTable>
+                </changeSet>
+                <changeSet author="test" id="fk">
+                    <addForeignKeyConstraint baseColumnNames="b_id" baseTableName="t_a" constraintName="fk_a_b"
+                                             referencedColumnNames="id" referencedTableName="t_b"/>
+                </changeSet>
+                <changeSet author="test" id="drop-table">
+                    <dropTable tableName="t_old"/>
+                </changeSet>
+            """;
+
+    /**
+     * Output of the incremental diff of the table {@code t_b}.
+     */
+    private static final String CURRENT = """
+                <changeSet author="test" id="table-b">
+                    <createTable tableName="t_b">
+                        <column name="id" type="BIGINT"/>
+                    </createTable>
+                </changeSet>
+                <changeSet author="test" id="index-b">
+                    <createIndex indexName="ix_b" tableName="t_b">
+                        <column name="id"/>
+                    </createIndex>
+                </changeSet>
+            """;
+
+    /**
+     * ChangeSet id pattern.
+     */
+    private static final Pattern ID = Pattern.compile("<changeSet[^>]* id=\"([^\"]+)\"");
+
+    /**
+     * Diff result of the offline database.
+     */
+    private static DiffResult diffResult;
+
+    /**
+     * Diff output control.
+     */
+    private static DiffOutputControl diffOutputControl;
+
+    /**
+     * Create the empty diff result of the offline postgres database.
+     *
+     * @throws Exception if the diff result could not be created.
+     */
+    @BeforeAll
+    static void createDiffResult() throws Exception {
+        Database database = DatabaseFactory.getInstance().openDatabase("offline:postgresql", null, null, null, null);
+        CompareControl compareControl = new CompareControl();
+        diffResult = new DiffResult(new EmptyDatabaseSnapshot(database), new EmptyDatabaseSnapshot(database), compareControl);
+        diffOutputControl = new DiffOutputControl(false, false, false, compareControl.getSchemaComparisons());
+    }
+
+    /**
+     * The changeSets of the changed objects are replaced, both lists are merged in the order of the diff changelog.
+     *
+     * @param directory the changelog directory.
+     * @throws Exception if the merge failed.
+     */
+    @Test
+    void mergeInDiffOrder(@TempDir Path directory) throws Exception {
+        Path previous = Files.writeString(directory.resolve("previous.xml"), HEADER + PREVIOUS + "</databaseChangeLog>\n");
+        Path current = Files.writeString(directory.resolve("current.xml"), HEADER + CURRENT + "</databaseChangeLog>\n");
+        Path output = directory.resolve("output.xml");
+
+        DiffChangeLogMerge merge = new DiffChangeLogMerge(diffResult, diffOutputControl);
+        merge.merge(previous, current, output, objects -> !objects.contains("t_b"));
+
+        assertEquals(4, merge.getKeptChangeSets());
+        String result = Files.readString(output);
+        assertTrue(result.startsWith(HEADER.strip()), result);
+        assertTrue(result.endsWith("</databaseChangeLog>\n"), result);
+        assertEquals(List.of("drop-fk", "table-a", "table-b", "index-b", "fk", "drop-table"), ids(result));
+    }
+
+    /**
+     * The output without the incremental differences keeps the changeSets of the last diff,
+     * the output without changeSets is deleted.
+     *
+     * @param directory the changelog directory.
+     * @throws Exception if the merge failed.
+     */
+    @Test
+    void mergeWithoutDifferences(@TempDir Path directory) throws Exception {
+        Path previous = Files.writeString(directory.resolve("previous.xml"), HEADER + PREVIOUS + "</databaseChangeLog>\n");
+        Path output = directory.resolve("output.xml");
+
+        DiffChangeLogMerge merge = new DiffChangeLogMerge(diffResult, diffOutputControl);
+        merge.merge(previous, directory.resolve("current.xml"), output, objects -> !objects.contains("t_old"));
+        assertEquals(List.of("drop-fk", "table-a", "table-b-old", "fk"), ids(Files.readString(output)));
+
+        merge.merge(previous, directory.resolve("current.xml"), output, objects -> false);
+        assertEquals(0, merge.getKeptChangeSets());
+        assertFalse(Files.exists(output));
+    }
+
+    /**
+     * Returns the changeSet ids of the changelog.
+     *
+     * @param changeLog the changelog content.
+     * @return the changeSet ids.
+     */
+    private static List<String> ids(String changeLog) {
+        Matcher matcher = ID.matcher(changeLog);
+        return matcher.results().map(item -> item.group(1)).toList();
+    }
+}
@@ -0,0 +1,146 @@
+package org.tkit.maven.liquibase;
+
+import liquibase.change.AddColumnConfig;
+import liquibase.change.ColumnConfig;
+import liquibase.change.core.AddColumnChange;
+import liquibase.change.core.CreateIndexChange;
+import liquibase.change.core.CreateTableChange;
+import liquibase.change.core.DropColumnChange;
+import liquibase.change.core.DropTableChange;
+import liquibase.changelog.ChangeSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the name patterns and the skip rules of the check goal.
+ */
+class SkipRulesTest {
+
+    /**
+     * The regular expression extends to the end of the value and keeps its commas.
+     */
+    @Test
+    void split() {
+        assertEquals(List.of(), NamePatterns.split(null));
+        assertEquals(List.of("a", "b", ""), NamePatterns.split(" a , b,"));
+        assertEquals(List.of("a", "regex:t_[a-z]{1,3}, x"), NamePatterns.split("a, regex:t_[a-z]{1,3}, x"));
+    }
+
+    /**
+     * Exact names, glob patterns and regular expressions match the whole name.
+     */
+    @Test
+    void matches() {
+        NamePatterns patterns = NamePatterns.of("t_person, tmp_*, log_??, regex:t_[a-z]{1,3}");
+        assertTrue(patterns.matches("t_person"));
+        assertFalse(patterns.matches("t_person_x"));
+        assertTrue(patterns.matches("tmp_"));
+        assertTrue(patterns.matches("tmp_import"));
+        assertFalse(patterns.matches("x_tmp_import"));
+        assertTrue(patterns.matches("log_01"));
+        assertFalse(patterns.matches("log_001"));
+        assertTrue(patterns.matches("t_abc"));
+        assertFalse(patterns.matches("t_abcd"));
+        assertTrue(NamePatterns.of("a.b*").matches("a.bc"));
+        assertFalse(NamePatterns.of("a.b*").matches("axbc"));
+        assertTrue(NamePatterns.of(" ,").isEmpty());
+    }
+
+    /**
+     * The rules of the non column changes match only the object names.
+     */
+    @Test
+    void objectNames() {
+        SkipRules skip = SkipRules.compile(Map.of("dropTable", "tmp_*", "createIndex", "ix_name"));
+        assertTrue(skip.hasRules("dropTable"));
+        assertFalse(skip.hasRules("dropColumn"));
+        assertTrue(skip.skip(dropTable("tmp_import")));
+        assertFalse(skip.skip(dropTable("t_person")));
+
+        CreateIndexChange index = new CreateIndexChange();
+        index.setTableName("t_person");
+        index.setIndexName("ix_other");
+        AddColumnConfig column = new AddColumnConfig();
+        column.setName("ix_name");
+        index.addColumn(column);
+        assertFalse(skip.skip(index));
+        index.setIndexName("ix_name");
+        assertTrue(skip.skip(index));
+    }
+
+    /**
+     * The rules of the column changes match the column names, also with the table name.
+     */
+    @Test
+    void columnNames() {
+        SkipRules skip = SkipRules.compile(Map.of("dropColumn", "legacy, t_person.old_*", "addColumn", "regex:t_.*\\.email"));
+        assertTrue(skip.skip(dropColumn("t_address", "legacy")));
+        assertTrue(skip.skip(dropColumn("t_person", "old_name")));
+        assertFalse(skip.skip(dropColumn("t_address", "old_name")));
+
+        AddColumnChange addColumn = new AddColumnChange();
+        addColumn.setTableName("t_person");
+        AddColumnConfig column = new AddColumnConfig();
+        column.setName("email");
+        addColumn.addColumn(column);
+        assertTrue(skip.skip(addColumn));
+        addColumn.setTableName("person");
+        assertFalse(skip.skip(addColumn));
+
+        SkipRules table = SkipRules.compile(Map.of("createTable", "email"));
+        CreateTableChange createTable = new CreateTableChange();
+        createTable.setTableName("t_person");
+        createTable.addColumn(new ColumnConfig().setName("email"));
+        assertFalse(table.skip(createTable));
+    }
+
+    /**
+     * The skipped changes are removed from the changeSets, the empty changeSets are removed.
+     */
+    @Test
+    void unresolved() {
+        SkipRules skip = SkipRules.compile(Map.of("dropTable", "tmp_*"));
+        ChangeSet skipped = new ChangeSet("1", "test", false, false, "changeLog.xml", null, null, null);
+        skipped.addChange(dropTable("tmp_import"));
+        ChangeSet mixed = new ChangeSet("2", "test", false, false, "changeLog.xml", null, null, null);
+        mixed.addChange(dropTable("tmp_export"));
+        mixed.addChange(dropTable("t_person"));
+
+        List<ChangeSet> result = skip.unresolved(List.of(skipped, mixed));
+        assertEquals(List.of(mixed), result);
+        assertEquals(1, mixed.getChanges().size());
+        assertEquals("t_person", ((DropTableChange) mixed.getChanges().get(0)).getTableName());
+    }
+
+    /**
+     * Returns the drop table change.
+     *
+     * @param table the table name.
+     * @return the change.
+     */
+    private static DropTableChange dropTable(String table) {
+        DropTableChange result = new DropTableChange();
+        result.setTableName(table);
+        return result;
+    }
+
+    /**
+     * Returns the drop column change.
+     *
+     * @param table  the table name.
+     * @param column the column name.
+     * @return the change.
+     */
+    private static DropColumnChange dropColumn(String table, String column) {
+        DropColumnChange result = new DropColumnChange();
+        result.setTableName(table);
+        result.setColumnName(column);
+        return result;
+    }
+}